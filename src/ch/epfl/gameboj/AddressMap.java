@@ -24,6 +24,7 @@ public interface AddressMap {
     int REG_TAC = 0xFF07;
     int REG_IF = 0xFF0F;
     int REGS_LCDC_START = 0xFF40, REGS_LCDC_END = 0xFF4C;
+    int REG_LY = 0xFF44;
     int REG_BOOT_ROM_DISABLE = 0xFF50;
     int REG_IE = 0xFFFF;
 }
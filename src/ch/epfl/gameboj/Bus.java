@@ -14,9 +14,24 @@ import ch.epfl.gameboj.component.Component;
 
 public final class Bus {
 
+    public static final int PAGE_SIZE = 0x100;
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_COUNT = 0x10000 / PAGE_SIZE;
+
     private final int NO_VALUE = 0xFF;
     private final ArrayList<Component> components = new ArrayList<>();
 
+    // Pages of the address space mapped directly to an array of bytes, for
+    // reading and for writing, with the index in the array of their first byte
+    private final byte[][] readPages = new byte[PAGE_COUNT][];
+    private final byte[][] writePages = new byte[PAGE_COUNT][];
+    private final int[] pageOffsets = new int[PAGE_COUNT];
+
+    // Null while the accesses are not traced
+    private BusTracer tracer;
+    // Null while the accesses are not watched
+    private Debugger debugger;
+
     /**
      * Attaches the component to the bus.
      *
@@ -40,6 +55,21 @@ public final class Bus {
     public int read(int address) {
         Preconditions.checkBits16(address);
 
+        int page = address >>> PAGE_BITS;
+        byte[] data = readPages[page];
+        int value = data != null
+                ? Byte.toUnsignedInt(
+                        data[pageOffsets[page] + (address & (PAGE_SIZE - 1))])
+                : readComponents(address);
+
+        if (tracer != null)
+            tracer.record(address, value, false);
+        if (debugger != null)
+            debugger.access(address, value, false);
+        return value;
+    }
+
+    private int readComponents(int address) {
         for (Component component : components) {
             int byteComponent = component.read(address);
             if (byteComponent != component.NO_DATA)
@@ -60,7 +90,109 @@ public final class Bus {
         Preconditions.checkBits16(address);
         Preconditions.checkBits8(data);
 
+        if (tracer != null)
+            tracer.record(address, data, true);
+        if (debugger != null)
+            debugger.access(address, data, true);
+
+        int page = address >>> PAGE_BITS;
+        byte[] pageData = writePages[page];
+        if (pageData != null) {
+            pageData[pageOffsets[page] + (address & (PAGE_SIZE - 1))] =
+                    (byte) data;
+            return;
+        }
+
         for (Component component : components)
             component.write(address, data);
     }
+
+    /**
+     * Records the accesses to the bus in the given tracer from now on, or
+     * stops recording them if it is null. The bus must then only be accessed
+     * by one thread.
+     *
+     * @param tracer the tracer, or null
+     */
+    public void setTracer(BusTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Reports the accesses to the bus to the watchpoints of the given
+     * debugger from now on, or stops reporting them if it is null.
+     *
+     * @param debugger the debugger, or null
+     */
+    void setDebugger(Debugger debugger) {
+        this.debugger = debugger;
+    }
+
+    /**
+     * Checks if the accesses to the bus are traced or reported to a
+     * debugger, in which case they must all really be made.
+     *
+     * @return true if the accesses are observed
+     */
+    public boolean isObserved() {
+        return tracer != null || debugger != null;
+    }
+
+    /**
+     * Maps the addresses from startAddress (included) to endAddress (excluded)
+     * directly to the given bytes, starting at the given index, so that they
+     * are accessed without going through the components. The caller must
+     * ensure that no other component reads or is written at these addresses,
+     * and that the component owning the bytes behaves like a plain memory.
+     *
+     * @param startAddress first address mapped, multiple of PAGE_SIZE
+     * @param endAddress   first address not mapped, multiple of PAGE_SIZE
+     * @param data         bytes to map (not copied)
+     * @param index        index of the byte mapped at startAddress
+     * @param writable     true if the writes must also go to the bytes,
+     *                     false if they must still go to the components
+     * @throws IllegalArgumentException if the addresses are not aligned on
+     *                                  pages or if the bytes are too few
+     */
+    public void map(int startAddress, int endAddress, byte[] data, int index,
+            boolean writable) {
+        Objects.requireNonNull(data);
+        checkPages(startAddress, endAddress);
+        Preconditions.checkArgument(0 <= index
+                && index + (endAddress - startAddress) <= data.length);
+
+        for (int a = startAddress; a < endAddress; a += PAGE_SIZE) {
+            int page = a >>> PAGE_BITS;
+            readPages[page] = data;
+            writePages[page] = writable ? data : null;
+            pageOffsets[page] = index + (a - startAddress);
+        }
+    }
+
+    /**
+     * Removes the direct mapping of the addresses from startAddress (included)
+     * to endAddress (excluded), which are then accessed through the components.
+     *
+     * @param startAddress first address unmapped, multiple of PAGE_SIZE
+     * @param endAddress   first address not unmapped, multiple of PAGE_SIZE
+     * @throws IllegalArgumentException if the addresses are not aligned on
+     *                                  pages
+     */
+    public void unmap(int startAddress, int endAddress) {
+        checkPages(startAddress, endAddress);
+
+        for (int a = startAddress; a < endAddress; a += PAGE_SIZE) {
+            int page = a >>> PAGE_BITS;
+            readPages[page] = null;
+            writePages[page] = null;
+            pageOffsets[page] = 0;
+        }
+    }
+
+    private static void checkPages(int startAddress, int endAddress) {
+        Preconditions.checkArgument(0 <= startAddress
+                && startAddress <= endAddress && endAddress <= 0x10000
+                && startAddress % PAGE_SIZE == 0
+                && endAddress % PAGE_SIZE == 0);
+    }
 }
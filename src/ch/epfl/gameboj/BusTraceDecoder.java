@@ -0,0 +1,90 @@
+package ch.epfl.gameboj;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import ch.epfl.gameboj.bits.Bits;
+
+/**
+ * Turns a trace written by {@link BusTracer} into text, one access per line:
+ * its cycle, R or W, its address and its value, in hexadecimal
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class BusTraceDecoder {
+
+    private BusTraceDecoder() {
+    }
+
+    /**
+     * Decodes the trace files given as arguments on the standard output.
+     *
+     * @param args the paths of the traces
+     * @throws IOException if a file cannot be read or is not a trace
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream out = new PrintStream(System.out, false);
+        for (String file : args) {
+            try (InputStream in = Files.newInputStream(Paths.get(file))) {
+                decode(in, out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Decodes the given trace.
+     *
+     * @param in  the trace
+     * @param out where the text is written
+     * @return the number of accesses decoded
+     * @throws IOException if the trace cannot be read or does not start like
+     *                     a trace
+     */
+    public static long decode(InputStream in, Appendable out)
+            throws IOException {
+        DataInputStream data = new DataInputStream(
+                new BufferedInputStream(in));
+
+        byte[] magic = new byte[BusTracer.MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, BusTracer.MAGIC))
+            throw new IOException("not a bus trace");
+
+        long count = 0;
+        while (true) {
+            long access;
+            try {
+                // The accesses are written in little-endian order
+                access = Long.reverseBytes(data.readLong());
+            } catch (EOFException e) {
+                return count;
+            }
+            out.append(toString(access)).append('\n');
+            count += 1;
+        }
+    }
+
+    /**
+     * Returns the text of a packed access.
+     *
+     * @param access the access, packed by the tracer
+     * @return the text of the access
+     */
+    static String toString(long access) {
+        return String.format("%d %c %04X %02X",
+                access >>> BusTracer.CYCLE_SHIFT,
+                Bits.test((int) access, BusTracer.WRITE_BIT) ? 'W' : 'R',
+                Bits.extract((int) access, BusTracer.VALUE_BITS,
+                        BusTracer.ADDRESS_BITS),
+                Bits.clip(BusTracer.VALUE_BITS, (int) access));
+    }
+}
@@ -0,0 +1,200 @@
+package ch.epfl.gameboj;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Records the accesses to a bus in a binary file. Each access is packed in a
+ * long (cycle, read or write, address and value) and stored in a ring buffer,
+ * which a background thread empties into the file. The buffer is written by a
+ * single thread, the one using the bus, which waits when it is full so that no
+ * access is lost. The file is read by {@link BusTraceDecoder}
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class BusTracer implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    static final byte[] MAGIC = "GBJTRACE".getBytes(StandardCharsets.US_ASCII);
+
+    static final int VALUE_BITS = 8, ADDRESS_BITS = 16;
+    static final int WRITE_BIT = VALUE_BITS + ADDRESS_BITS;
+    static final int CYCLE_SHIFT = WRITE_BIT + 1;
+
+    // Number of accesses recorded between two publications to the flusher
+    private static final int BATCH = 256;
+    // Number of accesses written to the file at once
+    private static final int CHUNK = 8192;
+    private static final long IDLE_NANOS = 1_000_000;
+
+    private final long[] buffer;
+    private final int mask;
+    private final LongSupplier cycles;
+    private final FileChannel channel;
+    private final Thread flusher;
+    // Accesses published to the flusher, and accesses written to the file
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private long head;
+    private long limit;
+
+    /**
+     * Constructs a tracer writing in the given file, and starts its flushing
+     * thread.
+     *
+     * @param file     the file of the trace, replaced if it exists
+     * @param cycles   gives the current cycle
+     * @param capacity number of accesses in the ring buffer, power of two
+     *                 at least 512
+     * @throws IOException              if the file cannot be created
+     * @throws IllegalArgumentException if the capacity is invalid
+     */
+    public BusTracer(Path file, LongSupplier cycles, int capacity)
+            throws IOException {
+        Preconditions.checkArgument(capacity >= 2 * BATCH
+                && Integer.bitCount(capacity) == 1);
+
+        this.cycles = Objects.requireNonNull(cycles);
+        buffer = new long[capacity];
+        mask = capacity - 1;
+        head = 0;
+        limit = capacity;
+        closed = false;
+        failure = null;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.wrap(MAGIC));
+
+        flusher = new Thread(this::flush, "gameboj-bus-tracer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Constructs a tracer writing in the given file, with a buffer of the
+     * default capacity.
+     *
+     * @param file   the file of the trace, replaced if it exists
+     * @param cycles gives the current cycle
+     * @throws IOException if the file cannot be created
+     */
+    public BusTracer(Path file, LongSupplier cycles) throws IOException {
+        this(file, cycles, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Packs an access in a long.
+     *
+     * @param cycle   the cycle of the access
+     * @param address the address accessed
+     * @param value   the value read or written
+     * @param write   true for a write, false for a read
+     * @return the packed access
+     */
+    static long pack(long cycle, int address, int value, boolean write) {
+        return (cycle << CYCLE_SHIFT) | (write ? 1L << WRITE_BIT : 0)
+                | (address << VALUE_BITS) | value;
+    }
+
+    /**
+     * Records an access to the bus, waiting while the buffer is full.
+     *
+     * @param address the address accessed
+     * @param value   the value read or written
+     * @param write   true for a write, false for a read
+     */
+    void record(int address, int value, boolean write) {
+        if (head == limit)
+            awaitSpace();
+
+        buffer[(int) head & mask] = pack(cycles.getAsLong(), address, value,
+                write);
+        head += 1;
+        if ((head & (BATCH - 1)) == 0)
+            published.lazySet(head);
+    }
+
+    private void awaitSpace() {
+        published.set(head);
+        while ((limit = flushed.get() + buffer.length) == head) {
+            if (failure != null || !flusher.isAlive())
+                throw new IllegalStateException("bus trace failed", failure);
+            LockSupport.unpark(flusher);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Writes the remaining accesses, stops the flushing thread and closes the
+     * file.
+     *
+     * @throws IOException            if the trace could not be written
+     * @throws InterruptedIOException if the current thread is interrupted
+     *                                while waiting for the flushing thread,
+     *                                whose interrupt flag is then restored
+     */
+    @Override public void close() throws IOException {
+        published.set(head);
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            // join does not check the flag once the flusher has ended
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                    "interrupted while flushing the bus trace");
+        }
+        channel.close();
+        if (failure != null)
+            throw failure;
+    }
+
+    private void flush() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long tail = 0;
+        try {
+            while (true) {
+                boolean last = closed;
+                long end = published.get();
+                if (tail == end) {
+                    if (last)
+                        return;
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+
+                while (tail < end) {
+                    bytes.clear();
+                    long chunkEnd = Math.min(end, tail + CHUNK);
+                    for (long i = tail; i < chunkEnd; ++i)
+                        bytes.putLong(buffer[(int) i & mask]);
+                    bytes.flip();
+                    while (bytes.hasRemaining())
+                        channel.write(bytes);
+                    tail = chunkEnd;
+                    flushed.lazySet(tail);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+}
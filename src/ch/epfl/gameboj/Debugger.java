@@ -0,0 +1,262 @@
+package ch.epfl.gameboj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import ch.epfl.gameboj.component.cpu.Cpu;
+
+/**
+ * Breakpoints and watchpoints of a game boy, used by its debugging methods.
+ * Each address has a flag telling if a breakpoint or watchpoint may concern
+ * it, so that checking an address without any costs a single array lookup
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class Debugger {
+
+    /**
+     * Reason for which a debugging method stopped the emulation
+     */
+    public enum Stop {
+        CYCLE, FRAME, INSTRUCTION, BREAKPOINT, WATCHPOINT, STOPPED, HALTED
+    }
+
+    /**
+     * Bank matching all the ROM banks
+     */
+    public static final int ANY_BANK = -1;
+
+    private static final int ADDRESSES = 0x10000;
+    private static final int BANKED_START = 0x4000, BANKED_END = 0x8000;
+    private static final byte READ = 1, WRITE = 2;
+
+    /**
+     * Execution breakpoint (immutable)
+     */
+    private static final class Breakpoint {
+        private final int bank;
+        private final int address;
+        private final Cpu.RegisterName register;
+        private final IntPredicate condition;
+
+        private Breakpoint(int bank, int address, Cpu.RegisterName register,
+                IntPredicate condition) {
+            this.bank = bank;
+            this.address = address;
+            this.register = register;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * Memory watchpoint (immutable)
+     */
+    private static final class Watchpoint {
+        private final int start, end;
+        private final byte accesses;
+
+        private Watchpoint(int start, int end, byte accesses) {
+            this.start = start;
+            this.end = end;
+            this.accesses = accesses;
+        }
+    }
+
+    private final IntUnaryOperator romBank;
+    private final boolean[] breakFlags = new boolean[ADDRESSES];
+    private final byte[] watchFlags = new byte[ADDRESSES];
+    private final List<Breakpoint> breakpoints = new ArrayList<>();
+    private final List<Watchpoint> watchpoints = new ArrayList<>();
+    private boolean watchHit;
+    private int hitAddress;
+    private int hitValue;
+    private boolean hitWrite;
+
+    /**
+     * Constructs a debugger without breakpoints nor watchpoints.
+     *
+     * @param romBank gives the ROM bank seen at an address
+     */
+    Debugger(IntUnaryOperator romBank) {
+        this.romBank = Objects.requireNonNull(romBank);
+        watchHit = false;
+    }
+
+    /**
+     * Adds a breakpoint before the instruction at the given address.
+     *
+     * @param bank    the ROM bank of the address, or ANY_BANK; only used for
+     *                the addresses of the switchable bank (0x4000 to 0x7FFF)
+     * @param address the address of the instruction
+     * @throws IllegalArgumentException if the address is not a 16 bits value
+     */
+    public void addBreakpoint(int bank, int address) {
+        addBreakpoint(bank, address, Cpu.RegisterName.PC, v -> true);
+    }
+
+    /**
+     * Adds a breakpoint before the instruction at the given address, which
+     * only stops the emulation if the given register satisfies the given
+     * condition.
+     *
+     * @param bank      the ROM bank of the address, or ANY_BANK
+     * @param address   the address of the instruction
+     * @param register  the register tested
+     * @param condition the condition on the value of the register
+     * @throws IllegalArgumentException if the address is not a 16 bits value
+     */
+    public void addBreakpoint(int bank, int address,
+            Cpu.RegisterName register, IntPredicate condition) {
+        Preconditions.checkBits16(address);
+
+        breakpoints.add(new Breakpoint(bank, address,
+                Objects.requireNonNull(register),
+                Objects.requireNonNull(condition)));
+        breakFlags[address] = true;
+    }
+
+    /**
+     * Removes all the breakpoints at the given address, in all banks.
+     *
+     * @param address the address
+     * @throws IllegalArgumentException if the address is not a 16 bits value
+     */
+    public void removeBreakpoints(int address) {
+        Preconditions.checkBits16(address);
+
+        breakpoints.removeIf(b -> b.address == address);
+        breakFlags[address] = false;
+    }
+
+    /**
+     * Adds a watchpoint stopping the emulation after an access to the bus at
+     * the addresses from start (included) to end (excluded).
+     *
+     * @param start the first address watched
+     * @param end   the first address not watched
+     * @param read  true if the reads are watched
+     * @param write true if the writes are watched
+     * @throws IllegalArgumentException if the addresses are invalid
+     */
+    public void addWatchpoint(int start, int end, boolean read,
+            boolean write) {
+        Preconditions.checkArgument(
+                0 <= start && start < end && end <= ADDRESSES);
+
+        byte accesses = (byte) ((read ? READ : 0) | (write ? WRITE : 0));
+        watchpoints.add(new Watchpoint(start, end, accesses));
+        for (int a = start; a < end; ++a)
+            watchFlags[a] |= accesses;
+    }
+
+    /**
+     * Removes all the watchpoints containing the given address.
+     *
+     * @param address the address
+     * @throws IllegalArgumentException if the address is not a 16 bits value
+     */
+    public void removeWatchpoints(int address) {
+        Preconditions.checkBits16(address);
+
+        watchpoints.removeIf(w -> w.start <= address && address < w.end);
+        Arrays.fill(watchFlags, (byte) 0);
+        for (Watchpoint w : watchpoints) {
+            for (int a = w.start; a < w.end; ++a)
+                watchFlags[a] |= w.accesses;
+        }
+    }
+
+    /**
+     * Removes all the breakpoints and watchpoints.
+     */
+    public void clear() {
+        breakpoints.clear();
+        watchpoints.clear();
+        Arrays.fill(breakFlags, false);
+        Arrays.fill(watchFlags, (byte) 0);
+    }
+
+    /**
+     * Returns the address of the last access which hit a watchpoint.
+     *
+     * @return the address of the access
+     */
+    public int hitAddress() {
+        return hitAddress;
+    }
+
+    /**
+     * Returns the value read or written by the last access which hit a
+     * watchpoint.
+     *
+     * @return the value of the access
+     */
+    public int hitValue() {
+        return hitValue;
+    }
+
+    /**
+     * Checks if the last access which hit a watchpoint was a write.
+     *
+     * @return true for a write, false for a read
+     */
+    public boolean hitWrite() {
+        return hitWrite;
+    }
+
+    /**
+     * Checks if a breakpoint stops the given CPU before its next
+     * instruction.
+     *
+     * @param cpu the CPU
+     * @return true if the CPU must stop
+     */
+    boolean breaksBefore(Cpu cpu) {
+        int pc = cpu.registerValue(Cpu.RegisterName.PC);
+        if (!breakFlags[pc])
+            return false;
+
+        boolean banked = BANKED_START <= pc && pc < BANKED_END;
+        for (Breakpoint b : breakpoints) {
+            if (b.address == pc
+                    && (!banked || b.bank == ANY_BANK
+                            || b.bank == romBank.applyAsInt(pc))
+                    && b.condition.test(cpu.registerValue(b.register)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records an access to the bus, if it hits a watchpoint.
+     *
+     * @param address the address accessed
+     * @param value   the value read or written
+     * @param write   true for a write, false for a read
+     */
+    void access(int address, int value, boolean write) {
+        if ((watchFlags[address] & (write ? WRITE : READ)) != 0) {
+            watchHit = true;
+            hitAddress = address;
+            hitValue = value;
+            hitWrite = write;
+        }
+    }
+
+    /**
+     * Checks if an access hit a watchpoint since the last call, and forgets
+     * it.
+     *
+     * @return true if a watchpoint was hit
+     */
+    boolean takeWatchHit() {
+        boolean hit = watchHit;
+        watchHit = false;
+        return hit;
+    }
+}
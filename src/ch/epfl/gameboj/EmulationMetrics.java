@@ -0,0 +1,231 @@
+package ch.epfl.gameboj;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the emulation of a game boy: cycles emulated and time taken,
+ * frame times, memory allocated and ROM bank switches. They are filled by the
+ * thread running the game boy while they are attached to it, and can be read
+ * at any time by other threads through snapshots
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class EmulationMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory
+            .getThreadMXBean();
+
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder bankSwitches = new LongAdder();
+    private final Histogram frameNanos = new Histogram();
+    private final boolean allocationKnown;
+    private final long startNanos;
+    // Time spent on the current frame in the previous slices, only used by
+    // the thread running the game boy
+    private long pendingFrameNanos;
+
+    /**
+     * Values of the metrics at a given moment (immutable)
+     */
+    public static final class Snapshot {
+        private final long nanos;
+        private final long cycles;
+        private final long busyNanos;
+        private final long frames;
+        private final long allocatedBytes;
+        private final long bankSwitches;
+        private final long frameNanos50, frameNanos90, frameNanos99;
+
+        private Snapshot(EmulationMetrics m) {
+            nanos = Math.max(1, System.nanoTime() - m.startNanos);
+            cycles = m.cycles.sum();
+            busyNanos = m.busyNanos.sum();
+            frames = m.frames.sum();
+            allocatedBytes = m.allocationKnown ? m.allocatedBytes.sum() : -1;
+            bankSwitches = m.bankSwitches.sum();
+            frameNanos50 = m.frameNanos.percentile(50);
+            frameNanos90 = m.frameNanos.percentile(90);
+            frameNanos99 = m.frameNanos.percentile(99);
+        }
+
+        /**
+         * Returns the number of cycles emulated.
+         *
+         * @return the number of cycles
+         */
+        public long cycles() {
+            return cycles;
+        }
+
+        /**
+         * Returns the number of frames emulated.
+         *
+         * @return the number of frames
+         */
+        public long frames() {
+            return frames;
+        }
+
+        /**
+         * Returns the speed of the emulation since the metrics were created,
+         * relative to the one of a real game boy.
+         *
+         * @return the emulation speed, 1 being the real speed
+         */
+        public double speed() {
+            return cycles / (nanos * GameBoy.CYCLES_PER_NANOSECOND);
+        }
+
+        /**
+         * Returns the speed the emulation would have if it never waited,
+         * relative to the one of a real game boy.
+         *
+         * @return the maximal emulation speed, 1 being the real speed
+         */
+        public double maxSpeed() {
+            return busyNanos == 0 ? 0
+                    : cycles / (busyNanos * GameBoy.CYCLES_PER_NANOSECOND);
+        }
+
+        /**
+         * Returns the given percentile of the time taken to emulate a frame.
+         *
+         * @param percentile 50, 90 or 99
+         * @return the frame time in nanoseconds
+         * @throws IllegalArgumentException if the percentile is not kept
+         */
+        public long frameNanos(int percentile) {
+            switch (percentile) {
+            case 50: return frameNanos50;
+            case 90: return frameNanos90;
+            case 99: return frameNanos99;
+            default: throw new IllegalArgumentException();
+            }
+        }
+
+        /**
+         * Returns the memory allocated per frame by the thread running the
+         * game boy.
+         *
+         * @return the bytes allocated per frame, or -1 if unknown
+         */
+        public double allocatedBytesPerFrame() {
+            return allocatedBytes < 0 ? -1
+                    : allocatedBytes / (double) Math.max(1, frames);
+        }
+
+        /**
+         * Returns the number of ROM bank switches per second.
+         *
+         * @return the bank switch rate
+         */
+        public double bankSwitchesPerSecond() {
+            return bankSwitches * 1e9 / nanos;
+        }
+
+        /**
+         * Returns the metrics in the text format of Prometheus.
+         *
+         * @return the metrics as text
+         */
+        public String toText() {
+            StringBuilder b = new StringBuilder();
+            append(b, "gameboj_cycles_total", cycles);
+            append(b, "gameboj_frames_total", frames);
+            append(b, "gameboj_speed", speed());
+            append(b, "gameboj_max_speed", maxSpeed());
+            for (int p : new int[] { 50, 90, 99 }) {
+                b.append("gameboj_frame_seconds{quantile=\"0.").append(p)
+                        .append("\"} ").append(String.format(Locale.ROOT,
+                                "%.9f", frameNanos(p) * 1e-9))
+                        .append('\n');
+            }
+            append(b, "gameboj_allocated_bytes_per_frame",
+                    allocatedBytesPerFrame());
+            append(b, "gameboj_bank_switches_per_second",
+                    bankSwitchesPerSecond());
+            return b.toString();
+        }
+
+        private static void append(StringBuilder b, String name,
+                double value) {
+            b.append(name).append(' ')
+                    .append(String.format(Locale.ROOT, "%.6g", value))
+                    .append('\n');
+        }
+
+        private static void append(StringBuilder b, String name, long value) {
+            b.append(name).append(' ').append(value).append('\n');
+        }
+    }
+
+    /**
+     * Constructs empty metrics, measuring the time from now on.
+     */
+    public EmulationMetrics() {
+        allocationKnown = allocatedBytes() >= 0;
+        startNanos = System.nanoTime();
+        pendingFrameNanos = 0;
+    }
+
+    /**
+     * Returns a snapshot of the metrics.
+     *
+     * @return the current values of the metrics
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Returns the memory allocated so far by the current thread.
+     *
+     * @return the number of bytes allocated, or -1 if unknown
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Records the end of a frame, the given time being spent on it in the
+     * current slice.
+     *
+     * @param nanos the time spent on the frame since the start of the slice
+     *              or the end of the previous frame
+     */
+    void recordFrame(long nanos) {
+        frames.increment();
+        frameNanos.record(pendingFrameNanos + nanos);
+        pendingFrameNanos = 0;
+    }
+
+    /**
+     * Records the end of a slice of emulation.
+     *
+     * @param cycles          the number of cycles emulated
+     * @param nanos           the time taken
+     * @param unfinishedNanos the time spent on the unfinished frame
+     * @param allocated       the bytes allocated, or -1 if unknown
+     * @param bankSwitches    the number of ROM bank switches
+     */
+    void recordSlice(long cycles, long nanos, long unfinishedNanos,
+            long allocated, long bankSwitches) {
+        this.cycles.add(cycles);
+        busyNanos.add(nanos);
+        pendingFrameNanos += unfinishedNanos;
+        if (allocated >= 0)
+            allocatedBytes.add(allocated);
+        this.bankSwitches.add(bankSwitches);
+    }
+}
@@ -1,9 +1,11 @@
 package ch.epfl.gameboj;
 
+import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Joypad;
 import ch.epfl.gameboj.component.Timer;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
 import ch.epfl.gameboj.component.cpu.Cpu;
+import ch.epfl.gameboj.component.cpu.Opcode;
 import ch.epfl.gameboj.component.lcd.LcdController;
 import ch.epfl.gameboj.component.memory.BootRomController;
 import ch.epfl.gameboj.component.memory.Ram;
@@ -14,18 +16,26 @@ import java.util.Objects;
 import static ch.epfl.gameboj.AddressMap.*;
 
 /**
- * the gameBoy
+ * the gameBoy. Its components share no state with the ones of other game
+ * boys, so that many of them can run in parallel, each one being used by a
+ * single thread at a time
  *
  * @author Lucie Hoffmann (286865)
  * @author Marie Jaillot (270130)
  */
 
-public class GameBoy {
+public class GameBoy implements AutoCloseable {
 
     public static final long CYCLES_PER_SECOND = 1 << 20;
     public static final double CYCLES_PER_NANOSECOND = CYCLES_PER_SECOND * 1e-9;
+    // Cycles of a frame of the screen: 154 lines of 114 cycles
+    public static final long FRAME_CYCLES = 17_556;
+
+    private static final int ALL_INTERRUPTS =
+            (1 << Cpu.Interrupt.values().length) - 1;
 
     private final Bus bus = new Bus();
+    private final Cartridge cartridge;
     private final Ram workRam;
     private final RamController workRamController;
     private final RamController echoRamController;
@@ -35,6 +45,13 @@ public class GameBoy {
     private final LcdController lcdController;
     private final Joypad joypad;
     private long simulatedCycles;
+    // Cycle until which no input can occur, thus until which the CPU can
+    // skip or anticipate instructions
+    private long inputHorizon;
+    // Null while no metrics are attached
+    private EmulationMetrics metrics;
+    // Null until the debugger is first used
+    private Debugger debugger;
 
     /**
      * Creates a game boy with a bus, a workRam and a copy of the workRam which
@@ -43,7 +60,7 @@ public class GameBoy {
      * @param cartridge {@link Cartridge} containing the game
      */
     public GameBoy(Cartridge cartridge) {
-        Objects.requireNonNull(cartridge);
+        this.cartridge = Objects.requireNonNull(cartridge);
 
         workRam = new Ram(WORK_RAM_SIZE);
         workRamController = new RamController(workRam, WORK_RAM_START,
@@ -51,12 +68,15 @@ public class GameBoy {
         echoRamController = new RamController(workRam, ECHO_RAM_START,
                 ECHO_RAM_END);
         bootRomController = new BootRomController(cartridge);
+        cartridge.attachClock(this::cycles);
         cpu = new Cpu();
         timer = new Timer(cpu);
         lcdController = new LcdController(cpu);
         joypad = new Joypad(cpu);
+        cpu.setHorizon(new CpuHorizon());
 
         simulatedCycles = 0;
+        inputHorizon = 0;
 
         workRamController.attachTo(bus);
         echoRamController.attachTo(bus);
@@ -65,6 +85,14 @@ public class GameBoy {
         cpu.attachTo(bus);
         lcdController.attachTo(bus);
         joypad.attachTo(bus);
+
+        // No other component uses the memories of the work RAM and of the
+        // cartridge, which can thus be accessed directly by the bus, and by
+        // the CPU for the work RAM
+        workRamController.mapTo(bus);
+        echoRamController.mapTo(bus);
+        bootRomController.mapTo(bus);
+        workRamController.mapTo(cpu::mapWorkRam);
     }
 
     /**
@@ -76,6 +104,15 @@ public class GameBoy {
         return bus;
     }
 
+    /**
+     * Cartridge getter.
+     *
+     * @return the gameBoy's cartridge
+     */
+    public Cartridge cartridge() {
+        return cartridge;
+    }
+
     /**
      * Cpu getter.
      *
@@ -103,6 +140,15 @@ public class GameBoy {
         return joypad;
     }
 
+    /**
+     * Stops the threads used by the game boy, i.e. the one of the pipelined
+     * rendering of the LCD controller. The game boy can still be run
+     * afterwards, with an eager rendering.
+     */
+    @Override public void close() {
+        lcdController.close();
+    }
+
     /**
      * Simulates the operation of the gameBoy until the given cycle - 1.
      *
@@ -114,12 +160,259 @@ public class GameBoy {
     public void runUntil(long cycle) {
         Preconditions.checkArgument(simulatedCycles <= cycle);
 
+        RunSliceEvent event = new RunSliceEvent();
+        long startCycle = simulatedCycles;
+        long startNanos = event.isEnabled() ? System.nanoTime() : 0;
+        event.begin();
+
+        inputHorizon = cycle;
+        if (metrics != null)
+            runMeasured(cycle, metrics);
+        else {
+            while (simulatedCycles < cycle && !cpu.isStopped()) {
+                timer.cycle(simulatedCycles);
+                lcdController.cycle(simulatedCycles);
+                // The CPU is idle until it starts an instruction, or until
+                // an interruption wakes it up
+                if (cpu.startsInstruction(simulatedCycles))
+                    cpu.cycle(simulatedCycles);
+                simulatedCycles++;
+                skipIdleCycles(cycle);
+            }
+            skipStop(cycle);
+        }
+
+        if (event.shouldCommit()) {
+            event.startCycle = startCycle;
+            event.cycles = simulatedCycles - startCycle;
+            event.cyclesPerNanosecond = event.cycles
+                    / (double) Math.max(1, System.nanoTime() - startNanos);
+            event.commit();
+        }
+    }
+
+    /**
+     * Skips the cycles, before the given one, at which neither the CPU nor the
+     * LCD controller does anything, the timer simulating them at once as long
+     * as it requests no interruption. The CPU does nothing while it executes
+     * an instruction, is halted, or skips the iterations of an idle loop.
+     */
+    private void skipIdleCycles(long cycle) {
+        long end = Math.min(cycle, Math.min(cpu.nextInstructionCycle(),
+                lcdController.nextChangeCycle()));
+        if (end > simulatedCycles) {
+            end = Math.min(end, timer.nextInterruptCycle(simulatedCycles - 1));
+            if (end > simulatedCycles) {
+                timer.advance(end - simulatedCycles);
+                simulatedCycles = end;
+            }
+        }
+    }
+
+    /**
+     * Skips the cycles until the given cycle - 1 if the CPU is stopped, in
+     * which case the LCD controller and the timer are stopped too, and only
+     * a key press can resume the emulation.
+     */
+    private void skipStop(long cycle) {
+        if (cpu.isStopped() && simulatedCycles < cycle) {
+            lcdController.delay(cycle - simulatedCycles);
+            simulatedCycles = cycle;
+        }
+    }
+
+    /**
+     * Simulates the game boy until the given cycle - 1 like runUntil, timing
+     * each frame and the whole slice in the given metrics.
+     */
+    private void runMeasured(long cycle, EmulationMetrics metrics) {
+        long startCycle = simulatedCycles;
+        long startBankSwitches = cartridge.bankSwitches();
+        long startAllocated = EmulationMetrics.allocatedBytes();
+        long startNanos = System.nanoTime();
+        long frameStartNanos = startNanos;
+        long frames = lcdController.frameCount();
+
+        while (simulatedCycles < cycle && !cpu.isStopped()) {
+            timer.cycle(simulatedCycles);
+            lcdController.cycle(simulatedCycles);
+            if (cpu.startsInstruction(simulatedCycles))
+                cpu.cycle(simulatedCycles);
+            simulatedCycles++;
+
+            if (lcdController.frameCount() != frames) {
+                long now = System.nanoTime();
+                metrics.recordFrame(now - frameStartNanos);
+                frames = lcdController.frameCount();
+                frameStartNanos = now;
+            }
+            skipIdleCycles(cycle);
+        }
+        skipStop(cycle);
+
+        long endNanos = System.nanoTime();
+        long endAllocated = EmulationMetrics.allocatedBytes();
+        metrics.recordSlice(simulatedCycles - startCycle,
+                endNanos - startNanos, endNanos - frameStartNanos,
+                startAllocated < 0 ? -1 : endAllocated - startAllocated,
+                cartridge.bankSwitches() - startBankSwitches);
+    }
+
+    /**
+     * Attaches the given metrics to the game boy, which fills them from now
+     * on, or detaches the metrics if it is null. Must be called by the thread
+     * running the game boy.
+     *
+     * @param metrics the metrics, or null
+     */
+    public void setMetrics(EmulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics attached to the game boy.
+     *
+     * @return the metrics, or null if none is attached
+     */
+    public EmulationMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the debugger of the game boy, whose breakpoints and watchpoints
+     * are used by the debugging methods (runTo, runToFrame, stepInstruction
+     * and stepOver) but not by runUntil. It only observes the bus during
+     * these methods, so that runUntil keeps its speed.
+     *
+     * @return the debugger
+     */
+    public Debugger debugger() {
+        if (debugger == null)
+            debugger = new Debugger(cartridge::romBank);
+        return debugger;
+    }
+
+    /**
+     * Simulates the game boy until the given cycle - 1, or until a
+     * breakpoint or watchpoint is hit. A breakpoint at the current
+     * instruction is ignored, so that the emulation can resume after it.
+     *
+     * @param cycle the cycle at which the emulation stops
+     * @return the reason for which the emulation stopped
+     * @throws IllegalArgumentException if the given cycle is already passed
+     */
+    public Debugger.Stop runTo(long cycle) {
+        Preconditions.checkArgument(simulatedCycles <= cycle);
+
+        return debug(cycle, Long.MAX_VALUE, false, -1, 0);
+    }
+
+    /**
+     * Simulates the game boy until the end of the given frame, i.e. until
+     * the LCD controller has completed that number of frames, or until a
+     * breakpoint or watchpoint is hit. As the frames are not completed while
+     * the screen is off, the emulation stops anyway once it has simulated the
+     * cycles of the remaining frames and of one more.
+     *
+     * @param frame the number of frames at which the emulation stops
+     * @return the reason for which the emulation stopped
+     */
+    public Debugger.Stop runToFrame(long frame) {
+        long frames = Math.max(0, frame - lcdController.frameCount());
+        long cycle = frames < (Long.MAX_VALUE - simulatedCycles) / FRAME_CYCLES
+                ? simulatedCycles + (frames + 1) * FRAME_CYCLES
+                : Long.MAX_VALUE;
+        return debug(cycle, frame, false, -1, 0);
+    }
+
+    /**
+     * Simulates the game boy until the start of the next instruction, or
+     * until a watchpoint is hit.
+     *
+     * @return the reason for which the emulation stopped
+     */
+    public Debugger.Stop stepInstruction() {
+        return debug(Long.MAX_VALUE, Long.MAX_VALUE, true, -1, 0);
+    }
+
+    /**
+     * Simulates the game boy until the start of the next instruction, like
+     * stepInstruction, except that calls are run until their return, or
+     * until a breakpoint or watchpoint is hit.
+     *
+     * @return the reason for which the emulation stopped
+     */
+    public Debugger.Stop stepOver() {
+        debugger().takeWatchHit();
+        Opcode opcode = cpu.nextOpcode();
+        if (opcode == null || (opcode.family != Opcode.Family.CALL_N16
+                && opcode.family != Opcode.Family.CALL_CC_N16
+                && opcode.family != Opcode.Family.RST_U3))
+            return stepInstruction();
+
+        int pc = cpu.registerValue(Cpu.RegisterName.PC);
+        return debug(Long.MAX_VALUE, Long.MAX_VALUE, false,
+                Bits.clip(16, pc + opcode.totalBytes),
+                cpu.registerValue(Cpu.RegisterName.SP));
+    }
+
+    /**
+     * Simulates the game boy until one of the given conditions holds, a
+     * breakpoint or watchpoint is hit, or the CPU is stopped or halted for
+     * good. The return address, if positive, is reached when the CPU starts
+     * the instruction at that address with a stack pointer at least equal to
+     * the given one. The debugger observes the bus only during the
+     * simulation.
+     */
+    private Debugger.Stop debug(long cycle, long frame, boolean step,
+            int returnAddress, int returnSp) {
+        Debugger debugger = debugger();
+        debugger.takeWatchHit();
+        // Each instruction must be executed to be checked
+        inputHorizon = Long.MIN_VALUE;
+
+        bus.setDebugger(debugger);
+        try {
+            return debugAttached(debugger, cycle, frame, step, returnAddress,
+                    returnSp);
+        } finally {
+            bus.setDebugger(null);
+        }
+    }
+
+    private Debugger.Stop debugAttached(Debugger debugger, long cycle,
+            long frame, boolean step, int returnAddress, int returnSp) {
+        boolean first = true;
         while (simulatedCycles < cycle) {
+            if (lcdController.frameCount() >= frame)
+                return Debugger.Stop.FRAME;
+            if (cpu.isStopped())
+                return Debugger.Stop.STOPPED;
+            // Only the keys could wake the CPU up, but they are not pressed
+            // during a simulation
+            if (cpu.nextInstructionCycle() == Long.MAX_VALUE
+                    && nextInterruptCycle(cpu.read(REG_IE)) == Long.MAX_VALUE)
+                return Debugger.Stop.HALTED;
+            if (!first && cpu.startsInstruction(simulatedCycles)) {
+                if (step)
+                    return Debugger.Stop.INSTRUCTION;
+                if (cpu.registerValue(Cpu.RegisterName.PC) == returnAddress
+                        && cpu.registerValue(Cpu.RegisterName.SP) >= returnSp)
+                    return Debugger.Stop.INSTRUCTION;
+                if (debugger.breaksBefore(cpu))
+                    return Debugger.Stop.BREAKPOINT;
+            }
+            first = false;
+
             timer.cycle(simulatedCycles);
             lcdController.cycle(simulatedCycles);
             cpu.cycle(simulatedCycles);
             simulatedCycles++;
+
+            if (debugger.takeWatchHit())
+                return Debugger.Stop.WATCHPOINT;
         }
+        return Debugger.Stop.CYCLE;
     }
 
     /**
@@ -139,5 +432,62 @@ public class GameBoy {
     public Timer timer() {
         return timer;
     }
+
+    /**
+     * Returns the first cycle at which the LCD controller or the timer may
+     * request one of the given interruptions, the other ones being only
+     * requested between runs, by the joypad.
+     *
+     * @param interrupts the interruptions, as a mask of the bits of IE
+     * @return the cycle, Long.MAX_VALUE if none can be requested
+     */
+    private long nextInterruptCycle(int interrupts) {
+        long request = Long.MAX_VALUE;
+        if (Bits.test(interrupts, Cpu.Interrupt.VBLANK)
+                || Bits.test(interrupts, Cpu.Interrupt.LCD_STAT))
+            request = Math.min(request, lcdController.nextInterruptCycle());
+        if (Bits.test(interrupts, Cpu.Interrupt.TIMER))
+            request = Math.min(request,
+                    timer.nextInterruptCycle(simulatedCycles));
+        return request;
+    }
+
+    /**
+     * Horizon of the other components for the CPU, which never goes beyond
+     * the end of the current run, as the joypad can only be used between
+     * runs.
+     */
+    private final class CpuHorizon implements Cpu.Horizon {
+
+        @Override public long access(int address) {
+            if (bus.isObserved())
+                return Long.MIN_VALUE;
+
+            // Apart from the CPU, the LCD controller only reads the memories
+            // during a DMA copy, its next change being then immediate, and
+            // changes its registers and the OAM. IF changes with the
+            // interruptions, and the joypad is not used during a run. The
+            // cartridge RAM may be a clock
+            long lcdChange = lcdController.nextChangeCycle();
+            if (address < VIDEO_RAM_START
+                    || (WORK_RAM_START <= address && address < ECHO_RAM_END)
+                    || (HIGH_RAM_START <= address && address < HIGH_RAM_END)
+                    || address == REG_IE || address == REG_P1)
+                return lcdChange == Long.MIN_VALUE ? lcdChange : inputHorizon;
+            if (address == REG_LY)
+                return Math.min(inputHorizon, lcdController.nextLineCycle());
+            if (address < VIDEO_RAM_END
+                    || (OAM_START <= address && address < OAM_END)
+                    || (REGS_LCDC_START <= address && address < REGS_LCDC_END))
+                return Math.min(inputHorizon, lcdChange);
+            if (address == REG_IF)
+                return interruptRequest(ALL_INTERRUPTS);
+            return Long.MIN_VALUE;
+        }
+
+        @Override public long interruptRequest(int interrupts) {
+            return Math.min(inputHorizon, nextInterruptCycle(interrupts));
+        }
+    }
 }
 
@@ -0,0 +1,309 @@
+package ch.epfl.gameboj;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many game boys in one program, each advancing by a quota of cycles at
+ * every tick. The instances are stepped in frame slices by a small pool of
+ * worker threads, in a round-robin order, so that none of them can hold a
+ * worker for more than one frame while others wait
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class GameBoyHost implements AutoCloseable {
+
+    private final BlockingQueue<Instance> runQueue = new LinkedBlockingQueue<>();
+    private final List<Instance> instances = new CopyOnWriteArrayList<>();
+    private final Thread[] workers;
+    private final LongAdder frames = new LongAdder();
+    private volatile boolean running;
+    private long lastRateFrames;
+    private long lastRateNanos;
+
+    /**
+     * A game boy hosted by a {@link GameBoyHost}
+     */
+    public static final class Instance {
+        private final GameBoy gameBoy;
+        private final long cycleQuota;
+        private final AtomicLong targetCycles = new AtomicLong();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long cycles;
+        private volatile long frames;
+        private volatile boolean removed;
+        private volatile Throwable failure;
+
+        private Instance(GameBoy gameBoy, long cycleQuota) {
+            this.gameBoy = gameBoy;
+            this.cycleQuota = cycleQuota;
+            targetCycles.set(gameBoy.cycles());
+            cycles = gameBoy.cycles();
+            frames = 0;
+            removed = false;
+            failure = null;
+        }
+
+        /**
+         * Returns the game boy of the instance, which must only be used when
+         * the instance has no lag.
+         *
+         * @return the hosted game boy
+         */
+        public GameBoy gameBoy() {
+            return gameBoy;
+        }
+
+        /**
+         * Returns the number of cycles granted to the instance at each tick.
+         *
+         * @return the cycle quota
+         */
+        public long cycleQuota() {
+            return cycleQuota;
+        }
+
+        /**
+         * Returns the number of frame slices emulated by the instance.
+         *
+         * @return the number of frames
+         */
+        public long frames() {
+            return frames;
+        }
+
+        /**
+         * Returns the number of granted cycles which are not emulated yet, or
+         * 0 if the instance was removed.
+         *
+         * @return the lag of the instance in cycles
+         */
+        public long lagCycles() {
+            if (removed)
+                return 0;
+            return Math.max(0, targetCycles.get() - cycles);
+        }
+
+        /**
+         * Returns the exception or error which stopped the emulation of the
+         * instance, whose game boy is then removed and closed.
+         *
+         * @return the failure of the instance, or null if it did not fail
+         */
+        public Throwable failure() {
+            return failure;
+        }
+
+        /**
+         * Returns the lag of the instance in frames.
+         *
+         * @return the lag of the instance in frames
+         */
+        public double lagFrames() {
+            return lagCycles() / (double) GameBoy.FRAME_CYCLES;
+        }
+
+        private boolean grant() {
+            if (removed)
+                return false;
+            targetCycles.addAndGet(cycleQuota);
+            return scheduled.compareAndSet(false, true);
+        }
+
+        /**
+         * Emulates the next frame slice, counting it in the given total, and
+         * returns true if the instance must be scheduled again.
+         */
+        private boolean runSlice(LongAdder totalFrames) {
+            long target = targetCycles.get();
+            long end = Math.min(gameBoy.cycles() + GameBoy.FRAME_CYCLES, target);
+            if (!removed && end > gameBoy.cycles()) {
+                gameBoy.runUntil(end);
+                totalFrames.increment();
+                frames += 1;
+                cycles = end;
+            }
+
+            if (!removed && cycles < targetCycles.get())
+                return true;
+
+            scheduled.set(false);
+            // A tick may have granted cycles since the last check
+            return !removed && cycles < targetCycles.get()
+                    && scheduled.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Constructs a host which emulates its instances on the given number of
+     * worker threads.
+     *
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if the number of threads is not
+     *                                  strictly positive
+     */
+    public GameBoyHost(int threads) {
+        Preconditions.checkArgument(threads > 0);
+
+        running = true;
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; ++i) {
+            workers[i] = new Thread(this::work, "gameboj-host-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        lastRateFrames = 0;
+        lastRateNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the given game boy to the host, which must not be used by another
+     * thread from now on, except when its instance has no lag.
+     *
+     * @param gameBoy    the game boy to host
+     * @param cycleQuota number of cycles granted to the game boy at each tick
+     * @return the instance of the game boy
+     * @throws IllegalArgumentException if the quota is not strictly positive
+     */
+    public Instance add(GameBoy gameBoy, long cycleQuota) {
+        Objects.requireNonNull(gameBoy);
+        Preconditions.checkArgument(cycleQuota > 0);
+
+        Instance instance = new Instance(gameBoy, cycleQuota);
+        instances.add(instance);
+        return instance;
+    }
+
+    /**
+     * Adds the given game boy to the host, granting it one frame per tick.
+     *
+     * @param gameBoy the game boy to host
+     * @return the instance of the game boy
+     */
+    public Instance add(GameBoy gameBoy) {
+        return add(gameBoy, GameBoy.FRAME_CYCLES);
+    }
+
+    /**
+     * Removes the given instance from the host, which stops emulating it
+     * after its current frame slice.
+     *
+     * @param instance the instance to remove
+     */
+    public void remove(Instance instance) {
+        instance.removed = true;
+        instances.remove(instance);
+    }
+
+    /**
+     * Returns the number of hosted instances.
+     *
+     * @return the number of instances
+     */
+    public int size() {
+        return instances.size();
+    }
+
+    /**
+     * Grants every instance its cycle quota, and schedules the ones which
+     * were idle.
+     */
+    public void tick() {
+        for (Instance instance : instances) {
+            if (instance.grant())
+                runQueue.add(instance);
+        }
+    }
+
+    /**
+     * Returns the total number of frame slices emulated by the host.
+     *
+     * @return the number of frames
+     */
+    public long frames() {
+        return frames.sum();
+    }
+
+    /**
+     * Returns the number of frame slices emulated per second by all the
+     * instances, since the previous call to this method (or the creation of
+     * the host).
+     *
+     * @return the aggregate frame rate
+     */
+    public synchronized double framesPerSecond() {
+        long now = System.nanoTime();
+        long total = frames.sum();
+        double rate = (total - lastRateFrames) * 1e9
+                / Math.max(1, now - lastRateNanos);
+
+        lastRateFrames = total;
+        lastRateNanos = now;
+        return rate;
+    }
+
+    /**
+     * Returns the largest lag of the instances, in frames.
+     *
+     * @return the maximal lag
+     */
+    public double maxLagFrames() {
+        double max = 0;
+        for (Instance instance : instances)
+            max = Math.max(max, instance.lagFrames());
+        return max;
+    }
+
+    /**
+     * Stops the worker threads and waits for their end, then closes the game
+     * boys of the remaining instances. If the current thread is interrupted
+     * meanwhile, it still waits, then restores its interrupt flag.
+     */
+    @Override public void close() {
+        running = false;
+        for (Thread worker : workers)
+            worker.interrupt();
+
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        for (Instance instance : instances)
+            instance.gameBoy.close();
+    }
+
+    private void work() {
+        try {
+            while (running) {
+                Instance instance = runQueue.take();
+                try {
+                    if (instance.runSlice(frames))
+                        runQueue.add(instance);
+                } catch (Throwable t) {
+                    // The host does not close the removed instances
+                    remove(instance);
+                    instance.gameBoy.close();
+                    instance.failure = t;
+                }
+            }
+        } catch (InterruptedException e) {
+            // The host is closed
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ch.epfl.gameboj;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of positive values, with buckets whose width grows with the
+ * values so that each value is known with a relative precision of about 3%,
+ * like the high dynamic range histograms. It can be filled by one thread
+ * while others read it
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class Histogram {
+
+    // Number of bits kept below the most significant one
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1)
+            * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, negative ones being counted as 0
+     */
+    public void record(long value) {
+        counts.incrementAndGet(index(Math.max(0, value)));
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the number of values
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; ++i)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Returns the given percentile of the values recorded, rounded up to the
+     * largest value of its bucket.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the value at the percentile, or 0 if no value is recorded
+     * @throws IllegalArgumentException if the percentile is invalid
+     */
+    public long percentile(double percentile) {
+        Preconditions.checkArgument(0 <= percentile && percentile <= 100);
+
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return highestValue(i);
+        }
+        return highestValue(BUCKETS - 1);
+    }
+
+    /**
+     * Removes all the values recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i)
+            counts.set(i, 0);
+    }
+
+    private static int index(long value) {
+        int shift = Math.max(0, Long.SIZE - 1
+                - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    private static long highestValue(int index) {
+        int shift = Math.max(0, (index >>> SUB_BUCKET_BITS) - 1);
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        long highest = ((mantissa + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
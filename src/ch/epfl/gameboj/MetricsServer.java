@@ -0,0 +1,83 @@
+package ch.epfl.gameboj;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP server giving a snapshot of emulation metrics in the text
+ * format of Prometheus at /metrics, on the loopback interface
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    public static final String PATH = "/metrics";
+
+    private static final int OK = 200, NOT_ALLOWED = 405;
+
+    private final HttpServer server;
+    private final EmulationMetrics metrics;
+
+    /**
+     * Starts a server giving the given metrics.
+     *
+     * @param port    the port of the server, or 0 for any free port
+     * @param metrics the metrics given by the server
+     * @throws IOException              if the server cannot be started
+     * @throws IllegalArgumentException if the port is invalid
+     */
+    public MetricsServer(int port, EmulationMetrics metrics)
+            throws IOException {
+        Preconditions.checkArgument(0 <= port && port <= 0xFFFF);
+
+        this.metrics = Objects.requireNonNull(metrics);
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the port on which the server listens.
+     *
+     * @return the port of the server
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server.
+     */
+    @Override public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(NOT_ALLOWED, -1);
+                return;
+            }
+
+            byte[] body = metrics.snapshot().toText()
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ch.epfl.gameboj;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a call to {@link GameBoy#runUntil(long)}
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+@Name("ch.epfl.gameboj.RunSlice")
+@Label("Run Slice")
+@Category("Gameboj")
+@Description("Emulation of a number of cycles by runUntil")
+final class RunSliceEvent extends jdk.jfr.Event {
+
+    @Label("Start Cycle")
+    long startCycle;
+
+    @Label("Cycles")
+    long cycles;
+
+    @Label("Cycles per Nanosecond")
+    @Description("Cycles emulated per nanosecond of wall-clock time")
+    double cyclesPerNanosecond;
+}
@@ -74,6 +74,7 @@ public class Joypad implements Component {
             row1 = Bits.set(row1, index - ROW0_INDEX, true);
         }
         regP1 |= row0 | row1;
+        cpu.resume();
     }
 
     /**
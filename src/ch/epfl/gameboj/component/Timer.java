@@ -22,6 +22,9 @@ public final class Timer implements Component, Clocked {
     private int TMA;
     private int TAC;
     private static final int MAX_8_BITS = 0xFF;
+    // Bit of the main counter whose falling edges increment TIMA, for each
+    // value of the 2 LSB of TAC
+    private static final int[] TIMA_BITS = { 9, 3, 5, 7 };
 
     /**
      * Constructs a timer for a game boy, associated to the given cpu.
@@ -44,6 +47,39 @@ public final class Timer implements Component, Clocked {
         incIfChange(s0);
     }
 
+    /**
+     * Simulates the given number of cycles at once, as if cycle had been
+     * called for each of them. The interruptions requested during these
+     * cycles are only requested at the end.
+     *
+     * @param cycles the number of cycles
+     * @throws IllegalArgumentException if the number of cycles is negative
+     */
+    public void advance(long cycles) {
+        Preconditions.checkArgument(cycles >= 0);
+
+        // TIMA is incremented each time the main counter, incremented by 4 at
+        // each cycle, reaches a multiple of the period of its bit
+        long increments = 0;
+        if (Bits.test(TAC, 2)) {
+            int period = 1 << (TIMA_BITS[Bits.clip(2, TAC)] + 1);
+            increments = (mainCounter + 4 * cycles) / period
+                    - mainCounter / period;
+        }
+        mainCounter = Bits.clip(16, (int) (mainCounter + 4 * cycles));
+
+        while (increments > 0) {
+            int untilOverflow = MAX_8_BITS + 1 - TIMA;
+            if (increments < untilOverflow) {
+                TIMA += (int) increments;
+                break;
+            }
+            increments -= untilOverflow;
+            cpu.requestInterrupt(Cpu.Interrupt.TIMER);
+            TIMA = TMA;
+        }
+    }
+
     @Override public int read(int address) {
         Preconditions.checkBits16(address);
 
@@ -85,6 +121,24 @@ public final class Timer implements Component, Clocked {
         }
     }
 
+    /**
+     * Returns the first cycle at which the timer may request an
+     * interruption, if its registers are not written until then.
+     *
+     * @param cycle the last cycle simulated by the timer
+     * @return the cycle of the next interruption, or Long.MAX_VALUE if the
+     * timer is stopped
+     */
+    public long nextInterruptCycle(long cycle) {
+        if (!Bits.test(TAC, 2))
+            return Long.MAX_VALUE;
+
+        // The main counter is incremented by 4 at each cycle
+        int period = 1 << (TIMA_BITS[Bits.clip(2, TAC)] + 1);
+        int firstIncrement = (period - (mainCounter & (period - 1))) / 4;
+        return cycle + firstIncrement + (long) (MAX_8_BITS - TIMA) * (period / 4);
+    }
+
     /**
      * Returns the timer's current state.
      *
@@ -92,11 +146,8 @@ public final class Timer implements Component, Clocked {
      */
     private boolean state() {
         boolean timerActivated = Bits.test(TAC, 2);
-        boolean[] states = { Bits.test(mainCounter, 9),
-                Bits.test(mainCounter, 3),
-                Bits.test(mainCounter, 5),
-                Bits.test(mainCounter, 7) };
-        return states[Bits.clip(2, TAC)] && timerActivated;
+        return Bits.test(mainCounter, TIMA_BITS[Bits.clip(2, TAC)])
+                && timerActivated;
     }
 
     /**
@@ -0,0 +1,91 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.Rom;
+
+/**
+ * Maps the current banks of a memory bank controller on a bus, so that they
+ * are read (and for the RAM written) directly by the bus. The banks are only
+ * mapped if the memories are made of whole banks, the other ones staying on
+ * the path of the controller
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class BankMapping {
+
+    static final int ROM_BANK_SIZE = 0x4000;
+    static final int RAM_BANK_SIZE = 0x2000;
+
+    private static final int ROM_BANK_0_START = 0x0000;
+    private static final int ROM_BANK_1_START = 0x4000;
+    private static final int ROM_END = 0x8000;
+    private static final int RAM_START = 0xA000;
+    private static final int RAM_END = 0xC000;
+
+    private final Rom rom;
+    private final Ram ram;
+    private final boolean romMappable;
+    private final boolean ramMappable;
+    private Bus bus;
+
+    /**
+     * Constructs the mapping of the given memories, which is inactive until
+     * a bus is given.
+     *
+     * @param rom the ROM of the controller
+     * @param ram the RAM of the controller, or null if its banks must never
+     *            be mapped
+     */
+    BankMapping(Rom rom, Ram ram) {
+        this.rom = rom;
+        this.ram = ram;
+        romMappable = isWholeBanks(rom.size(), ROM_BANK_SIZE);
+        ramMappable = ram != null && isWholeBanks(ram.size(), RAM_BANK_SIZE);
+        bus = null;
+    }
+
+    /**
+     * Sets the bus on which the banks are mapped.
+     *
+     * @param bus the bus
+     */
+    void setBus(Bus bus) {
+        this.bus = bus;
+    }
+
+    /**
+     * Maps the given ROM banks.
+     *
+     * @param bank0Base   index in the ROM of the bank seen at 0x0000
+     * @param romBankBase index in the ROM of the bank seen at 0x4000
+     */
+    void mapRom(int bank0Base, int romBankBase) {
+        if (bus == null || !romMappable)
+            return;
+
+        rom.mapTo(bus, ROM_BANK_0_START, ROM_BANK_1_START, bank0Base);
+        rom.mapTo(bus, ROM_BANK_1_START, ROM_END, romBankBase);
+    }
+
+    /**
+     * Maps the given RAM bank, or unmaps the RAM area.
+     *
+     * @param mapped  true if the RAM bank must be mapped
+     * @param ramBase index in the RAM of the bank seen at 0xA000
+     */
+    void mapRam(boolean mapped, int ramBase) {
+        if (bus == null || !ramMappable)
+            return;
+
+        if (mapped)
+            ram.mapTo(bus, RAM_START, RAM_END, ramBase);
+        else
+            bus.unmap(RAM_START, RAM_END);
+    }
+
+    private static boolean isWholeBanks(int size, int bankSize) {
+        return size >= bankSize && Integer.bitCount(size) == 1;
+    }
+}
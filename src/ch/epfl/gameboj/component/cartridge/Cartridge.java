@@ -1,5 +1,6 @@
 package ch.epfl.gameboj.component.cartridge;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Ram;
@@ -8,6 +9,7 @@ import ch.epfl.gameboj.component.memory.Rom;
 import java.io.*;
 import java.nio.file.Files;
 import java.util.Objects;
+import java.util.function.LongSupplier;
 
 /**
  * Represents a game cartridge containing a rom of 32 768 bytes and a
@@ -18,11 +20,10 @@ import java.util.Objects;
 
 public final class Cartridge implements Component {
 
-    private final static int CARTRIDGE_TYPE = 0x147;
     private final static int RAM_SIZE = 0x149;
     private final Ram ram;
 
-    private final Component mbc;
+    private final MemoryBankController mbc;
 
     /**
      * Constructs a cartridge containing the given controller mbc0 and the rom
@@ -30,7 +31,7 @@ public final class Cartridge implements Component {
      *
      * @param mbc Component, the memory bank controller
      */
-    private Cartridge(Component mbc) {
+    private Cartridge(MemoryBankController mbc) {
         this.mbc = mbc;
         ram = new Ram(RAM_SIZE);
     }
@@ -42,26 +43,23 @@ public final class Cartridge implements Component {
      * @param romFile, the file that must be contained in the rom bytes
      * @return a cartridge with a rom corresponding to the given file<
      * @throws IOException              if romFile does not exist
+     * @throws IllegalArgumentException if the file is too short to contain a
+     *                                  header, or if its cartridge type or
+     *                                  RAM size is not supported
      */
     public static Cartridge ofFile(File romFile) throws IOException {
         Objects.requireNonNull(romFile);
 
         byte[] fileData = Files.readAllBytes(romFile.toPath());
-        int cartridgeType = fileData[CARTRIDGE_TYPE];
-        Preconditions.checkArgument(0 <= cartridgeType && cartridgeType < 4);
+        CartridgeHeader header = CartridgeHeader.of(fileData);
+        Preconditions.checkArgument(header.isSupported());
 
+        // The RAM size is ignored by the cartridges which only contain a ROM,
+        // whose header may contain any value
         Rom memory = new Rom(fileData);
-        Component controller;
+        MemoryBankController controller = MemoryBankControllers.create(
+                header.type(), memory, Math.max(0, header.ramSize()));
 
-        if (cartridgeType == 0)
-            controller = new MBC0(memory);
-
-        else {
-            int ramSize = fileData[RAM_SIZE];
-            int[] sizes = { 0, 2048, 8192, 32768 };
-            controller = new MBC1(memory, sizes[ramSize]);
-        }
-        
         return new Cartridge(controller);
     }
 
@@ -79,4 +77,43 @@ public final class Cartridge implements Component {
 
         mbc.write(address, data);
     }
+
+    /**
+     * Maps the addresses of the given bus which can be read directly in the
+     * memories of the cartridge.
+     *
+     * @param bus the bus
+     */
+    public void mapTo(Bus bus) {
+        mbc.mapTo(bus);
+    }
+
+    /**
+     * Gives the cartridge the number of cycles emulated so far, used by the
+     * real-time clock of some controllers.
+     *
+     * @param cycles the number of emulated cycles
+     */
+    public void attachClock(LongSupplier cycles) {
+        mbc.attachClock(Objects.requireNonNull(cycles));
+    }
+
+    /**
+     * Returns the ROM bank currently seen at the given address.
+     *
+     * @param address the address, below 0x8000
+     * @return the ROM bank seen at the address
+     */
+    public int romBank(int address) {
+        return mbc.romBank(address);
+    }
+
+    /**
+     * Returns the number of times the ROM banks seen by the processor changed.
+     *
+     * @return the number of ROM bank switches
+     */
+    public long bankSwitches() {
+        return mbc.bankSwitches();
+    }
 }
@@ -0,0 +1,234 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.Preconditions;
+
+import java.util.Objects;
+
+/**
+ * Header of a cartridge, stored from 0x100 to 0x14F in its ROM (immutable)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class CartridgeHeader {
+
+    public static final int HEADER_END = 0x150;
+
+    private static final int TITLE_START = 0x134, TITLE_END = 0x144;
+    private static final int CARTRIDGE_TYPE = 0x147;
+    private static final int ROM_SIZE = 0x148;
+    private static final int RAM_SIZE = 0x149;
+    private static final int HEADER_CHECKSUM = 0x14D;
+    private static final int GLOBAL_CHECKSUM = 0x14E;
+
+    private static final int[] RAM_SIZES = { 0, 2048, 8192, 32768, 131072,
+            65536 };
+
+    private final String title;
+    private final int type;
+    private final int romSizeCode;
+    private final int ramSizeCode;
+    private final int headerChecksum;
+    private final boolean headerChecksumValid;
+    private final int globalChecksum;
+    private final boolean globalChecksumValid;
+
+    /**
+     * Constructs a header with the given values.
+     *
+     * @param title               the title of the game
+     * @param type                the cartridge type (byte 0x147)
+     * @param romSizeCode         the code of the ROM size (byte 0x148)
+     * @param ramSizeCode         the code of the RAM size (byte 0x149)
+     * @param headerChecksum      the header checksum (byte 0x14D)
+     * @param headerChecksumValid true if the header checksum is correct
+     * @param globalChecksum      the global checksum (bytes 0x14E-0x14F)
+     * @param globalChecksumValid true if the global checksum is correct
+     */
+    CartridgeHeader(String title, int type, int romSizeCode, int ramSizeCode,
+            int headerChecksum, boolean headerChecksumValid,
+            int globalChecksum, boolean globalChecksumValid) {
+        this.title = Objects.requireNonNull(title);
+        this.type = Preconditions.checkBits8(type);
+        this.romSizeCode = Preconditions.checkBits8(romSizeCode);
+        this.ramSizeCode = Preconditions.checkBits8(ramSizeCode);
+        this.headerChecksum = Preconditions.checkBits8(headerChecksum);
+        this.headerChecksumValid = headerChecksumValid;
+        this.globalChecksum = Preconditions.checkBits16(globalChecksum);
+        this.globalChecksumValid = globalChecksumValid;
+    }
+
+    /**
+     * Reads the header of the given ROM, and verifies its checksums.
+     *
+     * @param rom the bytes of the ROM
+     * @return the header of the ROM
+     * @throws IllegalArgumentException if the ROM is too short to contain a
+     *                                  header
+     */
+    public static CartridgeHeader of(byte[] rom) {
+        Preconditions.checkArgument(rom.length >= HEADER_END);
+
+        StringBuilder title = new StringBuilder();
+        for (int i = TITLE_START; i < TITLE_END && rom[i] != 0; ++i) {
+            char c = (char) Byte.toUnsignedInt(rom[i]);
+            if (' ' <= c && c <= '~')
+                title.append(c);
+        }
+
+        int headerSum = 0;
+        for (int i = TITLE_START; i < HEADER_CHECKSUM; ++i)
+            headerSum = headerSum - Byte.toUnsignedInt(rom[i]) - 1;
+        int headerChecksum = Byte.toUnsignedInt(rom[HEADER_CHECKSUM]);
+
+        int globalSum = 0;
+        for (int i = 0; i < rom.length; ++i) {
+            if (i != GLOBAL_CHECKSUM && i != GLOBAL_CHECKSUM + 1)
+                globalSum += Byte.toUnsignedInt(rom[i]);
+        }
+        int globalChecksum = (Byte.toUnsignedInt(rom[GLOBAL_CHECKSUM]) << 8)
+                | Byte.toUnsignedInt(rom[GLOBAL_CHECKSUM + 1]);
+
+        return new CartridgeHeader(title.toString().trim(),
+                Byte.toUnsignedInt(rom[CARTRIDGE_TYPE]),
+                Byte.toUnsignedInt(rom[ROM_SIZE]),
+                Byte.toUnsignedInt(rom[RAM_SIZE]), headerChecksum,
+                (headerSum & 0xFF) == headerChecksum, globalChecksum,
+                (globalSum & 0xFFFF) == globalChecksum);
+    }
+
+    /**
+     * Returns the title of the game, made of printable ASCII characters.
+     *
+     * @return the title
+     */
+    public String title() {
+        return title;
+    }
+
+    /**
+     * Returns the cartridge type, which determines the memory bank
+     * controller.
+     *
+     * @return the cartridge type
+     */
+    public int type() {
+        return type;
+    }
+
+    /**
+     * Returns the code of the ROM size.
+     *
+     * @return the code of the ROM size
+     */
+    public int romSizeCode() {
+        return romSizeCode;
+    }
+
+    /**
+     * Returns the size of the ROM given by the header.
+     *
+     * @return the size of the ROM in bytes, or -1 if its code is unknown
+     */
+    public int romSize() {
+        if (romSizeCode <= 0x08)
+            return 0x8000 << romSizeCode;
+        switch (romSizeCode) {
+        case 0x52: return 72 * 0x4000;
+        case 0x53: return 80 * 0x4000;
+        case 0x54: return 96 * 0x4000;
+        default: return -1;
+        }
+    }
+
+    /**
+     * Returns the code of the RAM size.
+     *
+     * @return the code of the RAM size
+     */
+    public int ramSizeCode() {
+        return ramSizeCode;
+    }
+
+    /**
+     * Returns the size of the external RAM given by the header.
+     *
+     * @return the size of the RAM in bytes, or -1 if its code is unknown
+     */
+    public int ramSize() {
+        return ramSizeCode < RAM_SIZES.length ? RAM_SIZES[ramSizeCode] : -1;
+    }
+
+    /**
+     * Returns the header checksum stored in the header.
+     *
+     * @return the header checksum
+     */
+    public int headerChecksum() {
+        return headerChecksum;
+    }
+
+    /**
+     * Checks if the header checksum matches the bytes of the header.
+     *
+     * @return true if the header checksum is correct
+     */
+    public boolean isHeaderChecksumValid() {
+        return headerChecksumValid;
+    }
+
+    /**
+     * Returns the global checksum stored in the header.
+     *
+     * @return the global checksum
+     */
+    public int globalChecksum() {
+        return globalChecksum;
+    }
+
+    /**
+     * Checks if the global checksum matches the bytes of the ROM.
+     *
+     * @return true if the global checksum is correct
+     */
+    public boolean isGlobalChecksumValid() {
+        return globalChecksumValid;
+    }
+
+    /**
+     * Checks if the cartridge described by the header can be emulated: its
+     * type must be supported and, unless it only contains a ROM, its RAM size
+     * must be known.
+     *
+     * @return true if the cartridge is supported
+     */
+    public boolean isSupported() {
+        return MemoryBankControllers.isSupported(type)
+                && (type == 0 || ramSize() >= 0);
+    }
+
+    @Override public boolean equals(Object that) {
+        if (!(that instanceof CartridgeHeader))
+            return false;
+        CartridgeHeader h = (CartridgeHeader) that;
+        return title.equals(h.title) && type == h.type
+                && romSizeCode == h.romSizeCode
+                && ramSizeCode == h.ramSizeCode
+                && headerChecksum == h.headerChecksum
+                && headerChecksumValid == h.headerChecksumValid
+                && globalChecksum == h.globalChecksum
+                && globalChecksumValid == h.globalChecksumValid;
+    }
+
+    @Override public int hashCode() {
+        return Objects.hash(title, type, romSizeCode, ramSizeCode,
+                headerChecksum, headerChecksumValid, globalChecksum,
+                globalChecksumValid);
+    }
+
+    @Override public String toString() {
+        return String.format("%s (type %02X, ROM %d, RAM %d)", title, type,
+                romSize(), ramSize());
+    }
+}
@@ -0,0 +1,197 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Persistent index of the headers of ROM files, keyed by the SHA-256 hash of
+ * their content. A file whose size and modification time did not change
+ * since it was indexed is neither read nor hashed again
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class CartridgeIndex {
+
+    private static final String FORMAT = "gameboj-cartridge-index 1";
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * Size and modification time of an indexed file, with the hash of its
+     * content (immutable)
+     */
+    private static final class FileStamp {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private FileStamp(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private final Path indexFile;
+    private final Map<String, CartridgeHeader> headers = new HashMap<>();
+    private final Map<String, FileStamp> files = new HashMap<>();
+    private boolean modified;
+
+    private CartridgeIndex(Path indexFile) {
+        this.indexFile = indexFile;
+        modified = false;
+    }
+
+    /**
+     * Opens the index stored in the given file, which is empty if the file
+     * does not exist. The lines of the file which cannot be read are
+     * ignored.
+     *
+     * @param indexFile the file of the index
+     * @return the index
+     * @throws IOException if the file cannot be read
+     */
+    public static CartridgeIndex open(Path indexFile) throws IOException {
+        CartridgeIndex index = new CartridgeIndex(
+                Objects.requireNonNull(indexFile));
+
+        try (BufferedReader r = Files.newBufferedReader(indexFile,
+                StandardCharsets.UTF_8)) {
+            if (!FORMAT.equals(r.readLine()))
+                return index;
+
+            String line;
+            while ((line = r.readLine()) != null)
+                index.parseLine(line);
+        } catch (NoSuchFileException e) {
+            // An index which was never saved is empty
+        }
+        return index;
+    }
+
+    /**
+     * Returns the header of the given ROM file, read from the index if the
+     * file was already indexed and did not change, and indexed otherwise.
+     *
+     * @param romFile the ROM file
+     * @return the header of the ROM
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is too short to contain a
+     *                                  header
+     */
+    public CartridgeHeader header(Path romFile) throws IOException {
+        String key = romFile.toAbsolutePath().normalize().toString();
+        long size = Files.size(romFile);
+        long lastModified = Files.getLastModifiedTime(romFile).toMillis();
+
+        FileStamp stamp = files.get(key);
+        if (stamp != null && stamp.size == size
+                && stamp.lastModified == lastModified
+                && headers.containsKey(stamp.hash))
+            return headers.get(stamp.hash);
+
+        byte[] data = Files.readAllBytes(romFile);
+        String hash = hash(data);
+        CartridgeHeader header = headers.get(hash);
+        if (header == null) {
+            header = CartridgeHeader.of(data);
+            headers.put(hash, header);
+        }
+        files.put(key, new FileStamp(size, lastModified, hash));
+        modified = true;
+
+        return header;
+    }
+
+    /**
+     * Returns the headers of the index, keyed by the hash of the ROMs.
+     *
+     * @return an unmodifiable view of the headers
+     */
+    public Map<String, CartridgeHeader> headers() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Writes the index in its file if it was modified. The file is replaced
+     * atomically, so that an interrupted save does not corrupt it.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        if (!modified)
+            return;
+
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, "cartridge-index", ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(temp,
+                StandardCharsets.UTF_8)) {
+            w.write(FORMAT);
+            w.newLine();
+            for (Map.Entry<String, FileStamp> e : files.entrySet()) {
+                w.write(formatLine(e.getKey(), e.getValue()));
+                w.newLine();
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        modified = false;
+    }
+
+    private String formatLine(String file, FileStamp stamp) {
+        CartridgeHeader h = headers.get(stamp.hash);
+        return String.join(SEPARATOR, stamp.hash, Long.toString(stamp.size),
+                Long.toString(stamp.lastModified),
+                Integer.toString(h.type()),
+                Integer.toString(h.romSizeCode()),
+                Integer.toString(h.ramSizeCode()),
+                Integer.toString(h.headerChecksum()),
+                Boolean.toString(h.isHeaderChecksumValid()),
+                Integer.toString(h.globalChecksum()),
+                Boolean.toString(h.isGlobalChecksumValid()), h.title(), file);
+    }
+
+    private void parseLine(String line) {
+        String[] f = line.split(SEPARATOR, 12);
+        if (f.length != 12)
+            return;
+
+        try {
+            CartridgeHeader header = new CartridgeHeader(f[10],
+                    Integer.parseInt(f[3]), Integer.parseInt(f[4]),
+                    Integer.parseInt(f[5]), Integer.parseInt(f[6]),
+                    Boolean.parseBoolean(f[7]), Integer.parseInt(f[8]),
+                    Boolean.parseBoolean(f[9]));
+            headers.put(f[0], header);
+            files.put(f[11], new FileStamp(Long.parseLong(f[1]),
+                    Long.parseLong(f[2]), f[0]));
+        } catch (IllegalArgumentException e) {
+            // Damaged line, the file will be indexed again
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder b = new StringBuilder();
+            for (byte d : digest)
+                b.append(String.format("%02x", d));
+            return b.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package ch.epfl.gameboj.component.cartridge;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
-import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Rom;
 
 import java.util.Objects;
@@ -12,7 +12,7 @@ import java.util.Objects;
  * @author Lucie Hoffmann (286865)
  */
 
-public final class MBC0 implements Component {
+public final class MBC0 implements MemoryBankController {
 
     private static final int ROM_SIZE = 0x8000;
 
@@ -43,4 +43,9 @@ public final class MBC0 implements Component {
     @Override
     public void write(int address, int data) {
     }
+
+    @Override
+    public void mapTo(Bus bus) {
+        controlledRom.mapTo(bus, 0, ROM_SIZE, 0);
+    }
 }
@@ -3,12 +3,12 @@ package ch.epfl.gameboj.component.cartridge;
 import static ch.epfl.gameboj.Preconditions.checkBits16;
 import static ch.epfl.gameboj.Preconditions.checkBits8;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.bits.Bits;
-import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.memory.Ram;
 import ch.epfl.gameboj.component.memory.Rom;
 
-public final class MBC1 implements Component {
+public final class MBC1 implements MemoryBankController {
     private static final int RAM_ENABLE = 0xA;
 
     private enum Mode { MODE_0, MODE_1 };
@@ -21,6 +21,12 @@ public final class MBC1 implements Component {
     private int romLsb5, ramRom2;
     private final int romMask, ramMask;
 
+    // Indices in the ROM and RAM of the first byte of the current banks,
+    // updated when a bank-select register is written
+    private int bank0Base, romBankBase, ramBase;
+    private long bankSwitches;
+    private final BankMapping mapping;
+
     public MBC1(Rom rom, int ramSize) {
         this.rom = rom;
         this.ram = new Ram(ramSize);
@@ -32,16 +38,22 @@ public final class MBC1 implements Component {
 
         this.romMask = rom.size() - 1;
         this.ramMask = ramSize - 1;
+
+        this.mapping = new BankMapping(rom, ram);
+        updateBases();
+        this.bankSwitches = 0;
     }
 
     public int read(int address) {
         switch (Bits.extract(checkBits16(address), 13, 3)) {
         case 0: case 1:
-            return rom.read(romAddress(msb2(), 0, address));
+            return rom.read((bank0Base | Bits.clip(14, address)) & romMask);
         case 2: case 3:
-            return rom.read(romAddress(ramRom2, romLsb5, address));
+            return rom.read((romBankBase | Bits.clip(14, address)) & romMask);
         case 5:
-            return ramEnabled ? ram.read(ramAddress(address)) : 0xFF;
+            return ramEnabled && ram.size() != 0
+                    ? ram.read((ramBase | Bits.clip(13, address)) & ramMask)
+                    : 0xFF;
         default:
             return NO_DATA;
         }
@@ -53,23 +65,66 @@ public final class MBC1 implements Component {
         switch (Bits.extract(checkBits16(address), 13, 3)) {
         case 0:
             ramEnabled = Bits.clip(4, data) == RAM_ENABLE;
+            mapping.mapRam(ramEnabled, ramBase);
             break;
         case 1:
             romLsb5 = Math.max(1, Bits.clip(5, data));
+            updateBases();
             break;
         case 2:
             ramRom2 = Bits.clip(2, data);
+            updateBases();
             break;
         case 3:
             mode = Bits.test(data, 0) ? Mode.MODE_1 : Mode.MODE_0;
+            updateBases();
             break;
         case 5:
-            if (ramEnabled)
-                ram.write(ramAddress(address), data);
+            if (ramEnabled && ram.size() != 0)
+                ram.write((ramBase | Bits.clip(13, address)) & ramMask, data);
             break;
         }
     }
 
+    /**
+     * Maps the current ROM banks, and the current RAM bank while the RAM is
+     * enabled, on the given bus. They are mapped again whenever a bank is
+     * switched.
+     *
+     * @param bus the bus
+     */
+    @Override
+    public void mapTo(Bus bus) {
+        mapping.setBus(bus);
+        mapping.mapRom(bank0Base, romBankBase);
+        mapping.mapRam(ramEnabled, ramBase);
+    }
+
+    @Override
+    public int romBank(int address) {
+        int base = address < BankMapping.ROM_BANK_SIZE ? bank0Base
+                : romBankBase;
+        return (base & romMask) / BankMapping.ROM_BANK_SIZE;
+    }
+
+    @Override
+    public long bankSwitches() {
+        return bankSwitches;
+    }
+
+    private void updateBases() {
+        int newBank0Base = romAddress(msb2(), 0, 0);
+        int newRomBankBase = romAddress(ramRom2, romLsb5, 0);
+        if (newBank0Base != bank0Base || newRomBankBase != romBankBase)
+            bankSwitches += 1;
+        bank0Base = newBank0Base;
+        romBankBase = newRomBankBase;
+        ramBase = ramAddress(0);
+
+        mapping.mapRom(bank0Base, romBankBase);
+        mapping.mapRam(ramEnabled, ramBase);
+    }
+
     private int msb2() {
         switch (mode) {
         case MODE_0: return 0;
@@ -0,0 +1,106 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.gameboj.Preconditions.checkBits16;
+import static ch.epfl.gameboj.Preconditions.checkBits8;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.Rom;
+
+import java.util.Objects;
+
+/**
+ * Represents a memory bank controller of type 2 (up to 16 ROM banks and 512
+ * half-bytes of built-in RAM)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class MBC2 implements MemoryBankController {
+    private static final int RAM_ENABLE = 0xA;
+    private static final int RAM_SIZE = 512;
+    private static final int ROM_BANK_SELECT_BIT = 8;
+
+    private final Rom rom;
+    private final Ram ram;
+    private final int romMask;
+    private final BankMapping mapping;
+
+    private boolean ramEnabled;
+    private int romBankBase;
+    private long bankSwitches;
+
+    /**
+     * Constructs a MBC of type 2 for the given rom.
+     *
+     * @param rom Rom for which we build a controller
+     */
+    public MBC2(Rom rom) {
+        this.rom = Objects.requireNonNull(rom);
+        this.ram = new Ram(RAM_SIZE);
+        this.romMask = rom.size() - 1;
+        // The RAM stores half-bytes, and cannot be mapped directly
+        this.mapping = new BankMapping(rom, null);
+
+        this.ramEnabled = false;
+        this.romBankBase = BankMapping.ROM_BANK_SIZE & romMask;
+    }
+
+    @Override
+    public int read(int address) {
+        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        case 0: case 1:
+            return rom.read(Bits.clip(14, address) & romMask);
+        case 2: case 3:
+            return rom.read((romBankBase | Bits.clip(14, address)) & romMask);
+        case 5:
+            return ramEnabled ? 0xF0 | ram.read(Bits.clip(9, address)) : 0xFF;
+        default:
+            return NO_DATA;
+        }
+    }
+
+    @Override
+    public void write(int address, int data) {
+        checkBits8(data);
+        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        case 0: case 1:
+            if (Bits.test(address, ROM_BANK_SELECT_BIT)) {
+                int bank = Math.max(1, Bits.clip(4, data));
+                setRomBankBase((bank * BankMapping.ROM_BANK_SIZE) & romMask);
+            } else
+                ramEnabled = Bits.clip(4, data) == RAM_ENABLE;
+            break;
+        case 5:
+            if (ramEnabled)
+                ram.write(Bits.clip(9, address), Bits.clip(4, data));
+            break;
+        }
+    }
+
+    @Override
+    public void mapTo(Bus bus) {
+        mapping.setBus(bus);
+        mapping.mapRom(0, romBankBase);
+    }
+
+    @Override
+    public int romBank(int address) {
+        return address < BankMapping.ROM_BANK_SIZE ? 0
+                : romBankBase / BankMapping.ROM_BANK_SIZE;
+    }
+
+    @Override
+    public long bankSwitches() {
+        return bankSwitches;
+    }
+
+    private void setRomBankBase(int base) {
+        if (base != romBankBase)
+            bankSwitches += 1;
+        romBankBase = base;
+        mapping.mapRom(0, romBankBase);
+    }
+}
@@ -0,0 +1,145 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.gameboj.Preconditions.checkBits16;
+import static ch.epfl.gameboj.Preconditions.checkBits8;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.Rom;
+
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Represents a memory bank controller of type 3 (up to 128 ROM banks, 4 RAM
+ * banks and a real-time clock)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class MBC3 implements MemoryBankController {
+    private static final int RAM_ENABLE = 0xA;
+    private static final int RAM_BANKS = 4;
+
+    private final Rom rom;
+    private final Ram ram;
+    private final int romMask, ramMask;
+    private final RealTimeClock clock = new RealTimeClock();
+    private final BankMapping mapping;
+
+    private boolean ramEnabled;
+    // RAM bank (0 to 3) or clock register (0x08 to 0x0C) seen at 0xA000
+    private int selected;
+    private int romBankBase, ramBase;
+    private long bankSwitches;
+
+    /**
+     * Constructs a MBC of type 3 for the given rom and ram size.
+     *
+     * @param rom     Rom for which we build a controller
+     * @param ramSize size of the ram of the controller
+     */
+    public MBC3(Rom rom, int ramSize) {
+        this.rom = Objects.requireNonNull(rom);
+        this.ram = new Ram(ramSize);
+        this.romMask = rom.size() - 1;
+        this.ramMask = ramSize - 1;
+        this.mapping = new BankMapping(rom, ram);
+
+        this.ramEnabled = false;
+        this.selected = 0;
+        this.romBankBase = BankMapping.ROM_BANK_SIZE & romMask;
+        this.ramBase = 0;
+    }
+
+    @Override
+    public int read(int address) {
+        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        case 0: case 1:
+            return rom.read(Bits.clip(14, address) & romMask);
+        case 2: case 3:
+            return rom.read((romBankBase | Bits.clip(14, address)) & romMask);
+        case 5:
+            if (!ramEnabled)
+                return 0xFF;
+            if (selected >= RealTimeClock.SECONDS)
+                return clock.read(selected);
+            return ram.size() == 0 ? 0xFF
+                    : ram.read((ramBase | Bits.clip(13, address)) & ramMask);
+        default:
+            return NO_DATA;
+        }
+    }
+
+    @Override
+    public void write(int address, int data) {
+        checkBits8(data);
+        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        case 0:
+            ramEnabled = Bits.clip(4, data) == RAM_ENABLE;
+            mapRam();
+            break;
+        case 1:
+            int bank = Math.max(1, Bits.clip(7, data));
+            setRomBankBase((bank * BankMapping.ROM_BANK_SIZE) & romMask);
+            break;
+        case 2:
+            if (data < RAM_BANKS) {
+                selected = data;
+                ramBase = (data * BankMapping.RAM_BANK_SIZE) & ramMask;
+            } else if (RealTimeClock.SECONDS <= data
+                    && data <= RealTimeClock.DAY_HIGH)
+                selected = data;
+            mapRam();
+            break;
+        case 3:
+            clock.writeLatch(data);
+            break;
+        case 5:
+            if (!ramEnabled)
+                break;
+            if (selected >= RealTimeClock.SECONDS)
+                clock.write(selected, data);
+            else if (ram.size() != 0)
+                ram.write((ramBase | Bits.clip(13, address)) & ramMask, data);
+            break;
+        }
+    }
+
+    @Override
+    public void mapTo(Bus bus) {
+        mapping.setBus(bus);
+        mapping.mapRom(0, romBankBase);
+        mapRam();
+    }
+
+    @Override
+    public int romBank(int address) {
+        return address < BankMapping.ROM_BANK_SIZE ? 0
+                : romBankBase / BankMapping.ROM_BANK_SIZE;
+    }
+
+    @Override
+    public long bankSwitches() {
+        return bankSwitches;
+    }
+
+    @Override
+    public void attachClock(LongSupplier cycles) {
+        clock.attach(cycles);
+    }
+
+    private void mapRam() {
+        mapping.mapRam(ramEnabled && selected < RealTimeClock.SECONDS,
+                ramBase);
+    }
+
+    private void setRomBankBase(int base) {
+        if (base != romBankBase)
+            bankSwitches += 1;
+        romBankBase = base;
+        mapping.mapRom(0, romBankBase);
+    }
+}
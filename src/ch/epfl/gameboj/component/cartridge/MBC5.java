@@ -0,0 +1,121 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.gameboj.Preconditions.checkBits16;
+import static ch.epfl.gameboj.Preconditions.checkBits8;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.bits.Bits;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.Rom;
+
+import java.util.Objects;
+
+/**
+ * Represents a memory bank controller of type 5 (up to 512 ROM banks, i.e.
+ * 8 MB, and 16 RAM banks)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class MBC5 implements MemoryBankController {
+    private static final int RAM_ENABLE = 0xA;
+
+    private final Rom rom;
+    private final Ram ram;
+    private final int romMask, ramMask;
+    private final BankMapping mapping;
+
+    private boolean ramEnabled;
+    private int romBank;
+    private int romBankBase, ramBase;
+    private long bankSwitches;
+
+    /**
+     * Constructs a MBC of type 5 for the given rom and ram size.
+     *
+     * @param rom     Rom for which we build a controller
+     * @param ramSize size of the ram of the controller
+     */
+    public MBC5(Rom rom, int ramSize) {
+        this.rom = Objects.requireNonNull(rom);
+        this.ram = new Ram(ramSize);
+        this.romMask = rom.size() - 1;
+        this.ramMask = ramSize - 1;
+        this.mapping = new BankMapping(rom, ram);
+
+        this.ramEnabled = false;
+        this.romBank = 1;
+        this.romBankBase = BankMapping.ROM_BANK_SIZE & romMask;
+        this.ramBase = 0;
+    }
+
+    @Override
+    public int read(int address) {
+        switch (Bits.extract(checkBits16(address), 13, 3)) {
+        case 0: case 1:
+            return rom.read(Bits.clip(14, address) & romMask);
+        case 2: case 3:
+            return rom.read((romBankBase | Bits.clip(14, address)) & romMask);
+        case 5:
+            return ramEnabled && ram.size() != 0
+                    ? ram.read((ramBase | Bits.clip(13, address)) & ramMask)
+                    : 0xFF;
+        default:
+            return NO_DATA;
+        }
+    }
+
+    @Override
+    public void write(int address, int data) {
+        checkBits8(data);
+        switch (Bits.extract(checkBits16(address), 12, 4)) {
+        case 0: case 1:
+            ramEnabled = Bits.clip(4, data) == RAM_ENABLE;
+            mapping.mapRam(ramEnabled, ramBase);
+            break;
+        case 2:
+            setRomBank((romBank & ~0xFF) | data);
+            break;
+        case 3:
+            setRomBank(Bits.clip(8, romBank) | (Bits.clip(1, data) << 8));
+            break;
+        case 4: case 5:
+            ramBase = (Bits.clip(4, data) * BankMapping.RAM_BANK_SIZE)
+                    & ramMask;
+            mapping.mapRam(ramEnabled, ramBase);
+            break;
+        case 0xA: case 0xB:
+            if (ramEnabled && ram.size() != 0)
+                ram.write((ramBase | Bits.clip(13, address)) & ramMask, data);
+            break;
+        }
+    }
+
+    @Override
+    public void mapTo(Bus bus) {
+        mapping.setBus(bus);
+        mapping.mapRom(0, romBankBase);
+        mapping.mapRam(ramEnabled, ramBase);
+    }
+
+    @Override
+    public int romBank(int address) {
+        return address < BankMapping.ROM_BANK_SIZE ? 0
+                : romBankBase / BankMapping.ROM_BANK_SIZE;
+    }
+
+    @Override
+    public long bankSwitches() {
+        return bankSwitches;
+    }
+
+    private void setRomBank(int bank) {
+        romBank = bank;
+        int newRomBankBase = (bank * BankMapping.ROM_BANK_SIZE) & romMask;
+        if (newRomBankBase != romBankBase)
+            bankSwitches += 1;
+        romBankBase = newRomBankBase;
+        mapping.mapRom(0, romBankBase);
+    }
+}
@@ -0,0 +1,73 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.Component;
+import ch.epfl.gameboj.component.memory.Rom;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Represents the memory bank controller of a cartridge
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public interface MemoryBankController extends Component {
+
+    /**
+     * Builds a memory bank controller for a ROM and a RAM size
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Builds a controller for the given ROM.
+         *
+         * @param rom     the ROM of the cartridge
+         * @param ramSize the size of the RAM of the cartridge, given by its
+         *                header
+         * @return the controller
+         */
+        MemoryBankController create(Rom rom, int ramSize);
+    }
+
+    /**
+     * Maps the addresses of the given bus which can be read directly in the
+     * memories of the controller. The writes to the ROM area must still go
+     * through the controller.
+     *
+     * @param bus the bus
+     */
+    void mapTo(Bus bus);
+
+    /**
+     * Gives the controller the number of cycles emulated so far, for the
+     * controllers containing a clock. Does nothing by default.
+     *
+     * @param cycles the number of emulated cycles
+     */
+    default void attachClock(LongSupplier cycles) {
+    }
+
+    /**
+     * Returns the ROM bank seen at the given address. By default, bank 0 is
+     * seen below 0x4000 and bank 1 above.
+     *
+     * @param address the address, below 0x8000
+     * @return the ROM bank seen at the address
+     */
+    default int romBank(int address) {
+        return address < BankMapping.ROM_BANK_SIZE ? 0 : 1;
+    }
+
+    /**
+     * Returns the number of times the ROM banks seen by the processor changed
+     * since the controller was built. Always 0 by default.
+     *
+     * @return the number of ROM bank switches
+     */
+    default long bankSwitches() {
+        return 0;
+    }
+}
@@ -0,0 +1,80 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.Preconditions;
+import ch.epfl.gameboj.component.memory.Rom;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the memory bank controllers, keyed by the cartridge type stored
+ * at 0x147 in the header of a ROM
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+
+public final class MemoryBankControllers {
+
+    private static final Map<Integer, MemoryBankController.Factory> factories =
+            new ConcurrentHashMap<>();
+
+    static {
+        register(0x00, (rom, ramSize) -> new MBC0(rom));
+        for (int type = 0x01; type <= 0x03; ++type)
+            register(type, MBC1::new);
+        for (int type = 0x05; type <= 0x06; ++type)
+            register(type, (rom, ramSize) -> new MBC2(rom));
+        for (int type = 0x0F; type <= 0x13; ++type)
+            register(type, MBC3::new);
+        for (int type = 0x19; type <= 0x1E; ++type)
+            register(type, MBC5::new);
+    }
+
+    private MemoryBankControllers() {
+    }
+
+    /**
+     * Registers the factory of the controllers of the given cartridge type,
+     * replacing the previous one.
+     *
+     * @param type    the cartridge type
+     * @param factory the factory of the controllers
+     * @throws IllegalArgumentException if the type is not an 8 bits value
+     */
+    public static void register(int type,
+            MemoryBankController.Factory factory) {
+        Preconditions.checkBits8(type);
+        Objects.requireNonNull(factory);
+
+        factories.put(type, factory);
+    }
+
+    /**
+     * Checks if a controller is registered for the given cartridge type.
+     *
+     * @param type the cartridge type
+     * @return true if the type is supported
+     */
+    public static boolean isSupported(int type) {
+        return factories.containsKey(type);
+    }
+
+    /**
+     * Builds the controller of the given cartridge type.
+     *
+     * @param type    the cartridge type
+     * @param rom     the ROM of the cartridge
+     * @param ramSize the size of the RAM of the cartridge
+     * @return the controller
+     * @throws IllegalArgumentException if the type is not supported
+     */
+    public static MemoryBankController create(int type, Rom rom,
+            int ramSize) {
+        MemoryBankController.Factory factory = factories.get(type);
+        Preconditions.checkArgument(factory != null);
+
+        return factory.create(rom, ramSize);
+    }
+}
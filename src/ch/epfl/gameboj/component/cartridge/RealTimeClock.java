@@ -0,0 +1,154 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.bits.Bits;
+
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Real-time clock of a MBC3 cartridge. Its time is derived from the number of
+ * emulated cycles, and not from the host's clock, so that an emulation is
+ * deterministic
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class RealTimeClock {
+
+    static final int SECONDS = 0x08, MINUTES = 0x09, HOURS = 0x0A,
+            DAY_LOW = 0x0B, DAY_HIGH = 0x0C;
+
+    private static final long CYCLES_PER_SECOND = GameBoy.CYCLES_PER_SECOND;
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final long DAYS = 512;
+    private static final int HALT_BIT = 6, CARRY_BIT = 7;
+
+    private final int[] latched = new int[DAY_HIGH - SECONDS + 1];
+    private LongSupplier cycles;
+    // Value of the clock in cycles, at the given reference cycle
+    private long counter;
+    private long reference;
+    private boolean halted;
+    private boolean dayCarry;
+    private int lastLatchWrite;
+
+    /**
+     * Constructs a clock, which stays at zero until it is attached to a
+     * source of cycles.
+     */
+    RealTimeClock() {
+        cycles = () -> 0;
+        counter = 0;
+        reference = 0;
+        halted = false;
+        dayCarry = false;
+        lastLatchWrite = 0xFF;
+    }
+
+    /**
+     * Sets the source of the number of emulated cycles, which must not
+     * decrease.
+     *
+     * @param cycles the source of cycles
+     */
+    void attach(LongSupplier cycles) {
+        this.cycles = Objects.requireNonNull(cycles);
+        reference = cycles.getAsLong();
+    }
+
+    /**
+     * Handles a write in the latch register: writing 0 then 1 copies the
+     * current time into the registers which can be read.
+     *
+     * @param data the value written
+     */
+    void writeLatch(int data) {
+        if (lastLatchWrite == 0 && data == 1)
+            latch();
+        lastLatchWrite = data;
+    }
+
+    /**
+     * Returns the latched value of the given register.
+     *
+     * @param register index of the register, from SECONDS to DAY_HIGH
+     * @return the latched value
+     */
+    int read(int register) {
+        return latched[register - SECONDS];
+    }
+
+    /**
+     * Writes the given register of the clock.
+     *
+     * @param register index of the register, from SECONDS to DAY_HIGH
+     * @param data     the value to write
+     */
+    void write(int register, int data) {
+        update();
+
+        long seconds = counter / CYCLES_PER_SECOND;
+        long subSecond = counter % CYCLES_PER_SECOND;
+        long s = seconds % 60;
+        long m = seconds / 60 % 60;
+        long h = seconds / (60 * 60) % 24;
+        long d = seconds / SECONDS_PER_DAY;
+
+        switch (register) {
+        case SECONDS:
+            s = Bits.clip(6, data);
+            subSecond = 0;
+            break;
+        case MINUTES:
+            m = Bits.clip(6, data);
+            break;
+        case HOURS:
+            h = Bits.clip(5, data);
+            break;
+        case DAY_LOW:
+            d = (d & ~0xFF) | data;
+            break;
+        case DAY_HIGH:
+            d = (d & 0xFF) | (Bits.clip(1, data) << 8);
+            halted = Bits.test(data, HALT_BIT);
+            dayCarry = Bits.test(data, CARRY_BIT);
+            break;
+        }
+
+        counter = (((d * 24 + h) * 60 + m) * 60 + s) * CYCLES_PER_SECOND
+                + subSecond;
+        latched[register - SECONDS] = data;
+    }
+
+    private void latch() {
+        update();
+
+        long seconds = counter / CYCLES_PER_SECOND;
+        long days = seconds / SECONDS_PER_DAY;
+        latched[SECONDS - SECONDS] = (int) (seconds % 60);
+        latched[MINUTES - SECONDS] = (int) (seconds / 60 % 60);
+        latched[HOURS - SECONDS] = (int) (seconds / (60 * 60) % 24);
+        latched[DAY_LOW - SECONDS] = Bits.clip(8, (int) days);
+        latched[DAY_HIGH - SECONDS] = (int) (days >> 8)
+                | (halted ? 1 << HALT_BIT : 0)
+                | (dayCarry ? 1 << CARRY_BIT : 0);
+    }
+
+    /**
+     * Advances the counter to the current cycle, unless the clock is halted,
+     * and wraps it around after the last day.
+     */
+    private void update() {
+        long now = cycles.getAsLong();
+        if (!halted)
+            counter += now - reference;
+        reference = now;
+
+        long period = DAYS * SECONDS_PER_DAY * CYCLES_PER_SECOND;
+        if (counter >= period) {
+            dayCarry = true;
+            counter %= period;
+        }
+    }
+}
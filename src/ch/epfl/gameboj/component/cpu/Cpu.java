@@ -5,9 +5,11 @@ import ch.epfl.gameboj.bits.Bit;
 import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Clocked;
 import ch.epfl.gameboj.component.Component;
-import ch.epfl.gameboj.component.memory.Ram;
 
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.Set;
 
 import static ch.epfl.gameboj.component.cpu.Alu.RotDir.LEFT;
 import static ch.epfl.gameboj.component.cpu.Alu.RotDir.RIGHT;
@@ -21,47 +23,183 @@ import static ch.epfl.gameboj.component.cpu.Alu.RotDir.RIGHT;
 public final class Cpu implements Component, Clocked {
 
     private final static int OPCODE_PREFIX = 0xCB;
+    private final static int ALL_INTERRUPTS =
+            (1 << Interrupt.values().length) - 1;
 
+    // Long.MAX_VALUE while the CPU is halted, WAKE_UP once an interruption
+    // is pending and the CPU must wake up at the next cycle it is given
     private long nextNonIdleCycle;
     private long cycle;
+    private static final long WAKE_UP = Long.MIN_VALUE;
+    // True after STOP, until a key is pressed
+    private boolean stopped;
 
     private int PC;
     private int SP;
     private int IE;
     private int IF;
+    // Interruptions both raised and enabled, updated with IE and IF
+    private int pendingInterrupts;
     private boolean IME;
 
     private Bus bus;
-    private Ram highRam = new Ram(AddressMap.HIGH_RAM_SIZE);
+    private final byte[] highRam = new byte[AddressMap.HIGH_RAM_SIZE];
+    // Memory mapped with mapWorkRam, accessed directly by the 16-bit reads
+    // and writes while the bus is not observed, null if there is none
+    private byte[] workRam;
+    private int workRamStart;
+    private int workRamEnd;
+    private int workRamIndex;
+
+    // Null while the statistics are disabled
+    private CpuStatistics statistics;
+    private long haltStartCycle;
+    // Null while the profiler is disabled
+    private PcProfiler profiler;
+    private AluMode aluMode;
+    private Interpreter interpreter;
+    // Null while the idle loops are executed and no instruction accessing
+    // memory or interruptible is fused
+    private Horizon horizon;
+
+    // Iteration of a loop being observed, which began at loopStartCycle at the
+    // address loopStart with the given registers, and which read the first
+    // loopReadCount addresses of loopReads, as long as loopClean is true. If
+    // it reads the same addresses as the previous iteration, it can be
+    // repeated without executing it until loopHorizon, the horizon of these
+    // addresses taken at its start
+    private static final int IDLE_LOOP_MAX_BYTES = 16;
+    private static final int IDLE_LOOP_MAX_CYCLES = 64;
+    private int loopStart;
+    private long loopStartCycle;
+    private long loopRegisters;
+    private int loopSp;
+    private boolean loopIme;
+    private boolean loopClean;
+    private int[] loopReads = new int[IDLE_LOOP_MAX_CYCLES];
+    private int loopReadCount;
+    private int[] previousLoopReads = new int[IDLE_LOOP_MAX_CYCLES];
+    private int previousLoopReadCount;
+    private long loopHorizon;
+
+    // Superinstructions recognised, in the order in which they are tried, and
+    // the one found at each address of the ROM (null if none is recognised),
+    // whose entries are (generation << 4) | (1 + ordinal), or 0 if none is
+    // found, and are only valid for the current generation
+    private static final int SUPERINSTRUCTION_AREA_END = 0x8000;
+    private static final int MAX_GENERATION = (1 << 27) - 1;
+    private Superinstruction[] superinstructions;
+    private int[] superinstructionCache;
+    private int generation;
 
     private static final Opcode[] DIRECT_OPCODE_TABLE = buildOpcodeTable(
             Opcode.Kind.DIRECT);
     private static final Opcode[] PREFIXED_OPCODE_TABLE = buildOpcodeTable(
             Opcode.Kind.PREFIXED);
+    // Opcodes and handlers indexed by the encoding, plus 256 if prefixed
+    private static final Opcode[] HANDLER_OPCODES = concat(
+            DIRECT_OPCODE_TABLE, PREFIXED_OPCODE_TABLE);
+    private static final Handler[] HANDLERS = buildHandlerTable();
+    // Fewer than 16, to be cached with 4 bits
+    private static final Superinstruction[] SUPERINSTRUCTIONS =
+            Superinstruction.values();
+
+    // Registers B, C, D, E, H, L and A, indexed by their code in the opcodes
+    private static final int B = 0, C = 1, D = 2, E = 3, H = 4, L = 5, A = 7;
+    private final int[] regs = new int[8];
+    // Pairs of registers, indexed by their code in the opcodes
+    private static final int BC = 0, DE = 1, HL = 2, AF = 3;
+
+    // Flags, which replace the content of register F: Z is set iff the 8 LSB
+    // of flagZ are 0, and H is only computed from the operands of the last
+    // operation which changed it (see flagH) when it is read
+    private static final int H_CLEAR = 0, H_SET = 1, H_ADD = 2, H_SUB = 3;
+    private int flagZ;
+    private boolean flagN;
+    private int flagHKind;
+    private int flagHL;
+    private int flagHR;
+    private boolean flagC;
 
-    private final RegisterFile<Reg> regFile;
+    /**
+     * Registers of the CPU which can be inspected, for debugging
+     */
+    public enum RegisterName {
+        PC, SP, A, F, B, C, D, E, H, L, AF, BC, DE, HL
+    }
 
     /**
-     * CPU 8 bits registers
+     * Interpreters executing the instructions
      */
-    private enum Reg implements Register {
-        A, F, B, C, D, E, H, L
+    public enum Interpreter {
+        /**
+         * a single switch on the family of each opcode
+         */
+        SWITCH,
+        /**
+         * a table of small handlers, one per opcode, specialised for its
+         * operands
+         */
+        HANDLERS
     }
 
     /**
-     * CPU 16 bits register (addresses)
+     * Instruction executed by the handler-table interpreter, specialised for
+     * one opcode
      */
-    private enum Reg16 implements Register {
-        AF(Cpu.Reg.A, Cpu.Reg.F), BC(Cpu.Reg.B, Cpu.Reg.C), DE(Cpu.Reg.D,
-                Cpu.Reg.E), HL(Cpu.Reg.H, Cpu.Reg.L);
+    @FunctionalInterface
+    private interface Handler {
+        /**
+         * Executes the instruction at PC on the given CPU, whose cycles are
+         * already counted, except the additional ones.
+         *
+         * @param cpu    the CPU
+         * @param nextPC address of the following instruction
+         * @return the address of the next instruction to execute
+         */
+        int execute(Cpu cpu, int nextPC);
+    }
 
-        private Reg reg1;
-        private Reg reg2;
+    /**
+     * Cycles until which the other components cannot access what the CPU
+     * reads or writes, nor request its interruptions, so that the CPU can skip
+     * or anticipate instructions
+     */
+    public interface Horizon {
+        /**
+         * Returns the first cycle at which another component than the CPU may
+         * read or change the value at the given address.
+         *
+         * @param address the address
+         * @return the cycle, which is not after the current one if the value
+         * may be accessed at any time
+         */
+        long access(int address);
+
+        /**
+         * Returns the first cycle at which one of the given interruptions may
+         * be requested.
+         *
+         * @param interrupts the interruptions, as a mask of the bits of IE
+         * @return the cycle
+         */
+        long interruptRequest(int interrupts);
+    }
 
-        Reg16(Reg reg1, Reg reg2) {
-            this.reg1 = reg1;
-            this.reg2 = reg2;
-        }
+    /**
+     * Ways of computing the results of the arithmetic and logical operations
+     */
+    public enum AluMode {
+        /**
+         * the results are computed, the flags of the additions and
+         * subtractions being only evaluated when they are read
+         */
+        COMPUTED,
+        /**
+         * the results and their flags are looked up in the tables of
+         * {@link TableAlu}
+         */
+        TABLES
     }
 
     /**
@@ -80,7 +218,9 @@ public final class Cpu implements Component, Clocked {
         IE = 0;
         IF = 0;
         IME = false;
-        regFile = new RegisterFile<>(Reg.values());
+        loadFlags(0);
+        aluMode = AluMode.COMPUTED;
+        interpreter = Interpreter.SWITCH;
     }
 
     /**
@@ -90,11 +230,256 @@ public final class Cpu implements Component, Clocked {
      * @param i, the interruption to raise
      */
     public void requestInterrupt(Interrupt i) {
-        IF = Bits.set(IF, i.index(), true);
+        IF |= 1 << i.ordinal();
+        interruptsChanged();
+    }
+
+    /**
+     * Updates the pending interruptions after a change of IE or IF, waking
+     * the CPU up if it is halted and one of them is pending.
+     */
+    private void interruptsChanged() {
+        pendingInterrupts = IE & IF & ALL_INTERRUPTS;
+        if (pendingInterrupts != 0 && nextNonIdleCycle == Long.MAX_VALUE
+                && !stopped)
+            nextNonIdleCycle = WAKE_UP;
+    }
+
+    /**
+     * Checks if the CPU is stopped (by the instruction STOP), in which case
+     * the LCD controller and the timer must stop too, until a key is pressed.
+     *
+     * @return true if the CPU is stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Makes the CPU leave the STOP mode, if it is in it, at the next cycle it
+     * is given. It must be called when a key is pressed.
+     */
+    public void resume() {
+        if (stopped) {
+            stopped = false;
+            nextNonIdleCycle = WAKE_UP;
+        }
+    }
+
+    /**
+     * Stops the CPU, like HALT but until a key is pressed, whatever the
+     * interruptions, and resets the divider of the timer (DIV). As on the
+     * hardware, STOP is followed by an operand, normally 0, which the caller
+     * skips, although the opcode table gives it a single byte.
+     *
+     * @param cycle the cycle at which the CPU stops
+     */
+    private void stop(long cycle) {
+        bus.write(AddressMap.REG_DIV, 0);
+        stopped = true;
+        haltStartCycle = cycle;
+        nextNonIdleCycle = Long.MAX_VALUE;
+    }
+
+    private boolean isHalted() {
+        return nextNonIdleCycle == Long.MAX_VALUE
+                || nextNonIdleCycle == WAKE_UP;
+    }
+
+    /**
+     * Attaches the given statistics to the CPU, which records its execution
+     * in them from now on, or disables the statistics if it is null.
+     *
+     * @param statistics the statistics to fill, or null
+     */
+    public void setStatistics(CpuStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics attached to the CPU.
+     *
+     * @return the statistics, or null if they are disabled
+     */
+    public CpuStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Attaches the given profiler to the CPU, which samples its execution
+     * from now on, or disables the profiling if it is null.
+     *
+     * @param profiler the profiler, or null
+     */
+    public void setProfiler(PcProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Returns the profiler attached to the CPU.
+     *
+     * @return the profiler, or null if the profiling is disabled
+     */
+    public PcProfiler profiler() {
+        return profiler;
+    }
+
+    /**
+     * Changes the way the CPU computes the results of its arithmetic and
+     * logical operations.
+     *
+     * @param mode the new mode
+     */
+    public void setAluMode(AluMode mode) {
+        aluMode = Objects.requireNonNull(mode);
+    }
+
+    /**
+     * Returns the way the CPU computes the results of its arithmetic and
+     * logical operations.
+     *
+     * @return the current mode
+     */
+    public AluMode aluMode() {
+        return aluMode;
+    }
+
+    /**
+     * Changes the interpreter executing the instructions.
+     *
+     * @param interpreter the new interpreter
+     */
+    public void setInterpreter(Interpreter interpreter) {
+        this.interpreter = Objects.requireNonNull(interpreter);
+    }
+
+    /**
+     * Returns the interpreter executing the instructions.
+     *
+     * @return the current interpreter
+     */
+    public Interpreter interpreter() {
+        return interpreter;
+    }
+
+    /**
+     * Gives the CPU the horizon of the other components, which lets it skip
+     * the iterations of its idle loops, i.e. of the short loops which only
+     * read memory, repeat with the same registers and are bound to keep doing
+     * so until the cycle given by the horizon. Their cycles pass, but their
+     * instructions are not executed, nor counted by the statistics or the
+     * profiler, which disable the skipping while they are attached. The
+     * horizon is also used to execute superinstructions (see
+     * setSuperinstructions). A null horizon disables the skipping.
+     *
+     * @param horizon the horizon, or null
+     */
+    public void setHorizon(Horizon horizon) {
+        this.horizon = horizon;
+        loopClean = false;
+    }
+
+    /**
+     * Returns the horizon of the other components.
+     *
+     * @return the current horizon, or null if the skipping is disabled
+     */
+    public Horizon horizon() {
+        return horizon;
+    }
+
+    /**
+     * Changes the superinstructions which the CPU executes with a single
+     * dispatch when it finds them in ROM. The instructions following the
+     * first one of a superinstruction are executed in advance, at the cycle
+     * of the first one, if that cannot be observed: they must not be
+     * interrupted nor access memory before the cycle given by the horizon.
+     * Otherwise, they are executed separately, at their own cycle. The
+     * superinstructions are disabled while the profiler is attached.
+     *
+     * @param superinstructions the superinstructions, empty to disable them
+     */
+    public void setSuperinstructions(Set<Superinstruction> superinstructions) {
+        if (superinstructions.isEmpty()) {
+            this.superinstructions = null;
+            superinstructionCache = null;
+        } else {
+            this.superinstructions = EnumSet.copyOf(superinstructions)
+                    .toArray(new Superinstruction[0]);
+            superinstructionCache = new int[SUPERINSTRUCTION_AREA_END];
+            generation = 1;
+        }
+    }
+
+    /**
+     * Returns the superinstructions which the CPU executes with a single
+     * dispatch.
+     *
+     * @return the superinstructions
+     */
+    public Set<Superinstruction> superinstructions() {
+        EnumSet<Superinstruction> set = EnumSet.noneOf(Superinstruction.class);
+        if (superinstructions != null)
+            set.addAll(Arrays.asList(superinstructions));
+        return set;
+    }
+
+    /**
+     * Returns the value of the given register.
+     *
+     * @param r the register
+     * @return the value of the register
+     */
+    public int registerValue(RegisterName r) {
+        switch (r) {
+        case PC: return PC;
+        case SP: return SP;
+        case AF: return reg16(AF);
+        case BC: return reg16(BC);
+        case DE: return reg16(DE);
+        case HL: return reg16(HL);
+        case F: return flags();
+        case A: return regs[A];
+        case B: return regs[B];
+        case C: return regs[C];
+        case D: return regs[D];
+        case E: return regs[E];
+        case H: return regs[H];
+        default: return regs[L];
+        }
     }
 
-    private int checkInterrupt() {
-        return Bits.clip(5, IE & IF);
+    /**
+     * Checks if the CPU starts an instruction (or the handling of an
+     * interruption) at the given cycle, which it has not reached yet.
+     *
+     * @param cycle the cycle
+     * @return true if the CPU starts an instruction at the cycle
+     */
+    public boolean startsInstruction(long cycle) {
+        return cycle == nextNonIdleCycle || nextNonIdleCycle == WAKE_UP;
+    }
+
+    /**
+     * Returns the cycle at which the CPU starts its next instruction (or the
+     * handling of an interruption), until which it does nothing.
+     *
+     * @return the cycle, Long.MIN_VALUE if the CPU is waking up, and
+     * Long.MAX_VALUE if it is halted or stopped
+     */
+    public long nextInstructionCycle() {
+        return nextNonIdleCycle;
+    }
+
+    /**
+     * Returns the opcode of the next instruction, at PC.
+     *
+     * @return the next opcode, or null if it is not valid
+     */
+    public Opcode nextOpcode() {
+        int indicator = read8(PC);
+        return indicator != OPCODE_PREFIX ? DIRECT_OPCODE_TABLE[indicator]
+                : PREFIXED_OPCODE_TABLE[read8(Bits.clip(16, PC + 1))];
     }
 
     private static Opcode[] buildOpcodeTable(Opcode.Kind k) {
@@ -107,14 +492,22 @@ public final class Cpu implements Component, Clocked {
         return opcodes;
     }
 
+    private static Opcode[] concat(Opcode[] direct, Opcode[] prefixed) {
+        Opcode[] opcodes = Arrays.copyOf(direct, direct.length + prefixed.length);
+        System.arraycopy(prefixed, 0, opcodes, direct.length, prefixed.length);
+        return opcodes;
+    }
+
     @Override public void cycle(long cycle) {
-        assert (cycle <= nextNonIdleCycle) :
+        assert (cycle <= nextNonIdleCycle || nextNonIdleCycle == WAKE_UP) :
                 "Current cycle is bigger than nextNonIdleCycle";
 
         this.cycle = cycle;
-        if (nextNonIdleCycle == Long.MAX_VALUE && checkInterrupt() != 0) {
+        if (nextNonIdleCycle == WAKE_UP) {
+            if (statistics != null)
+                statistics.recordHalt(cycle - haltStartCycle);
+            loopClean = false;
             nextNonIdleCycle = cycle;
-            reallyCycle();
         }
         if (cycle == nextNonIdleCycle)
             reallyCycle();
@@ -125,21 +518,111 @@ public final class Cpu implements Component, Clocked {
      * interruption is waiting, in which case it treats it.
      */
     private void reallyCycle() {
-        if (IME && checkInterrupt() != 0) {
+        if (profiler != null)
+            profiler.sample(cycle, PC);
+        if (IME && pendingInterrupts != 0) {
             IME = false;
-            int i = Integer
-                    .numberOfTrailingZeros(Integer.lowestOneBit(checkInterrupt()));
-            IF = Bits.set(IF, i, false);
+            loopClean = false;
+            int i = Integer.numberOfTrailingZeros(pendingInterrupts);
+            IF &= ~(1 << i);
+            interruptsChanged();
             push16(PC);
+            if (profiler != null)
+                profiler.enter(PC, SP);
+            interruptServiced(i);
             PC = AddressMap.INTERRUPTS[i];
             nextNonIdleCycle += 5;
+            if (statistics != null)
+                statistics.recordInterrupt(i);
         } else {
-            int indicator = read8(PC);
-            if (indicator != OPCODE_PREFIX) {
-                dispatch(DIRECT_OPCODE_TABLE[indicator]);
-            } else {
-                dispatch(PREFIXED_OPCODE_TABLE[read8AfterOpcode()]);
+            int pc = PC;
+            if (superinstructions == null || !executeSuperinstruction()) {
+                int indicator = read8(PC);
+                if (interpreter == Interpreter.HANDLERS) {
+                    execute(indicator != OPCODE_PREFIX ? indicator
+                            : 0x100 | read8AfterOpcode());
+                } else if (indicator != OPCODE_PREFIX) {
+                    dispatch(DIRECT_OPCODE_TABLE[indicator]);
+                } else {
+                    dispatch(PREFIXED_OPCODE_TABLE[read8AfterOpcode()]);
+                }
+            }
+            if (horizon != null && PC < pc
+                    && pc - PC <= IDLE_LOOP_MAX_BYTES)
+                jumpedBackward();
+        }
+    }
+
+    /**
+     * Begins the observation of an iteration of the loop starting at PC,
+     * after skipping the following iterations if the one just observed
+     * started there with the same registers, read the same addresses as the
+     * previous one, whose values do not change, and no interruption is or can
+     * be requested before their end: they would all be identical to it.
+     * The horizon is only asked for the addresses read by iterations which
+     * repeat the registers, so that other loops are not slowed down.
+     */
+    private void jumpedBackward() {
+        long registers = flags();
+        for (int r = B; r <= L; ++r)
+            registers = (registers << 8) | regs[r];
+        registers = (registers << 8) | regs[A];
+
+        long nextHorizon = Long.MIN_VALUE;
+        long length = nextNonIdleCycle - loopStartCycle;
+        if (PC == loopStart && loopClean && registers == loopRegisters
+                && SP == loopSp && IME == loopIme && pendingInterrupts == 0
+                && statistics == null && profiler == null
+                && length <= IDLE_LOOP_MAX_CYCLES) {
+            if (Arrays.equals(loopReads, 0, loopReadCount, previousLoopReads,
+                    0, previousLoopReadCount)) {
+                long end = Math.min(loopHorizon,
+                        horizon.interruptRequest(IE & ALL_INTERRUPTS));
+                if (end > nextNonIdleCycle)
+                    nextNonIdleCycle += (end - nextNonIdleCycle) / length
+                            * length;
             }
+            nextHorizon = loopReadsHorizon();
+        }
+
+        int[] reads = previousLoopReads;
+        previousLoopReads = loopReads;
+        previousLoopReadCount = loopReadCount;
+        loopReads = reads;
+        loopReadCount = 0;
+
+        loopStart = PC;
+        loopStartCycle = nextNonIdleCycle;
+        loopRegisters = registers;
+        loopSp = SP;
+        loopIme = IME;
+        loopClean = true;
+        loopHorizon = nextHorizon;
+    }
+
+    /**
+     * Returns the first cycle at which another component may change one of
+     * the values read by the iteration of the loop just observed.
+     */
+    private long loopReadsHorizon() {
+        long h = Long.MAX_VALUE;
+        for (int i = 0; i < loopReadCount; ++i)
+            h = Math.min(h, horizon.access(Bits.clip(16, loopReads[i])));
+        return h;
+    }
+
+    /**
+     * Emits the flight recorder event of the handling of the given
+     * interruption, if it is recorded. PC must still be the interrupted
+     * address.
+     */
+    private void interruptServiced(int index) {
+        InterruptEvent event = new InterruptEvent();
+        if (event.isEnabled()) {
+            event.interrupt = Interrupt.values()[index].name();
+            event.cycle = cycle;
+            event.pc = PC;
+            event.commit();
         }
     }
 
@@ -149,6 +632,7 @@ public final class Cpu implements Component, Clocked {
             System.out.println("opcode is null !");
 
         int nextPC = PC + opcode.totalBytes;
+        long startCycle = nextNonIdleCycle;
         nextNonIdleCycle += opcode.cycles;
 
         switch (opcode.family) {
@@ -156,39 +640,37 @@ public final class Cpu implements Component, Clocked {
         }
         break;
         case LD_R8_HLR: {
-            regFile.set(extractReg(opcode, 3), read8AtHl());
+            regs[extractReg(opcode, 3)] = read8AtHl();
         }
         break;
         case LD_A_HLRU: {
-            regFile.set(Reg.A, read8AtHl());
-            setReg16(Reg16.HL, Bits.clip(16,
-                    reg16(Reg16.HL) + extractHlIncrement(opcode)));
+            regs[A] = read8AtHl();
+            setReg16(HL, Bits.clip(16,
+                    reg16(HL) + extractHlIncrement(opcode)));
         }
         break;
         case LD_A_N8R: {
-            regFile.set(Reg.A,
-                    read8(AddressMap.REGS_START + read8AfterOpcode()));
+            regs[A] = read8(AddressMap.REGS_START + read8AfterOpcode());
         }
         break;
         case LD_A_CR: {
-            regFile.set(Reg.A,
-                    read8(AddressMap.REGS_START + regFile.get(Reg.C)));
+            regs[A] = read8(AddressMap.REGS_START + regs[C]);
         }
         break;
         case LD_A_N16R: {
-            regFile.set(Reg.A, read8(read16AfterOpcode()));
+            regs[A] = read8(read16AfterOpcode());
         }
         break;
         case LD_A_BCR: {
-            regFile.set(Reg.A, read8(reg16(Reg16.BC)));
+            regs[A] = read8(reg16(BC));
         }
         break;
         case LD_A_DER: {
-            regFile.set(Reg.A, read8(reg16(Reg16.DE)));
+            regs[A] = read8(reg16(DE));
         }
         break;
         case LD_R8_N8: {
-            regFile.set(extractReg(opcode, 3), read8AfterOpcode());
+            regs[extractReg(opcode, 3)] = read8AfterOpcode();
         }
         break;
         case LD_R16SP_N16: {
@@ -200,35 +682,34 @@ public final class Cpu implements Component, Clocked {
         }
         break;
         case LD_HLR_R8: {
-            write8AtHl(regFile.get(extractReg(opcode, 0)));
+            write8AtHl(regs[extractReg(opcode, 0)]);
         }
         break;
         case LD_HLRU_A: {
-            write8AtHl(regFile.get(Reg.A));
-            setReg16(Reg16.HL, Bits.clip(16,
-                    reg16(Reg16.HL) + extractHlIncrement(opcode)));
+            write8AtHl(regs[A]);
+            setReg16(HL, Bits.clip(16,
+                    reg16(HL) + extractHlIncrement(opcode)));
         }
         break;
         case LD_N8R_A: {
             write8(AddressMap.REGS_START + read8AfterOpcode(),
-                    regFile.get(Reg.A));
+                    regs[A]);
         }
         break;
         case LD_CR_A: {
-            write8(AddressMap.REGS_START + regFile.get(Reg.C),
-                    regFile.get(Reg.A));
+            write8(AddressMap.REGS_START + regs[C], regs[A]);
         }
         break;
         case LD_N16R_A: {
-            write8(read16AfterOpcode(), regFile.get(Reg.A));
+            write8(read16AfterOpcode(), regs[A]);
         }
         break;
         case LD_BCR_A: {
-            write8(reg16(Reg16.BC), regFile.get(Reg.A));
+            write8(reg16(BC), regs[A]);
         }
         break;
         case LD_DER_A: {
-            write8(reg16(Reg16.DE), regFile.get(Reg.A));
+            write8(reg16(DE), regs[A]);
         }
         break;
         case LD_HLR_N8: {
@@ -240,13 +721,12 @@ public final class Cpu implements Component, Clocked {
         }
         break;
         case LD_R8_R8: {
-            regFile.set(extractReg(opcode, 3),
-                    regFile.get(extractReg(opcode, 0)));
+            regs[extractReg(opcode, 3)] = regs[extractReg(opcode, 0)];
 
         }
         break;
         case LD_SP_HL: {
-            SP = reg16(Reg16.HL);
+            SP = reg16(HL);
         }
         break;
         case PUSH_R16: {
@@ -256,34 +736,25 @@ public final class Cpu implements Component, Clocked {
 
         // Add
         case ADD_A_R8: {
-            setRegFlags(Reg.A, Alu.add(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0)), testCarry(opcode)));
+            regs[A] = add8(regs[A],
+                    regs[extractReg(opcode, 0)], testCarry(opcode));
         }
         break;
         case ADD_A_N8: {
-            setRegFlags(Reg.A,
-                    Alu.add(regFile.get(Reg.A), read8AfterOpcode(), testCarry(opcode)));
+            regs[A] = add8(regs[A], read8AfterOpcode(), testCarry(opcode));
         }
         break;
         case ADD_A_HLR: {
-            boolean b0 = Bits.test(regFile.get(Reg.F), 4) && Bits
-                    .test(opcode.encoding, 3);
-            setRegFlags(Reg.A, Alu.add(regFile.get(Reg.A), read8AtHl(), testCarry(opcode)));
+            regs[A] = add8(regs[A], read8AtHl(), testCarry(opcode));
         }
         break;
         case INC_R8: {
-            Reg r = extractReg(opcode, 3);
-            int vf = Alu.add(regFile.get(r), 1);
-            setRegFromAlu(r, vf);
-            combineAluFlags(vf, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            int r = extractReg(opcode, 3);
+            regs[r] = inc8(regs[r]);
         }
         break;
         case INC_HLR: {
-            int vf = Alu.add(read8AtHl(), 1);
-            write8AtHl(Alu.unpackValue(vf));
-            combineAluFlags(vf, FlagSrc.ALU, FlagSrc.V0, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            write8AtHl(inc8(read8AtHl()));
         }
         break;
         case INC_R16SP: {
@@ -293,8 +764,8 @@ public final class Cpu implements Component, Clocked {
         break;
         case ADD_HL_R16SP: {
             int r = extractIntReg16SP(opcode);
-            int vf = Alu.add16H(reg16(Reg16.HL), r);
-            setReg16SP(Reg16.HL, Alu.unpackValue(vf));
+            int vf = Alu.add16H(reg16(HL), r);
+            setReg16SP(HL, Alu.unpackValue(vf));
             combineAluFlags(vf, FlagSrc.CPU, FlagSrc.V0, FlagSrc.ALU,
                     FlagSrc.ALU);
         }
@@ -302,8 +773,7 @@ public final class Cpu implements Component, Clocked {
         case LD_HLSP_S8: {
             int vf = Alu.add16L(SP,
                     Bits.clip(16, signedNextInstruction()));
-            Reg16 r = (Bits.test(opcode.encoding, 4)) ?
-                    Reg16.HL : Reg16.AF;
+            int r = (Bits.test(opcode.encoding, 4)) ? HL : AF;
             setReg16SP(r, Alu.unpackValue(vf));
             setFlags(vf);
         }
@@ -311,45 +781,37 @@ public final class Cpu implements Component, Clocked {
 
         // Subtract
         case SUB_A_R8: {
-            setRegFlags(Reg.A, Alu.sub(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0)), testCarry(opcode)));
+            regs[A] = sub8(regs[A],
+                    regs[extractReg(opcode, 0)], testCarry(opcode));
         }
         break;
         case SUB_A_N8: {
-            setRegFlags(Reg.A,
-                    Alu.sub(regFile.get(Reg.A), read8AfterOpcode(), testCarry(opcode)));
+            regs[A] = sub8(regs[A], read8AfterOpcode(), testCarry(opcode));
         }
         break;
         case SUB_A_HLR: {
-            setRegFlags(Reg.A, Alu.sub(regFile.get(Reg.A), read8AtHl(), testCarry(opcode)));
+            regs[A] = sub8(regs[A], read8AtHl(), testCarry(opcode));
         }
         break;
         case DEC_R8: {
-            Reg r = extractReg(opcode, 3);
-            int vf = Alu.sub(regFile.get(r), 1);
-            setRegFromAlu(r, vf);
-            combineAluFlags(vf, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU,
-                    FlagSrc.CPU);
+            int r = extractReg(opcode, 3);
+            regs[r] = dec8(regs[r]);
         }
         break;
         case DEC_HLR: {
-            int sub = Alu.sub(read8AtHl(), 1);
-            combineAluFlags(sub, FlagSrc.ALU, FlagSrc.V1, FlagSrc.ALU,
-                    FlagSrc.CPU);
-            write8AtHl(Alu.unpackValue(sub));
+            write8AtHl(dec8(read8AtHl()));
         }
         break;
         case CP_A_R8: {
-            setFlags(Alu.sub(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0))));
+            sub8(regs[A], regs[extractReg(opcode, 0)], false);
         }
         break;
         case CP_A_N8: {
-            setFlags(Alu.sub(regFile.get(Reg.A), read8AfterOpcode()));
+            sub8(regs[A], read8AfterOpcode(), false);
         }
         break;
         case CP_A_HLR: {
-            setFlags(Alu.sub(regFile.get(Reg.A), read8AtHl()));
+            sub8(regs[A], read8AtHl(), false);
         }
         break;
         case DEC_R16SP: {
@@ -360,46 +822,43 @@ public final class Cpu implements Component, Clocked {
 
         // And, or, xor, complement
         case AND_A_N8: {
-            setRegFlags(Reg.A, Alu.and(regFile.get(Reg.A), read8AfterOpcode()));
+            regs[A] = logic8(regs[A] & read8AfterOpcode(), H_SET);
         }
         break;
         case AND_A_R8: {
-            setRegFlags(Reg.A, Alu.and(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0))));
+            regs[A] = logic8(regs[A] & regs[extractReg(opcode, 0)], H_SET);
         }
         break;
         case AND_A_HLR: {
-            setRegFlags(Reg.A, Alu.and(regFile.get(Reg.A), read8AtHl()));
+            regs[A] = logic8(regs[A] & read8AtHl(), H_SET);
         }
         break;
         case OR_A_R8: {
-            setRegFlags(Reg.A, Alu.or(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0))));
+            regs[A] = logic8(regs[A] | regs[extractReg(opcode, 0)], H_CLEAR);
         }
         break;
         case OR_A_N8: {
-            setRegFlags(Reg.A, Alu.or(regFile.get(Reg.A), read8AfterOpcode()));
+            regs[A] = logic8(regs[A] | read8AfterOpcode(), H_CLEAR);
         }
         break;
         case OR_A_HLR: {
-            setRegFlags(Reg.A, Alu.or(regFile.get(Reg.A), read8AtHl()));
+            regs[A] = logic8(regs[A] | read8AtHl(), H_CLEAR);
         }
         break;
         case XOR_A_R8: {
-            setRegFlags(Reg.A, Alu.xor(regFile.get(Reg.A),
-                    regFile.get(extractReg(opcode, 0))));
+            regs[A] = logic8(regs[A] ^ regs[extractReg(opcode, 0)], H_CLEAR);
         }
         break;
         case XOR_A_N8: {
-            setRegFlags(Reg.A, Alu.xor(regFile.get(Reg.A), read8AfterOpcode()));
+            regs[A] = logic8(regs[A] ^ read8AfterOpcode(), H_CLEAR);
         }
         break;
         case XOR_A_HLR: {
-            setRegFlags(Reg.A, Alu.xor(regFile.get(Reg.A), read8AtHl()));
+            regs[A] = logic8(regs[A] ^ read8AtHl(), H_CLEAR);
         }
         break;
         case CPL: {
-            regFile.set(Reg.A, Bits.complement8(regFile.get(Reg.A)));
+            regs[A] = Bits.complement8(regs[A]);
             combineAluFlags(0, FlagSrc.CPU, FlagSrc.V1, FlagSrc.V1,
                     FlagSrc.CPU);
         }
@@ -407,84 +866,84 @@ public final class Cpu implements Component, Clocked {
 
         // Rotate, shift
         case ROTCA: {
-            int v = Alu.rotate(rotateDir(opcode), regFile.get(Reg.A));
-            setRegFromAlu(Reg.A, v);
+            int v = rotate(rotateDir(opcode), regs[A]);
+            setRegFromAlu(A, v);
             combineAluFlags(v, FlagSrc.V0, FlagSrc.V0, FlagSrc.V0, FlagSrc.ALU);
         }
         break;
         case ROTA: {
-            int rot = Alu.rotate(rotateDir(opcode), regFile.get(Reg.A),
+            int rot = rotate(rotateDir(opcode), regs[A],
                     testRotateCarry(opcode));
-            setRegFromAlu(Reg.A, rot);
+            setRegFromAlu(A, rot);
             combineAluFlags(rot, FlagSrc.V0, FlagSrc.V0, FlagSrc.V0,
                     FlagSrc.ALU);
         }
         break;
         case ROTC_R8: {
-            Reg reg = extractReg(opcode, 0);
-            setRegFlags(reg, Alu.rotate(rotateDir(opcode), regFile.get(reg)));
+            int reg = extractReg(opcode, 0);
+            setRegFlags(reg, rotate(rotateDir(opcode), regs[reg]));
         }
         break;
         case ROT_R8: {
-            Reg reg = extractReg(opcode, 0);
+            int reg = extractReg(opcode, 0);
             setRegFlags(reg,
-                    Alu.rotate(rotateDir(opcode), regFile.get(reg),
+                    rotate(rotateDir(opcode), regs[reg],
                             testRotateCarry(opcode)));
 
         }
         break;
         case ROTC_HLR: {
-            write8AtHlAndSetFlags(Alu.rotate(rotateDir(opcode), read8AtHl()));
+            write8AtHlAndSetFlags(rotate(rotateDir(opcode), read8AtHl()));
         }
         break;
         case ROT_HLR: {
             write8AtHlAndSetFlags(
-                    Alu.rotate(rotateDir(opcode), read8AtHl(),
+                    rotate(rotateDir(opcode), read8AtHl(),
                             testRotateCarry(opcode)));
 
         }
         break;
         case SWAP_R8: {
-            Reg reg = extractReg(opcode, 0);
-            setRegFlags(reg, Alu.swap(regFile.get(reg)));
+            int reg = extractReg(opcode, 0);
+            setRegFlags(reg, swap(regs[reg]));
         }
         break;
         case SWAP_HLR: {
-            write8AtHlAndSetFlags(Alu.swap(read8AtHl()));
+            write8AtHlAndSetFlags(swap(read8AtHl()));
         }
         break;
         case SLA_R8: {
             setRegFlags(extractReg(opcode, 0),
-                    Alu.shiftLeft(regFile.get(extractReg(opcode, 0))));
+                    shiftLeft(regs[extractReg(opcode, 0)]));
         }
         break;
         case SRA_R8: {
             setRegFlags(extractReg(opcode, 0),
-                    Alu.shiftRightA(regFile.get(extractReg(opcode, 0))));
+                    shiftRightA(regs[extractReg(opcode, 0)]));
         }
         break;
         case SRL_R8: {
             setRegFlags(extractReg(opcode, 0),
-                    Alu.shiftRightL(regFile.get(extractReg(opcode, 0))));
+                    shiftRightL(regs[extractReg(opcode, 0)]));
         }
         break;
         case SLA_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftLeft(read8AtHl()));
+            write8AtHlAndSetFlags(shiftLeft(read8AtHl()));
         }
         break;
         case SRA_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftRightA(read8AtHl()));
+            write8AtHlAndSetFlags(shiftRightA(read8AtHl()));
         }
         break;
         case SRL_HLR: {
-            write8AtHlAndSetFlags(Alu.shiftRightL(read8AtHl()));
+            write8AtHlAndSetFlags(shiftRightL(read8AtHl()));
         }
         break;
 
         // Bit test and set
         case BIT_U3_R8: {
             combineAluFlags(
-                    Alu.testBit(regFile.get(extractReg(opcode,0)),
+                    Alu.testBit(regs[extractReg(opcode,0)],
                     getIndex(opcode)), FlagSrc.ALU, FlagSrc.V0,
                     FlagSrc.V1, FlagSrc.CPU);
         }
@@ -495,15 +954,15 @@ public final class Cpu implements Component, Clocked {
         }
         break;
         case CHG_U3_R8: {
-            Reg reg = extractReg(opcode, 0);
+            int reg = extractReg(opcode, 0);
             boolean SET = get6thBit(opcode);
             if (SET) {
-                int newValue = Bits.set(regFile.get(reg), getIndex(opcode), true);
-                regFile.set(reg, newValue);
+                int newValue = Bits.set(regs[reg], getIndex(opcode), true);
+                regs[reg] = newValue;
             } else {
                 //TODO essayer d'utiliser Bits.set
-                int newValue = Bits.set(regFile.get(reg), getIndex(opcode), false);
-                regFile.set(reg, newValue);
+                int newValue = Bits.set(regs[reg], getIndex(opcode), false);
+                regs[reg] = newValue;
             }
         }
         break;
@@ -520,18 +979,15 @@ public final class Cpu implements Component, Clocked {
 
         // Misc. ALU
         case DAA: {
-            int regA = regFile.get(Reg.A);
-            int regF = regFile.get(Reg.F);
-            int bcd = Alu.bcdAdjust(regA, Bits.test(regF, 6),
-                    Bits.test(regF, 5), Bits.test(regF, 4));
-            setRegFromAlu(Reg.A, bcd);
+            int bcd = bcdAdjust(regs[A], flagN, flagH(),
+                    flagC);
+            setRegFromAlu(A, bcd);
             combineAluFlags(bcd, FlagSrc.ALU, FlagSrc.CPU, FlagSrc.V0,
                     FlagSrc.ALU);
         }
         break;
         case SCCF: {
-            boolean c = !(Bits.test(regFile.get(Reg.F), 4) && Bits
-                    .test(opcode.encoding, 3));
+            boolean c = !(flagC && Bits.test(opcode.encoding, 3));
             FlagSrc C = c ? FlagSrc.V1 : FlagSrc.V0;
             combineAluFlags(0, FlagSrc.CPU, FlagSrc.V0, FlagSrc.V0, C);
         }
@@ -539,7 +995,7 @@ public final class Cpu implements Component, Clocked {
 
         // Jumps
         case JP_HL: {
-            nextPC = reg16(Reg16.HL);
+            nextPC = reg16(HL);
         }
         break;
         case JP_N16: {
@@ -569,6 +1025,8 @@ public final class Cpu implements Component, Clocked {
         case CALL_N16: {
             push16(nextPC);
             nextPC = read16AfterOpcode();
+            if (profiler != null)
+                profiler.enter(PC, SP);
         }
         break;
         case CALL_CC_N16: {
@@ -576,6 +1034,8 @@ public final class Cpu implements Component, Clocked {
                 push16(nextPC);
                 nextPC = read16AfterOpcode();
                 nextNonIdleCycle += opcode.additionalCycles;
+                if (profiler != null)
+                    profiler.enter(PC, SP);
             }
         }
         break;
@@ -583,14 +1043,20 @@ public final class Cpu implements Component, Clocked {
             push16(nextPC);
             nextPC = AddressMap.RESETS
                     [getIndex(opcode)];
+            if (profiler != null)
+                profiler.enter(PC, SP);
         }
         break;
         case RET: {
+            if (profiler != null)
+                profiler.exit(SP);
             nextPC = pop16();
         }
         break;
         case RET_CC: {
             if (extractCondition(opcode)) {
+                if (profiler != null)
+                    profiler.exit(SP);
                 nextPC = pop16();
                 nextNonIdleCycle += opcode.additionalCycles;
             }
@@ -604,6 +1070,8 @@ public final class Cpu implements Component, Clocked {
         break;
         case RETI: {
             IME = true;
+            if (profiler != null)
+                profiler.exit(SP);
             nextPC = pop16();
         }
         break;
@@ -611,12 +1079,22 @@ public final class Cpu implements Component, Clocked {
         // Misc control
         case HALT: {
             nextNonIdleCycle = Long.MAX_VALUE;
+            haltStartCycle = startCycle + opcode.cycles;
+            interruptsChanged();
+        }
+        break;
+        case STOP: {
+            stop(startCycle + opcode.cycles);
+            nextPC += 1;
         }
         break;
-        case STOP:
-            throw new Error("STOP is not implemented");
         }
 
+        if (statistics != null) {
+            statistics.recordInstruction(opcode,
+                    isHalted() ? opcode.cycles
+                            : nextNonIdleCycle - startCycle);
+        }
         PC = Bits.clip(16, nextPC);
     }
 
@@ -629,7 +1107,8 @@ public final class Cpu implements Component, Clocked {
             return IF;
         else if (AddressMap.HIGH_RAM_START <= address
                 && address < AddressMap.HIGH_RAM_END)
-            return highRam.read(address - AddressMap.HIGH_RAM_START);
+            return Byte.toUnsignedInt(
+                    highRam[address - AddressMap.HIGH_RAM_START]);
 
         return NO_DATA;
     }
@@ -638,13 +1117,16 @@ public final class Cpu implements Component, Clocked {
         Preconditions.checkBits16(address);
         Preconditions.checkBits8(data);
 
-        if (address == AddressMap.REG_IE)
+        if (address == AddressMap.REG_IE) {
             IE = data;
-        else if (address == AddressMap.REG_IF)
+            interruptsChanged();
+        } else if (address == AddressMap.REG_IF) {
             IF = data;
+            interruptsChanged();
+        }
         else if (AddressMap.HIGH_RAM_START <= address
                 && address < AddressMap.HIGH_RAM_END)
-            highRam.write(address - AddressMap.HIGH_RAM_START, data);
+            highRam[address - AddressMap.HIGH_RAM_START] = (byte) data;
     }
 
 
@@ -660,9 +1142,8 @@ public final class Cpu implements Component, Clocked {
      * @return a table of registers (integers)
      */
     public int[] _testGetPcSpAFBCDEHL() {
-        int[] tabR = new int[] { PC, SP, regFile.get(Reg.A), regFile.get(Reg.F),
-                regFile.get(Reg.B), regFile.get(Reg.C), regFile.get(Reg.D),
-                regFile.get(Reg.E), regFile.get(Reg.H), regFile.get(Reg.L) };
+        int[] tabR = new int[] { PC, SP, regs[A], flags(),
+                regs[B], regs[C], regs[D], regs[E], regs[H], regs[L] };
 
         return tabR;
     }
@@ -676,13 +1157,13 @@ public final class Cpu implements Component, Clocked {
     /**
      * Returns the value contained in the given pair of registers r.
      *
-     * @param r Reg16, pair of registers (each containing an 8-bits value)
+     * @param r pair of registers (BC, DE, HL or AF)
      * @return a 16-bits integer value from r
      */
-    private int reg16(Reg16 r) {
-        int h = regFile.get((r.reg1));
-        int l = regFile.get((r.reg2));
-        return Bits.make16(h, l);
+    private int reg16(int r) {
+        if (r == AF)
+            return (regs[A] << 8) | flags();
+        return (regs[2 * r] << 8) | regs[2 * r + 1];
     }
 
     /**
@@ -692,17 +1173,17 @@ public final class Cpu implements Component, Clocked {
      * @param r    pair of 8-bits registers
      * @param newV integer, the new value that will be contained by the register
      */
-    private void setReg16(Reg16 r, int newV) {
+    private void setReg16(int r, int newV) {
         Preconditions.checkBits16(newV);
 
-        int l = Bits.clip(8, newV);
-        int m = Bits.extract(newV, 8, 8);
-        if (r == Reg16.AF) {
-            regFile.set(Reg.A, m);
-            regFile.set(Reg.F, l & 0xF0);
+        int l = newV & 0xFF;
+        int m = newV >>> 8;
+        if (r == AF) {
+            regs[A] = m;
+            loadFlags(l & 0xF0);
         } else {
-            regFile.set(r.reg1, m);
-            regFile.set(r.reg2, l);
+            regs[2 * r] = m;
+            regs[2 * r + 1] = l;
         }
     }
 
@@ -713,10 +1194,10 @@ public final class Cpu implements Component, Clocked {
      * @param r    pair of 8-bits registers
      * @param newV integer, the new value that will be contained by the register
      */
-    private void setReg16SP(Reg16 r, int newV) {
+    private void setReg16SP(int r, int newV) {
         Preconditions.checkBits16(newV);
 
-        if (r == Reg16.AF)
+        if (r == AF)
             SP = newV;
         else
             setReg16(r, newV);
@@ -734,27 +1215,20 @@ public final class Cpu implements Component, Clocked {
      *
      * @param opcode,  operation code
      * @param startBit integer, index
-     * @return a Reg, the register's ID
+     * @return the code of the register, which is also its index in regs
      */
-    private Reg extractReg(Opcode opcode, int startBit) {
-        Preconditions.checkArgument(startBit < 6);
-        Reg[] registers = new Reg[]
-                {Reg.B, Reg.C, Reg.D, Reg.E, Reg.H, Reg.L, null, Reg.A };
-
-        return registers[Bits.extract(opcode.encoding, startBit, 3)];
+    private static int extractReg(Opcode opcode, int startBit) {
+        return (opcode.encoding >>> startBit) & 0b111;
     }
 
     /**
      * Extracts 2 register's IDs, from the given opcode.
      *
      * @param opcode, operation code
-     * @return a Reg16, a pair of register's IDs
+     * @return the code of the pair (BC, DE, HL or AF)
      */
-    private Reg16 extractReg16(Opcode opcode) {
-        Reg16[] registers = new Reg16[]
-                { Reg16.BC, Reg16.DE, Reg16.HL, Reg16.AF };
-
-        return registers[Bits.extract(opcode.encoding, 4, 2)];
+    private static int extractReg16(Opcode opcode) {
+        return (opcode.encoding >>> 4) & 0b11;
     }
 
     private int extractIntReg16SP(Opcode opcode) {
@@ -770,7 +1244,7 @@ public final class Cpu implements Component, Clocked {
      * @param opcode, operation code
      * @return an integer equal to 1 or -1
      */
-    private int extractHlIncrement(Opcode opcode) {
+    private static int extractHlIncrement(Opcode opcode) {
         return (Bits.test(opcode.encoding, 4)) ? -1 : 1;
     }
 
@@ -782,11 +1256,12 @@ public final class Cpu implements Component, Clocked {
      * @return true if the condition is true, false otherwise
      */
     private boolean extractCondition(Opcode opcode) {
-        int Z = Bits.extract(regFile.get(Reg.F), 7, 1);
-        int C = Bits.extract(regFile.get(Reg.F), 4, 1);
-        boolean[] conditions = new boolean[] {Z == 0, Z == 1, C == 0, C == 1};
-
-        return conditions[Bits.extract(opcode.encoding, 3, 2)];
+        switch (Bits.extract(opcode.encoding, 3, 2)) {
+        case 0: return !flagZ();
+        case 1: return flagZ();
+        case 2: return !flagC;
+        default: return flagC;
+        }
     }
 
     /**
@@ -795,7 +1270,7 @@ public final class Cpu implements Component, Clocked {
      * @param opcode operation code of an instruction
      * @return a boolean, true if direction is left, false otherwise
      */
-    private Alu.RotDir rotateDir(Opcode opcode) {
+    private static Alu.RotDir rotateDir(Opcode opcode) {
         boolean b = Bits.test(opcode.encoding, 3);
         return b ? RIGHT : LEFT;
     }
@@ -806,7 +1281,7 @@ public final class Cpu implements Component, Clocked {
      * @param opcode operation code of an instruction
      * @return a integer representing the index
      */
-    private int getIndex(Opcode opcode) {
+    private static int getIndex(Opcode opcode) {
         return Bits.extract(opcode.encoding, 3, 3);
     }
 
@@ -816,17 +1291,16 @@ public final class Cpu implements Component, Clocked {
      * @param opcode operation code of an instruction
      * @return an boolean, true the bit is 1, false otherwise
      */
-    private boolean get6thBit(Opcode opcode) {
+    private static boolean get6thBit(Opcode opcode) {
         return Bits.test(opcode.encoding, 6);
     }
 
     private boolean testCarry(Opcode opcode) {
-        return Bits.test(regFile.get(Reg.F), 4) && Bits
-                .test(opcode.encoding, 3);
+        return flagC && Bits.test(opcode.encoding, 3);
     }
 
     private boolean testRotateCarry(Opcode opcode) {
-        return Bits.test(regFile.get(Reg.F), 4);
+        return flagC;
     }
 
     private int signedNextInstruction() {
@@ -847,6 +1321,38 @@ public final class Cpu implements Component, Clocked {
         Component.super.attachTo(bus);
     }
 
+    /**
+     * Lets the CPU access directly the given bytes, mapped on its bus from
+     * startAddress (included) to endAddress (excluded), when it reads or writes
+     * 16-bit values there (stack, immediate addresses) and its bus is not
+     * observed. Like for {@link Bus#map(int, int, byte[], int, boolean)}, no
+     * other component may read or be written at these addresses. Only one
+     * range is mapped at a time.
+     *
+     * @param startAddress first address mapped
+     * @param endAddress   first address not mapped
+     * @param data         bytes to map (not copied)
+     * @param index        index of the byte mapped at startAddress
+     * @throws IllegalArgumentException if the addresses are not those of a
+     *                                  RAM outside of the cartridge ROM and of
+     *                                  the high RAM, or if the bytes are too
+     *                                  few
+     */
+    public void mapWorkRam(int startAddress, int endAddress, byte[] data,
+            int index) {
+        Objects.requireNonNull(data);
+        Preconditions.checkArgument(SUPERINSTRUCTION_AREA_END <= startAddress
+                && startAddress <= endAddress
+                && endAddress <= AddressMap.HIGH_RAM_START
+                && 0 <= index
+                && index + (endAddress - startAddress) <= data.length);
+
+        workRam = data;
+        workRamStart = startAddress;
+        workRamEnd = endAddress;
+        workRamIndex = index;
+    }
+
     /**
      * Reads the 8-bit value at the given address of the bus.
      *
@@ -854,6 +1360,12 @@ public final class Cpu implements Component, Clocked {
      * @return 8-bit value
      */
     private int read8(int address) {
+        if (loopClean) {
+            if (loopReadCount < loopReads.length)
+                loopReads[loopReadCount++] = address;
+            else
+                loopClean = false;
+        }
         return bus.read(address);
     }
 
@@ -863,7 +1375,7 @@ public final class Cpu implements Component, Clocked {
      * @return 8-bit value
      */
     private int read8AtHl() {
-        return read8(reg16(Reg16.HL));
+        return read8(reg16(HL));
     }
 
     /**
@@ -882,6 +1394,14 @@ public final class Cpu implements Component, Clocked {
      * @return 16-bit value
      */
     private int read16(int address) {
+        if (!loopClean && !bus.isObserved()) {
+            int i = address - AddressMap.HIGH_RAM_START;
+            if (0 <= i && i < AddressMap.HIGH_RAM_SIZE - 1)
+                return make16(highRam, i);
+            i = address - workRamStart;
+            if (workRam != null && 0 <= i && address < workRamEnd - 1)
+                return make16(workRam, workRamIndex + i);
+        }
         int left = Preconditions.checkBits8(read8(address + 1));
         int right = Preconditions.checkBits8(read8(address));
         return Bits.make16(left, right);
@@ -905,6 +1425,10 @@ public final class Cpu implements Component, Clocked {
     private void write8(int address, int v) {
         Preconditions.checkBits8(v);
 
+        loopClean = false;
+        if (superinstructions != null && (address < SUPERINSTRUCTION_AREA_END
+                || address == AddressMap.REG_BOOT_ROM_DISABLE))
+            romWritten();
         bus.write(address, v);
     }
 
@@ -915,10 +1439,35 @@ public final class Cpu implements Component, Clocked {
      * @param v       16-bit value
      */
     private void write16(int address, int v) {
+        if (!bus.isObserved()) {
+            int i = address - AddressMap.HIGH_RAM_START;
+            if (0 <= i && i < AddressMap.HIGH_RAM_SIZE - 1) {
+                loopClean = false;
+                split16(highRam, i, v);
+                return;
+            }
+            i = address - workRamStart;
+            if (workRam != null && 0 <= i && address < workRamEnd - 1) {
+                loopClean = false;
+                split16(workRam, workRamIndex + i, v);
+                return;
+            }
+        }
         write8(address, Bits.clip(8, v));
         write8(address + 1, Bits.extract(v, 8, 8));
     }
 
+    // Little-endian 16-bit value at the given index of the bytes
+    private static int make16(byte[] data, int index) {
+        return Byte.toUnsignedInt(data[index])
+                | Byte.toUnsignedInt(data[index + 1]) << 8;
+    }
+
+    private static void split16(byte[] data, int index, int v) {
+        data[index] = (byte) v;
+        data[index + 1] = (byte) (v >>> 8);
+    }
+
     /**
      * Writes on the bus the given value at the address contained in
      * register HL.
@@ -926,7 +1475,7 @@ public final class Cpu implements Component, Clocked {
      * @param v 8-bit value
      */
     private void write8AtHl(int v) {
-        write8(reg16(Reg16.HL), v);
+        write8(reg16(HL), v);
     }
 
     /**
@@ -965,11 +1514,11 @@ public final class Cpu implements Component, Clocked {
      * Extracts the value contained in the given pair vf (value and flags
      * packed) and places it in the given register r.
      *
-     * @param r  Reg, register in which we put the value
+     * @param r  code of the register in which we put the value
      * @param vf integer, containing the wanted value with its flags
      */
-    private void setRegFromAlu(Reg r, int vf) {
-        regFile.set(r, Alu.unpackValue(vf));
+    private void setRegFromAlu(int r, int vf) {
+        regs[r] = Alu.unpackValue(vf);
     }
 
     /**
@@ -979,16 +1528,167 @@ public final class Cpu implements Component, Clocked {
      * @param valueFlags integer, containing the wanted flags and a value
      */
     private void setFlags(int valueFlags) {
-        regFile.set(Reg.F, Alu.unpackFlags(valueFlags));
+        loadFlags(Alu.unpackFlags(valueFlags));
+    }
+
+    /**
+     * Places the given value in register F.
+     *
+     * @param f 8-bit value, whose 4 LSB are ignored
+     */
+    private void loadFlags(int f) {
+        flagZ = Bits.test(f, 7) ? 0 : 1;
+        flagN = Bits.test(f, 6);
+        flagHKind = Bits.test(f, 5) ? H_SET : H_CLEAR;
+        flagC = Bits.test(f, 4);
+    }
+
+    /**
+     * Returns the value of register F, computed from the flags.
+     *
+     * @return 8-bit value of F
+     */
+    private int flags() {
+        return Alu.maskZNHC(flagZ(), flagN, flagH(), flagC);
+    }
+
+    private boolean flagZ() {
+        return (flagZ & 0xFF) == 0;
+    }
+
+    /**
+     * Computes the flag H from the last operation which changed it: for an
+     * addition (or subtraction), flagHL is its left operand and flagHR the 4
+     * LSB of its right operand plus the initial carry (or borrow).
+     *
+     * @return true if H is set
+     */
+    private boolean flagH() {
+        switch (flagHKind) {
+        case H_ADD: return (flagHL & 0xF) + flagHR > 0xF;
+        case H_SUB: return (flagHL & 0xF) < flagHR;
+        default: return flagHKind == H_SET;
+        }
+    }
+
+    /**
+     * Adds the given 8-bit values and the initial carry, and sets the flags
+     * like Alu.add without computing them.
+     *
+     * @param l  8-bit value
+     * @param r  8-bit value
+     * @param c0 initial carry
+     * @return the 8 LSB of the sum
+     */
+    private int add8(int l, int r, boolean c0) {
+        if (aluMode == AluMode.TABLES)
+            return valueSettingFlags(TableAlu.add(l, r, c0));
+
+        int c = c0 ? 1 : 0;
+        int sum = l + r + c;
+        flagZ = sum;
+        flagN = false;
+        flagHKind = H_ADD;
+        flagHL = l;
+        flagHR = (r & 0xF) + c;
+        flagC = sum > 0xFF;
+        return sum & 0xFF;
+    }
+
+    /**
+     * Subtracts the given 8-bit value and the initial borrow from the other,
+     * and sets the flags like Alu.sub without computing them.
+     *
+     * @param l  8-bit value
+     * @param r  8-bit value
+     * @param b0 initial borrow
+     * @return the 8 LSB of the difference
+     */
+    private int sub8(int l, int r, boolean b0) {
+        if (aluMode == AluMode.TABLES)
+            return valueSettingFlags(TableAlu.sub(l, r, b0));
+
+        int b = b0 ? 1 : 0;
+        int difference = l - r - b;
+        flagZ = difference;
+        flagN = true;
+        flagHKind = H_SUB;
+        flagHL = l;
+        flagHR = (r & 0xF) + b;
+        flagC = difference < 0;
+        return difference & 0xFF;
+    }
+
+    /**
+     * Increments the given 8-bit value and sets the flags Z0H-.
+     *
+     * @param v 8-bit value
+     * @return the 8 LSB of v + 1
+     */
+    private int inc8(int v) {
+        if (aluMode == AluMode.TABLES)
+            return valueSettingFlagsButC(TableAlu.add(v, 1));
+
+        flagZ = v + 1;
+        flagN = false;
+        flagHKind = H_ADD;
+        flagHL = v;
+        flagHR = 1;
+        return (v + 1) & 0xFF;
+    }
+
+    /**
+     * Decrements the given 8-bit value and sets the flags Z1H-.
+     *
+     * @param v 8-bit value
+     * @return the 8 LSB of v - 1
+     */
+    private int dec8(int v) {
+        if (aluMode == AluMode.TABLES)
+            return valueSettingFlagsButC(TableAlu.sub(v, 1));
+
+        flagZ = v - 1;
+        flagN = true;
+        flagHKind = H_SUB;
+        flagHL = v;
+        flagHR = 1;
+        return (v - 1) & 0xFF;
+    }
+
+    private int valueSettingFlags(int vf) {
+        setFlags(vf);
+        return Alu.unpackValue(vf);
+    }
+
+    private int valueSettingFlagsButC(int vf) {
+        boolean c = flagC;
+        setFlags(vf);
+        flagC = c;
+        return Alu.unpackValue(vf);
+    }
+
+    /**
+     * Sets the flags of a logical operation to Z0H0, H being only set by and.
+     *
+     * @param v     8-bit result of the operation
+     * @param hKind H_SET or H_CLEAR
+     * @return v
+     */
+    private int logic8(int v, int hKind) {
+        flagZ = v;
+        flagN = false;
+        flagHKind = hKind;
+        flagC = false;
+        return v;
     }
 
     /**
      * Combines the effects of previous setRegFromAlu and setFlags methods.
      *
-     * @param r  Reg, register in which we put the value
+     * @param r  code of the register in which we put the value
      * @param vf integer, containing the wanted value and flags
      */
-    private void setRegFlags(Reg r, int vf) {
+    private void setRegFlags(int r, int vf) {
         setRegFromAlu(r, vf);
         setFlags(vf);
     }
@@ -1022,9 +1722,9 @@ public final class Cpu implements Component, Clocked {
     private void combineAluFlags(int vf, FlagSrc z, FlagSrc n, FlagSrc h,
             FlagSrc c) {
         int vecALU = vecFlags(FlagSrc.ALU, z, n, h, c) & vf;
-        int vecCPU = vecFlags(FlagSrc.CPU, z, n, h, c) & regFile.get(Reg.F);
+        int vecCPU = vecFlags(FlagSrc.CPU, z, n, h, c) & flags();
         int vecV1 = vecFlags(FlagSrc.V1, z, n, h, c);
-        regFile.set(Reg.F, vecALU | vecCPU | vecV1);
+        loadFlags(vecALU | vecCPU | vecV1);
     }
 
     /**
@@ -1040,4 +1740,837 @@ public final class Cpu implements Component, Clocked {
             FlagSrc c) {
         return Alu.maskZNHC(src == z, src == n, src == h, src == c);
     }
+
+
+
+    /* ***********************************************************************
+      ALU OPERATIONS OF THE CURRENT MODE *************************************
+     */
+
+    private int rotate(Alu.RotDir d, int v) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.rotate(d, v) : Alu.rotate(d, v);
+    }
+
+    private int rotate(Alu.RotDir d, int v, boolean c) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.rotate(d, v, c) : Alu.rotate(d, v, c);
+    }
+
+    private int shiftLeft(int v) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.shiftLeft(v) : Alu.shiftLeft(v);
+    }
+
+    private int shiftRightA(int v) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.shiftRightA(v) : Alu.shiftRightA(v);
+    }
+
+    private int shiftRightL(int v) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.shiftRightL(v) : Alu.shiftRightL(v);
+    }
+
+    private int swap(int v) {
+        return aluMode == AluMode.TABLES ? TableAlu.swap(v) : Alu.swap(v);
+    }
+
+    private int bcdAdjust(int v, boolean n, boolean h, boolean c) {
+        return aluMode == AluMode.TABLES ?
+                TableAlu.bcdAdjust(v, n, h, c) : Alu.bcdAdjust(v, n, h, c);
+    }
+
+
+
+    /* ***********************************************************************
+      HANDLER-TABLE INTERPRETER **********************************************
+     */
+
+    /**
+     * Executes the instruction of the given index in the handler table (its
+     * encoding, plus 256 if it is prefixed).
+     *
+     * @param index index of the instruction
+     */
+    private void execute(int index) {
+        Opcode opcode = HANDLER_OPCODES[index];
+        long startCycle = nextNonIdleCycle;
+        nextNonIdleCycle += opcode.cycles;
+
+        int nextPC = HANDLERS[index].execute(this, PC + opcode.totalBytes);
+
+        if (statistics != null) {
+            statistics.recordInstruction(opcode,
+                    isHalted() ? opcode.cycles
+                            : nextNonIdleCycle - startCycle);
+        }
+        PC = nextPC & 0xFFFF;
+    }
+
+    private static Handler[] buildHandlerTable() {
+        Handler[] handlers = new Handler[HANDLER_OPCODES.length];
+        for (int i = 0; i < handlers.length; ++i) {
+            if (HANDLER_OPCODES[i] != null)
+                handlers[i] = handler(HANDLER_OPCODES[i]);
+        }
+        return handlers;
+    }
+
+    /**
+     * Builds the handler of the given opcode, its operands (registers, bit
+     * indices, conditions...) being extracted once for all.
+     *
+     * @param o the opcode
+     * @return the handler executing o
+     */
+    private static Handler handler(Opcode o) {
+        int r0 = extractReg(o, 0), r3 = extractReg(o, 3);
+        int pair = extractReg16(o);
+        int hlIncrement = extractHlIncrement(o);
+        boolean withCarry = Bits.test(o.encoding, 3);
+        int condition = Bits.extract(o.encoding, 3, 2);
+        int additionalCycles = o.additionalCycles;
+        Alu.RotDir dir = rotateDir(o);
+        int bitMask = 1 << getIndex(o);
+
+        switch (o.family) {
+        case NOP:
+            return (cpu, next) -> next;
+
+        // Load
+        case LD_R8_HLR:
+            return (cpu, next) -> {
+                cpu.regs[r3] = cpu.read8AtHl();
+                return next;
+            };
+        case LD_A_HLRU:
+            return (cpu, next) -> {
+                int hl = cpu.reg16(HL);
+                cpu.regs[A] = cpu.read8(hl);
+                cpu.setReg16(HL, (hl + hlIncrement) & 0xFFFF);
+                return next;
+            };
+        case LD_A_N8R:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.read8(
+                        AddressMap.REGS_START + cpu.read8AfterOpcode());
+                return next;
+            };
+        case LD_A_CR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.read8(AddressMap.REGS_START + cpu.regs[C]);
+                return next;
+            };
+        case LD_A_N16R:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.read8(cpu.read16AfterOpcode());
+                return next;
+            };
+        case LD_A_BCR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.read8(cpu.reg16(BC));
+                return next;
+            };
+        case LD_A_DER:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.read8(cpu.reg16(DE));
+                return next;
+            };
+        case LD_R8_N8:
+            return (cpu, next) -> {
+                cpu.regs[r3] = cpu.read8AfterOpcode();
+                return next;
+            };
+        case LD_R16SP_N16:
+            return (cpu, next) -> {
+                cpu.setReg16SP(pair, cpu.read16AfterOpcode());
+                return next;
+            };
+        case POP_R16:
+            return (cpu, next) -> {
+                cpu.setReg16(pair, cpu.pop16());
+                return next;
+            };
+
+        // Store
+        case LD_HLR_R8:
+            return (cpu, next) -> {
+                cpu.write8AtHl(cpu.regs[r0]);
+                return next;
+            };
+        case LD_HLRU_A:
+            return (cpu, next) -> {
+                int hl = cpu.reg16(HL);
+                cpu.write8(hl, cpu.regs[A]);
+                cpu.setReg16(HL, (hl + hlIncrement) & 0xFFFF);
+                return next;
+            };
+        case LD_N8R_A:
+            return (cpu, next) -> {
+                cpu.write8(AddressMap.REGS_START + cpu.read8AfterOpcode(),
+                        cpu.regs[A]);
+                return next;
+            };
+        case LD_CR_A:
+            return (cpu, next) -> {
+                cpu.write8(AddressMap.REGS_START + cpu.regs[C], cpu.regs[A]);
+                return next;
+            };
+        case LD_N16R_A:
+            return (cpu, next) -> {
+                cpu.write8(cpu.read16AfterOpcode(), cpu.regs[A]);
+                return next;
+            };
+        case LD_BCR_A:
+            return (cpu, next) -> {
+                cpu.write8(cpu.reg16(BC), cpu.regs[A]);
+                return next;
+            };
+        case LD_DER_A:
+            return (cpu, next) -> {
+                cpu.write8(cpu.reg16(DE), cpu.regs[A]);
+                return next;
+            };
+        case LD_HLR_N8:
+            return (cpu, next) -> {
+                cpu.write8AtHl(cpu.read8AfterOpcode());
+                return next;
+            };
+        case LD_N16R_SP:
+            return (cpu, next) -> {
+                cpu.write16(cpu.read16AfterOpcode(), cpu.SP);
+                return next;
+            };
+        case PUSH_R16:
+            return (cpu, next) -> {
+                cpu.push16(cpu.reg16(pair));
+                return next;
+            };
+
+        // Move
+        case LD_R8_R8:
+            return (cpu, next) -> {
+                cpu.regs[r3] = cpu.regs[r0];
+                return next;
+            };
+        case LD_SP_HL:
+            return (cpu, next) -> {
+                cpu.SP = cpu.reg16(HL);
+                return next;
+            };
+
+        // Add
+        case ADD_A_R8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.add8(cpu.regs[A], cpu.regs[r0],
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case ADD_A_N8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.add8(cpu.regs[A], cpu.read8AfterOpcode(),
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case ADD_A_HLR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.add8(cpu.regs[A], cpu.read8AtHl(),
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case INC_R8:
+            return (cpu, next) -> {
+                cpu.regs[r3] = cpu.inc8(cpu.regs[r3]);
+                return next;
+            };
+        case INC_HLR:
+            return (cpu, next) -> {
+                int hl = cpu.reg16(HL);
+                cpu.write8(hl, cpu.inc8(cpu.read8(hl)));
+                return next;
+            };
+        case INC_R16SP:
+            return (cpu, next) -> {
+                cpu.setReg16SP(pair, (cpu.reg16SP(pair) + 1) & 0xFFFF);
+                return next;
+            };
+        case ADD_HL_R16SP:
+            return (cpu, next) -> {
+                int vf = Alu.add16H(cpu.reg16(HL), cpu.reg16SP(pair));
+                cpu.setReg16(HL, Alu.unpackValue(vf));
+                cpu.setFlagsButZ(vf);
+                return next;
+            };
+        case LD_HLSP_S8: {
+            int target = Bits.test(o.encoding, 4) ? HL : AF;
+            return (cpu, next) -> {
+                int vf = Alu.add16L(cpu.SP,
+                        Bits.clip(16, cpu.signedNextInstruction()));
+                cpu.setReg16SP(target, Alu.unpackValue(vf));
+                cpu.setFlags(vf);
+                return next;
+            };
+        }
+
+        // Subtract / compare
+        case SUB_A_R8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.sub8(cpu.regs[A], cpu.regs[r0],
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case SUB_A_N8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.sub8(cpu.regs[A], cpu.read8AfterOpcode(),
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case SUB_A_HLR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.sub8(cpu.regs[A], cpu.read8AtHl(),
+                        withCarry && cpu.flagC);
+                return next;
+            };
+        case DEC_R8:
+            return (cpu, next) -> {
+                cpu.regs[r3] = cpu.dec8(cpu.regs[r3]);
+                return next;
+            };
+        case DEC_HLR:
+            return (cpu, next) -> {
+                int hl = cpu.reg16(HL);
+                cpu.write8(hl, cpu.dec8(cpu.read8(hl)));
+                return next;
+            };
+        case CP_A_R8:
+            return (cpu, next) -> {
+                cpu.sub8(cpu.regs[A], cpu.regs[r0], false);
+                return next;
+            };
+        case CP_A_N8:
+            return (cpu, next) -> {
+                cpu.sub8(cpu.regs[A], cpu.read8AfterOpcode(), false);
+                return next;
+            };
+        case CP_A_HLR:
+            return (cpu, next) -> {
+                cpu.sub8(cpu.regs[A], cpu.read8AtHl(), false);
+                return next;
+            };
+        case DEC_R16SP:
+            return (cpu, next) -> {
+                cpu.setReg16SP(pair, (cpu.reg16SP(pair) - 1) & 0xFFFF);
+                return next;
+            };
+
+        // And, or, xor, complement
+        case AND_A_N8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] & cpu.read8AfterOpcode(),
+                        H_SET);
+                return next;
+            };
+        case AND_A_R8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] & cpu.regs[r0], H_SET);
+                return next;
+            };
+        case AND_A_HLR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] & cpu.read8AtHl(), H_SET);
+                return next;
+            };
+        case OR_A_R8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] | cpu.regs[r0], H_CLEAR);
+                return next;
+            };
+        case OR_A_N8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] | cpu.read8AfterOpcode(),
+                        H_CLEAR);
+                return next;
+            };
+        case OR_A_HLR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] | cpu.read8AtHl(),
+                        H_CLEAR);
+                return next;
+            };
+        case XOR_A_R8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] ^ cpu.regs[r0], H_CLEAR);
+                return next;
+            };
+        case XOR_A_N8:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] ^ cpu.read8AfterOpcode(),
+                        H_CLEAR);
+                return next;
+            };
+        case XOR_A_HLR:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.logic8(cpu.regs[A] ^ cpu.read8AtHl(),
+                        H_CLEAR);
+                return next;
+            };
+        case CPL:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.regs[A] ^ 0xFF;
+                cpu.flagN = true;
+                cpu.flagHKind = H_SET;
+                return next;
+            };
+
+        // Rotate, shift
+        case ROTCA:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.valueSettingOnlyC(cpu.rotate(dir,
+                        cpu.regs[A]));
+                return next;
+            };
+        case ROTA:
+            return (cpu, next) -> {
+                cpu.regs[A] = cpu.valueSettingOnlyC(cpu.rotate(dir,
+                        cpu.regs[A], cpu.flagC));
+                return next;
+            };
+        case ROTC_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.rotate(dir, cpu.regs[r0]));
+                return next;
+            };
+        case ROT_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.rotate(dir, cpu.regs[r0], cpu.flagC));
+                return next;
+            };
+        case ROTC_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.rotate(dir, cpu.read8AtHl()));
+                return next;
+            };
+        case ROT_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.rotate(dir, cpu.read8AtHl(),
+                        cpu.flagC));
+                return next;
+            };
+        case SWAP_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.swap(cpu.regs[r0]));
+                return next;
+            };
+        case SWAP_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.swap(cpu.read8AtHl()));
+                return next;
+            };
+        case SLA_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.shiftLeft(cpu.regs[r0]));
+                return next;
+            };
+        case SRA_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.shiftRightA(cpu.regs[r0]));
+                return next;
+            };
+        case SRL_R8:
+            return (cpu, next) -> {
+                cpu.setRegFlags(r0, cpu.shiftRightL(cpu.regs[r0]));
+                return next;
+            };
+        case SLA_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.shiftLeft(cpu.read8AtHl()));
+                return next;
+            };
+        case SRA_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.shiftRightA(cpu.read8AtHl()));
+                return next;
+            };
+        case SRL_HLR:
+            return (cpu, next) -> {
+                cpu.write8AtHlAndSetFlags(cpu.shiftRightL(cpu.read8AtHl()));
+                return next;
+            };
+
+        // Bit test and set
+        case BIT_U3_R8:
+            return (cpu, next) -> {
+                cpu.testBit(cpu.regs[r0] & bitMask);
+                return next;
+            };
+        case BIT_U3_HLR:
+            return (cpu, next) -> {
+                cpu.testBit(cpu.read8AtHl() & bitMask);
+                return next;
+            };
+        case CHG_U3_R8:
+            if (get6thBit(o)) {
+                return (cpu, next) -> {
+                    cpu.regs[r0] |= bitMask;
+                    return next;
+                };
+            } else {
+                return (cpu, next) -> {
+                    cpu.regs[r0] &= ~bitMask;
+                    return next;
+                };
+            }
+        case CHG_U3_HLR:
+            if (get6thBit(o)) {
+                return (cpu, next) -> {
+                    int hl = cpu.reg16(HL);
+                    cpu.write8(hl, cpu.read8(hl) | bitMask);
+                    return next;
+                };
+            } else {
+                return (cpu, next) -> {
+                    int hl = cpu.reg16(HL);
+                    cpu.write8(hl, cpu.read8(hl) & ~bitMask);
+                    return next;
+                };
+            }
+
+        // Misc. ALU
+        case DAA:
+            return (cpu, next) -> {
+                // bcdAdjust gives N back unchanged
+                cpu.setRegFlags(A, cpu.bcdAdjust(cpu.regs[A], cpu.flagN,
+                        cpu.flagH(), cpu.flagC));
+                return next;
+            };
+        case SCCF:
+            return (cpu, next) -> {
+                cpu.flagN = false;
+                cpu.flagHKind = H_CLEAR;
+                cpu.flagC = !(withCarry && cpu.flagC);
+                return next;
+            };
+
+        // Jumps
+        case JP_HL:
+            return (cpu, next) -> cpu.reg16(HL);
+        case JP_N16:
+            return (cpu, next) -> cpu.read16AfterOpcode();
+        case JP_CC_N16:
+            return (cpu, next) -> {
+                if (!cpu.condition(condition))
+                    return next;
+                cpu.nextNonIdleCycle += additionalCycles;
+                return cpu.read16AfterOpcode();
+            };
+        case JR_E8:
+            return (cpu, next) -> next + cpu.signedNextInstruction();
+        case JR_CC_E8:
+            return (cpu, next) -> {
+                if (!cpu.condition(condition))
+                    return next;
+                cpu.nextNonIdleCycle += additionalCycles;
+                return next + cpu.signedNextInstruction();
+            };
+
+        // Calls and returns
+        case CALL_N16:
+            return (cpu, next) -> {
+                cpu.call(next);
+                return cpu.read16AfterOpcode();
+            };
+        case CALL_CC_N16:
+            return (cpu, next) -> {
+                if (!cpu.condition(condition))
+                    return next;
+                cpu.nextNonIdleCycle += additionalCycles;
+                cpu.call(next);
+                return cpu.read16AfterOpcode();
+            };
+        case RST_U3: {
+            int target = AddressMap.RESETS[getIndex(o)];
+            return (cpu, next) -> {
+                cpu.call(next);
+                return target;
+            };
+        }
+        case RET:
+            return (cpu, next) -> cpu.ret();
+        case RET_CC:
+            return (cpu, next) -> {
+                if (!cpu.condition(condition))
+                    return next;
+                cpu.nextNonIdleCycle += additionalCycles;
+                return cpu.ret();
+            };
+
+        // Interrupts
+        case EDI: {
+            boolean enable = Bits.test(o.encoding, 3);
+            return (cpu, next) -> {
+                cpu.IME = enable;
+                return next;
+            };
+        }
+        case RETI:
+            return (cpu, next) -> {
+                cpu.IME = true;
+                return cpu.ret();
+            };
+
+        // Misc control
+        case HALT:
+            return (cpu, next) -> {
+                cpu.haltStartCycle = cpu.nextNonIdleCycle;
+                cpu.nextNonIdleCycle = Long.MAX_VALUE;
+                cpu.interruptsChanged();
+                return next;
+            };
+        case STOP:
+            return (cpu, next) -> {
+                cpu.stop(cpu.nextNonIdleCycle);
+                return next + 1;
+            };
+        default:
+            throw new Error("Unknown family: " + o.family);
+        }
+    }
+
+    /**
+     * Returns the value contained in the given pair of registers, or in SP
+     * if the pair is AF.
+     *
+     * @param r pair of registers
+     * @return the 16-bit value of r, or SP
+     */
+    private int reg16SP(int r) {
+        return r == AF ? SP : reg16(r);
+    }
+
+    /**
+     * Checks the given condition (NZ, Z, NC or C).
+     *
+     * @param condition code of the condition, from 0 to 3
+     * @return true if the condition is true
+     */
+    private boolean condition(int condition) {
+        switch (condition) {
+        case 0: return !flagZ();
+        case 1: return flagZ();
+        case 2: return !flagC;
+        default: return flagC;
+        }
+    }
+
+    /**
+     * Pushes the given return address of a call, which the profiler enters.
+     *
+     * @param returnAddress address of the instruction following the call
+     */
+    private void call(int returnAddress) {
+        push16(returnAddress);
+        if (profiler != null)
+            profiler.enter(PC, SP);
+    }
+
+    /**
+     * Pops the return address, which the profiler returns to.
+     *
+     * @return the return address
+     */
+    private int ret() {
+        if (profiler != null)
+            profiler.exit(SP);
+        return pop16();
+    }
+
+    /**
+     * Places the flags of the given pair vf in F, except Z which is kept.
+     *
+     * @param vf integer, containing the wanted flags and a value
+     */
+    private void setFlagsButZ(int vf) {
+        int z = flagZ;
+        setFlags(vf);
+        flagZ = z;
+    }
+
+    /**
+     * Clears the flags Z, N and H and sets C like the given pair vf.
+     *
+     * @param vf integer, containing the wanted value and flags
+     * @return the value of vf
+     */
+    private int valueSettingOnlyC(int vf) {
+        setFlags(vf & Alu.Flag.C.mask());
+        return Alu.unpackValue(vf);
+    }
+
+    /**
+     * Sets the flags of a bit test to Z01-.
+     *
+     * @param bit the tested bit of the value, in place
+     */
+    private void testBit(int bit) {
+        flagZ = bit;
+        flagN = false;
+        flagHKind = H_SET;
+    }
+
+
+
+    /* ***********************************************************************
+      SUPERINSTRUCTIONS ******************************************************
+     */
+
+    /**
+     * Executes the superinstruction found at PC, if any: its first
+     * instruction, then each following one as long as it can be executed in
+     * advance and the previous one did not jump nor write the ROM.
+     *
+     * @return true if a superinstruction was found
+     */
+    private boolean executeSuperinstruction() {
+        if (PC >= SUPERINSTRUCTION_AREA_END || profiler != null
+                || (horizon != null && horizon.access(PC) <= cycle))
+            return false;
+        Superinstruction s = superinstructionAt(PC);
+        if (s == null)
+            return false;
+
+        // The instructions are not executed in advance once the ROM is
+        // written, as they may be overwritten
+        int nextPC = PC;
+        int decodedGeneration = generation;
+        for (int i = 0; i < s.opcodes.length; ++i) {
+            Opcode o = s.opcodes[i];
+            if (i > 0 && (PC != nextPC || generation != decodedGeneration
+                    || !canExecuteInAdvance(o)))
+                break;
+            nextPC += o.totalBytes;
+            executeOpcode(o);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the superinstruction found at the given address of the ROM,
+     * which is only decoded if it is not cached yet.
+     */
+    private Superinstruction superinstructionAt(int address) {
+        int entry = superinstructionCache[address];
+        if ((entry >>> 4) != generation) {
+            entry = (generation << 4) | decodeSuperinstruction(address);
+            superinstructionCache[address] = entry;
+        }
+        int code = entry & 0xF;
+        return code == 0 ? null : SUPERINSTRUCTIONS[code - 1];
+    }
+
+    private int decodeSuperinstruction(int address) {
+        for (Superinstruction s : superinstructions) {
+            if (address + s.totalBytes <= SUPERINSTRUCTION_AREA_END
+                    && isAt(s, address))
+                return 1 + s.ordinal();
+        }
+        return 0;
+    }
+
+    private boolean isAt(Superinstruction s, int address) {
+        for (Opcode o : s.opcodes) {
+            if (o.kind == Opcode.Kind.PREFIXED) {
+                if (read8(address) != OPCODE_PREFIX
+                        || read8(address + 1) != o.encoding)
+                    return false;
+            } else if (read8(address) != o.encoding) {
+                return false;
+            }
+            address += o.totalBytes;
+        }
+        return true;
+    }
+
+    /**
+     * Invalidates the superinstructions found so far, as the ROM may change
+     * (bank switch or end of the boot ROM).
+     */
+    private void romWritten() {
+        if (generation == MAX_GENERATION) {
+            Arrays.fill(superinstructionCache, 0);
+            generation = 1;
+        } else {
+            generation += 1;
+        }
+    }
+
+    private void executeOpcode(Opcode o) {
+        if (interpreter == Interpreter.HANDLERS)
+            execute(o.kind == Opcode.Kind.DIRECT ? o.encoding
+                    : 0x100 | o.encoding);
+        else
+            dispatch(o);
+    }
+
+    /**
+     * Checks if the given instruction, at PC, can be executed now instead of
+     * at its own cycle, nextNonIdleCycle: no interruption must be handled
+     * before it, and no other component may access the memory it accesses
+     * until then.
+     *
+     * @param o the opcode of the instruction
+     * @return true if it can be executed in advance
+     */
+    private boolean canExecuteInAdvance(Opcode o) {
+        long start = nextNonIdleCycle;
+        int enabled = IE & ALL_INTERRUPTS;
+        if (IME && enabled != 0 && (pendingInterrupts != 0 || horizon == null
+                || horizon.interruptRequest(enabled) <= start))
+            return false;
+
+        switch (o.family) {
+        case LD_A_BCR:
+        case LD_BCR_A:
+            return isUnaccessedUntil(reg16(BC), start);
+        case LD_A_DER:
+        case LD_DER_A:
+            return isUnaccessedUntil(reg16(DE), start);
+        case LD_R8_HLR:
+        case LD_A_HLRU:
+        case LD_HLR_R8:
+        case LD_HLRU_A:
+            return isUnaccessedUntil(reg16(HL), start);
+        case NOP:
+        case LD_R8_N8:
+        case LD_R16SP_N16:
+        case LD_R8_R8:
+        case ADD_A_R8:
+        case ADD_A_N8:
+        case INC_R8:
+        case INC_R16SP:
+        case SUB_A_R8:
+        case SUB_A_N8:
+        case DEC_R8:
+        case CP_A_R8:
+        case CP_A_N8:
+        case DEC_R16SP:
+        case AND_A_N8:
+        case AND_A_R8:
+        case OR_A_R8:
+        case OR_A_N8:
+        case XOR_A_R8:
+        case XOR_A_N8:
+        case JP_N16:
+        case JP_CC_N16:
+        case JR_E8:
+        case JR_CC_E8:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private boolean isUnaccessedUntil(int address, long cycle) {
+        return horizon != null && horizon.access(address) > cycle;
+    }
 }
@@ -0,0 +1,156 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.util.Arrays;
+
+/**
+ * Execution statistics of a CPU: number of executions of each opcode, cycles
+ * spent in each family of opcodes, number of interruptions handled and time
+ * spent halted. The statistics are only collected while they are attached to
+ * a CPU, and must be read by the thread running it
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class CpuStatistics {
+
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final Opcode.Family[] FAMILIES = Opcode.Family.values();
+    private static final Cpu.Interrupt[] INTERRUPTS = Cpu.Interrupt.values();
+
+    private final long[] opcodeCounts = new long[OPCODES.length];
+    private final long[] familyCycles = new long[FAMILIES.length];
+    private final long[] interruptCounts = new long[INTERRUPTS.length];
+    private long halts;
+    private long haltCycles;
+
+    /**
+     * Records the execution of the given opcode.
+     *
+     * @param opcode the opcode executed
+     * @param cycles the number of cycles it took
+     */
+    void recordInstruction(Opcode opcode, long cycles) {
+        opcodeCounts[opcode.ordinal()] += 1;
+        familyCycles[opcode.family.ordinal()] += cycles;
+    }
+
+    /**
+     * Records the handling of the given interruption.
+     *
+     * @param index the index of the interruption
+     */
+    void recordInterrupt(int index) {
+        interruptCounts[index] += 1;
+    }
+
+    /**
+     * Records the end of a halt.
+     *
+     * @param cycles the number of cycles spent halted
+     */
+    void recordHalt(long cycles) {
+        halts += 1;
+        haltCycles += cycles;
+    }
+
+    /**
+     * Returns the number of executions of the given opcode.
+     *
+     * @param opcode the opcode
+     * @return the number of executions
+     */
+    public long count(Opcode opcode) {
+        return opcodeCounts[opcode.ordinal()];
+    }
+
+    /**
+     * Returns the number of cycles spent executing the opcodes of the given
+     * family.
+     *
+     * @param family the family
+     * @return the number of cycles
+     */
+    public long cycles(Opcode.Family family) {
+        return familyCycles[family.ordinal()];
+    }
+
+    /**
+     * Returns the number of times the given interruption was handled.
+     *
+     * @param interrupt the interruption
+     * @return the number of times it was handled
+     */
+    public long count(Cpu.Interrupt interrupt) {
+        return interruptCounts[interrupt.ordinal()];
+    }
+
+    /**
+     * Returns the number of halts which ended.
+     *
+     * @return the number of halts
+     */
+    public long halts() {
+        return halts;
+    }
+
+    /**
+     * Returns the number of cycles spent halted, until the end of the last
+     * halt.
+     *
+     * @return the number of halted cycles
+     */
+    public long haltCycles() {
+        return haltCycles;
+    }
+
+    /**
+     * Resets all the statistics to zero.
+     */
+    public void reset() {
+        Arrays.fill(opcodeCounts, 0);
+        Arrays.fill(familyCycles, 0);
+        Arrays.fill(interruptCounts, 0);
+        halts = 0;
+        haltCycles = 0;
+    }
+
+    /**
+     * Returns the statistics in JSON, omitting the opcodes never executed and
+     * the families never used.
+     *
+     * @return a JSON object
+     */
+    public String toJson() {
+        StringBuilder b = new StringBuilder("{\n  \"opcodes\": {");
+        String separator = "";
+        for (Opcode o : OPCODES) {
+            if (opcodeCounts[o.ordinal()] != 0) {
+                b.append(separator).append("\n    \"").append(o.name())
+                        .append("\": ").append(opcodeCounts[o.ordinal()]);
+                separator = ",";
+            }
+        }
+
+        b.append("\n  },\n  \"familyCycles\": {");
+        separator = "";
+        for (Opcode.Family f : FAMILIES) {
+            if (familyCycles[f.ordinal()] != 0) {
+                b.append(separator).append("\n    \"").append(f.name())
+                        .append("\": ").append(familyCycles[f.ordinal()]);
+                separator = ",";
+            }
+        }
+
+        b.append("\n  },\n  \"interrupts\": {");
+        separator = "";
+        for (Cpu.Interrupt i : INTERRUPTS) {
+            b.append(separator).append("\n    \"").append(i.name())
+                    .append("\": ").append(interruptCounts[i.ordinal()]);
+            separator = ",";
+        }
+
+        return b.append("\n  },\n  \"halts\": ").append(halts)
+                .append(",\n  \"haltCycles\": ").append(haltCycles)
+                .append("\n}\n").toString();
+    }
+}
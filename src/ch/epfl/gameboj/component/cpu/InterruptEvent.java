@@ -0,0 +1,28 @@
+package ch.epfl.gameboj.component.cpu;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event emitted when the CPU handles an interruption
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+@Name("ch.epfl.gameboj.Interrupt")
+@Label("Interrupt Serviced")
+@Category("Gameboj")
+@Description("Jump of the CPU to the handler of an interruption")
+final class InterruptEvent extends jdk.jfr.Event {
+
+    @Label("Interrupt")
+    String interrupt;
+
+    @Label("Cycle")
+    long cycle;
+
+    @Label("Interrupted Address")
+    int pc;
+}
@@ -0,0 +1,148 @@
+package ch.epfl.gameboj.component.cpu;
+
+import ch.epfl.gameboj.Preconditions;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Sampling profiler of the code run by a CPU. Every given number of cycles it
+ * records the program counter, with the ROM bank it is in and the addresses
+ * of the calls which led there, tracked through the calls and returns of the
+ * CPU
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class PcProfiler {
+
+    private static final int MAX_DEPTH = 256;
+
+    /**
+     * Node of the tree of the sampled call stacks
+     */
+    private static final class Node {
+        private final Map<Integer, Node> children = new HashMap<>();
+        private long samples = 0;
+
+        private Node child(int key) {
+            return children.computeIfAbsent(key, k -> new Node());
+        }
+    }
+
+    private final int period;
+    private final IntUnaryOperator romBank;
+    private final Node root = new Node();
+    // Shadow call stack: addresses of the calls and value of SP after them
+    private final int[] frames = new int[MAX_DEPTH];
+    private final int[] frameSps = new int[MAX_DEPTH];
+    private int depth;
+    private long nextSampleCycle;
+    private long samples;
+
+    /**
+     * Constructs a profiler.
+     *
+     * @param period  number of cycles between two samples
+     * @param romBank gives the ROM bank seen at an address
+     * @throws IllegalArgumentException if the period is not strictly positive
+     */
+    public PcProfiler(int period, IntUnaryOperator romBank) {
+        Preconditions.checkArgument(period > 0);
+
+        this.period = period;
+        this.romBank = Objects.requireNonNull(romBank);
+        depth = 0;
+        nextSampleCycle = 0;
+        samples = 0;
+    }
+
+    /**
+     * Records a sample if the given cycle reached the next sample's one.
+     *
+     * @param cycle the current cycle
+     * @param pc    the program counter
+     */
+    void sample(long cycle, int pc) {
+        if (cycle < nextSampleCycle)
+            return;
+
+        nextSampleCycle = cycle + period;
+        samples += 1;
+        Node node = root;
+        for (int i = 0; i < depth; ++i)
+            node = node.child(frames[i]);
+        node.child(SymbolTable.key(romBank.applyAsInt(pc), pc)).samples += 1;
+    }
+
+    /**
+     * Records a call (or an interruption) made at the given address, which
+     * thus names the calling routine in the samples taken until the return.
+     * The calls nested too deeply are not recorded.
+     *
+     * @param pc the address of the call, or of the interrupted instruction
+     * @param sp the value of SP after the return address was pushed
+     */
+    void enter(int pc, int sp) {
+        if (depth == MAX_DEPTH)
+            return;
+        frames[depth] = SymbolTable.key(romBank.applyAsInt(pc), pc);
+        frameSps[depth] = sp;
+        depth += 1;
+    }
+
+    /**
+     * Records a return, leaving all the routines whose return address is at
+     * or below the given SP (which also handles the routines leaving the
+     * stack in another way).
+     *
+     * @param sp the value of SP before the return address is popped
+     */
+    void exit(int sp) {
+        while (depth > 0 && frameSps[depth - 1] <= sp)
+            depth -= 1;
+    }
+
+    /**
+     * Returns the number of samples recorded.
+     *
+     * @return the number of samples
+     */
+    public long samples() {
+        return samples;
+    }
+
+    /**
+     * Writes the samples in the collapsed-stack format used by flame graphs:
+     * one line per call stack, made of the routines separated by ';' and
+     * followed by the number of samples.
+     *
+     * @param out     where to write
+     * @param symbols the symbols naming the routines
+     * @throws IOException if the output fails
+     */
+    public void writeCollapsed(Appendable out, SymbolTable symbols)
+            throws IOException {
+        TreeMap<String, Long> stacks = new TreeMap<>();
+        collect(root, "", symbols, stacks);
+        for (Map.Entry<String, Long> e : stacks.entrySet())
+            out.append(e.getKey()).append(' ')
+                    .append(Long.toString(e.getValue())).append('\n');
+    }
+
+    private static void collect(Node node, String stack, SymbolTable symbols,
+            Map<String, Long> stacks) {
+        for (Map.Entry<Integer, Node> e : node.children.entrySet()) {
+            String name = symbols.nameOf(e.getKey());
+            String s = stack.isEmpty() ? name : stack + ';' + name;
+            Node child = e.getValue();
+            if (child.samples != 0)
+                stacks.merge(s, child.samples, Long::sum);
+            collect(child, s, symbols, stacks);
+        }
+    }
+}
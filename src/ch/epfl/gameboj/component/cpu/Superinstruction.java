@@ -0,0 +1,55 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static ch.epfl.gameboj.component.cpu.Opcode.*;
+
+/**
+ * Sequence of instructions frequent in the guest code, which the CPU can
+ * execute with a single dispatch when it finds it in ROM (see
+ * {@link Cpu#setSuperinstructions(java.util.Set)})
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public enum Superinstruction {
+    /**
+     * copy of a byte from (HL+) to (DE), in memcpy loops
+     */
+    COPY_HLI_TO_DE(LD_A_HLRI, LD_DER_A, INC_DE),
+    /**
+     * 16-bit counter decremented and tested, before a conditional jump
+     */
+    DEC_BC_AND_TEST(DEC_BC, LD_A_B, OR_A_C, JR_NZ_E8),
+    /**
+     * wait for a value of an I/O register
+     */
+    LDH_CP_JR_NZ(LD_A_N8R, CP_A_N8, JR_NZ_E8),
+    /**
+     * comparison of an I/O register with a constant
+     */
+    LDH_CP(LD_A_N8R, CP_A_N8),
+    /**
+     * 8-bit counters of loops
+     */
+    DEC_B_JR_NZ(DEC_B, JR_NZ_E8),
+    DEC_C_JR_NZ(DEC_C, JR_NZ_E8);
+
+    final Opcode[] opcodes;
+    final int totalBytes;
+
+    private Superinstruction(Opcode... opcodes) {
+        this.opcodes = opcodes;
+        int bytes = 0;
+        for (Opcode o : opcodes)
+            bytes += o.totalBytes;
+        this.totalBytes = bytes;
+    }
+
+    /**
+     * Returns the opcodes of the sequence, in order.
+     *
+     * @return a copy of the opcodes
+     */
+    public Opcode[] opcodes() {
+        return opcodes.clone();
+    }
+}
@@ -0,0 +1,119 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ch.epfl.gameboj.AddressMap;
+
+/**
+ * Symbols of a program, read from a symbol file in the format of RGBDS
+ * ("BB:AAAA Name" lines, with comments starting with ';') (immutable)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class SymbolTable {
+
+    /**
+     * Table without any symbol
+     */
+    public static final SymbolTable EMPTY = new SymbolTable(new TreeMap<>());
+
+    private static final int BANKED_START = 0x4000, BANKED_END = 0x8000;
+
+    // Symbols keyed by bank << 16 | address
+    private final TreeMap<Integer, String> symbols;
+
+    private SymbolTable(TreeMap<Integer, String> symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Reads a symbol file. The lines which are not symbols are ignored.
+     *
+     * @param reader the reader of the file
+     * @return the symbols of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static SymbolTable read(Reader reader) throws IOException {
+        TreeMap<Integer, String> symbols = new TreeMap<>();
+        BufferedReader r = new BufferedReader(reader);
+
+        String line;
+        while ((line = r.readLine()) != null) {
+            int comment = line.indexOf(';');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2 || parts[0].indexOf(':') < 0)
+                continue;
+
+            String[] location = parts[0].split(":");
+            try {
+                int bank = Integer.parseInt(location[0], 16);
+                int address = Integer.parseInt(location[1], 16);
+                symbols.putIfAbsent(key(bank, address), parts[1]);
+            } catch (NumberFormatException
+                    | ArrayIndexOutOfBoundsException e) {
+                // Not a symbol
+            }
+        }
+        return new SymbolTable(symbols);
+    }
+
+    /**
+     * Returns the key of an address of a bank. The bank only matters for
+     * the addresses of the switchable ROM bank.
+     *
+     * @param bank    the ROM bank
+     * @param address the address
+     * @return the key of the address
+     */
+    static int key(int bank, int address) {
+        return BANKED_START <= address && address < BANKED_END
+                ? (bank << 16) | address : address;
+    }
+
+    /**
+     * Returns the name of the routine containing the given address, i.e. the
+     * last symbol at or before it in the same bank and memory area, or the
+     * address itself if there is no such symbol. The offset from the symbol
+     * is not given, so that all the addresses of a routine share its name.
+     *
+     * @param key the key of the address, as given by key()
+     * @return the name of the address
+     */
+    public String nameOf(int key) {
+        Map.Entry<Integer, String> e = symbols.floorEntry(key);
+        if (e == null || (e.getKey() >>> 16) != (key >>> 16)
+                || areaStart(e.getKey() & 0xFFFF) != areaStart(key & 0xFFFF))
+            return String.format("%02X:%04X", key >>> 16, key & 0xFFFF);
+
+        return e.getValue();
+    }
+
+    /**
+     * Returns the start of the memory area containing the given address: one
+     * of the ROM banks, the high RAM, or else one of the 8 KiB areas (video
+     * RAM, cartridge RAM, work RAM, and its echo followed by the registers).
+     */
+    private static int areaStart(int address) {
+        if (address < BANKED_END)
+            return address < BANKED_START ? 0 : BANKED_START;
+        if (address >= AddressMap.HIGH_RAM_START)
+            return AddressMap.HIGH_RAM_START;
+        return address & ~0x1FFF;
+    }
+
+    /**
+     * Returns the number of symbols.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return symbols.size();
+    }
+}
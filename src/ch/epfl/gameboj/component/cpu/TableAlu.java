@@ -0,0 +1,234 @@
+package ch.epfl.gameboj.component.cpu;
+
+import ch.epfl.gameboj.component.cpu.Alu.RotDir;
+
+/**
+ * Arithmetic logic unit looking up its results in tables precomputed with
+ * {@link Alu}, which it gives in the same packed form (value and flags). Its
+ * arguments are not checked: values which are not 8-bit give wrong results
+ * or throw an IndexOutOfBoundsException
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+public final class TableAlu {
+
+    private static final int VALUES = 0x100;
+
+    // Indexed by (c << 16) | (l << 8) | r
+    private static final short[] ADD = new short[2 * VALUES * VALUES];
+    private static final short[] SUB = new short[2 * VALUES * VALUES];
+    // Value with the flag Z of the logical operations
+    private static final short[] LOGIC = new short[VALUES];
+    private static final short[] SHIFT_LEFT = new short[VALUES];
+    private static final short[] SHIFT_RIGHT_A = new short[VALUES];
+    private static final short[] SHIFT_RIGHT_L = new short[VALUES];
+    private static final short[] SWAP = new short[VALUES];
+    // Indexed by (d << 8) | v, d being the ordinal of the direction
+    private static final short[] ROTATE = new short[2 * VALUES];
+    // Indexed by (d << 9) | (c << 8) | v
+    private static final short[] ROTATE_CARRY = new short[4 * VALUES];
+    // Indexed by (n << 10) | (h << 9) | (c << 8) | v
+    private static final short[] BCD_ADJUST = new short[8 * VALUES];
+
+    static {
+        for (int l = 0; l < VALUES; ++l) {
+            for (int r = 0; r < VALUES; ++r) {
+                for (int c = 0; c < 2; ++c) {
+                    int i = (c << 16) | (l << 8) | r;
+                    ADD[i] = (short) Alu.add(l, r, c == 1);
+                    SUB[i] = (short) Alu.sub(l, r, c == 1);
+                }
+            }
+        }
+
+        for (int v = 0; v < VALUES; ++v) {
+            LOGIC[v] = (short) Alu.or(v, 0);
+            SHIFT_LEFT[v] = (short) Alu.shiftLeft(v);
+            SHIFT_RIGHT_A[v] = (short) Alu.shiftRightA(v);
+            SHIFT_RIGHT_L[v] = (short) Alu.shiftRightL(v);
+            SWAP[v] = (short) Alu.swap(v);
+            for (RotDir d : RotDir.values()) {
+                ROTATE[(d.ordinal() << 8) | v] = (short) Alu.rotate(d, v);
+                for (int c = 0; c < 2; ++c)
+                    ROTATE_CARRY[(d.ordinal() << 9) | (c << 8) | v] =
+                            (short) Alu.rotate(d, v, c == 1);
+            }
+            for (int nhc = 0; nhc < 8; ++nhc)
+                BCD_ADJUST[(nhc << 8) | v] = (short) Alu.bcdAdjust(v,
+                        (nhc & 0b100) != 0, (nhc & 0b010) != 0,
+                        (nhc & 0b001) != 0);
+        }
+    }
+
+    private TableAlu() {
+    }
+
+    private static int entry(short[] table, int index) {
+        return Short.toUnsignedInt(table[index]);
+    }
+
+    /**
+     * Returns the sum of l, r and the initial carry, like
+     * {@link Alu#add(int, int, boolean)}.
+     *
+     * @param l  8-bit value
+     * @param r  8-bit value
+     * @param c0 initial carry
+     * @return the sum and the flags Z0HC
+     */
+    public static int add(int l, int r, boolean c0) {
+        return entry(ADD, (c0 ? 1 << 16 : 0) | (l << 8) | r);
+    }
+
+    /**
+     * Returns the sum of l and r, like {@link Alu#add(int, int)}.
+     *
+     * @param l 8-bit value
+     * @param r 8-bit value
+     * @return the sum and the flags Z0HC
+     */
+    public static int add(int l, int r) {
+        return entry(ADD, (l << 8) | r);
+    }
+
+    /**
+     * Returns the difference of l and r minus the initial borrow, like
+     * {@link Alu#sub(int, int, boolean)}.
+     *
+     * @param l  8-bit value
+     * @param r  8-bit value
+     * @param b0 initial borrow
+     * @return the difference and the flags Z1HC
+     */
+    public static int sub(int l, int r, boolean b0) {
+        return entry(SUB, (b0 ? 1 << 16 : 0) | (l << 8) | r);
+    }
+
+    /**
+     * Returns the difference of l and r, like {@link Alu#sub(int, int)}.
+     *
+     * @param l 8-bit value
+     * @param r 8-bit value
+     * @return the difference and the flags Z1HC
+     */
+    public static int sub(int l, int r) {
+        return entry(SUB, (l << 8) | r);
+    }
+
+    /**
+     * Returns the bitwise and of l and r, like {@link Alu#and(int, int)}.
+     *
+     * @param l 8-bit value
+     * @param r 8-bit value
+     * @return the result and the flags Z010
+     */
+    public static int and(int l, int r) {
+        return entry(LOGIC, l & r) | Alu.Flag.H.mask();
+    }
+
+    /**
+     * Returns the bitwise or of l and r, like {@link Alu#or(int, int)}.
+     *
+     * @param l 8-bit value
+     * @param r 8-bit value
+     * @return the result and the flags Z000
+     */
+    public static int or(int l, int r) {
+        return entry(LOGIC, l | r);
+    }
+
+    /**
+     * Returns the bitwise exclusive or of l and r, like
+     * {@link Alu#xor(int, int)}.
+     *
+     * @param l 8-bit value
+     * @param r 8-bit value
+     * @return the result and the flags Z000
+     */
+    public static int xor(int l, int r) {
+        return entry(LOGIC, l ^ r);
+    }
+
+    /**
+     * Returns v shifted to the left, like {@link Alu#shiftLeft(int)}.
+     *
+     * @param v 8-bit value
+     * @return the result and the flags Z00C
+     */
+    public static int shiftLeft(int v) {
+        return entry(SHIFT_LEFT, v);
+    }
+
+    /**
+     * Returns v shifted arithmetically to the right, like
+     * {@link Alu#shiftRightA(int)}.
+     *
+     * @param v 8-bit value
+     * @return the result and the flags Z00C
+     */
+    public static int shiftRightA(int v) {
+        return entry(SHIFT_RIGHT_A, v);
+    }
+
+    /**
+     * Returns v shifted logically to the right, like
+     * {@link Alu#shiftRightL(int)}.
+     *
+     * @param v 8-bit value
+     * @return the result and the flags Z00C
+     */
+    public static int shiftRightL(int v) {
+        return entry(SHIFT_RIGHT_L, v);
+    }
+
+    /**
+     * Returns the rotation of v in direction d, like
+     * {@link Alu#rotate(RotDir, int)}.
+     *
+     * @param d direction of the rotation
+     * @param v 8-bit value
+     * @return the result and the flags Z00C
+     */
+    public static int rotate(RotDir d, int v) {
+        return entry(ROTATE, (d.ordinal() << 8) | v);
+    }
+
+    /**
+     * Returns the rotation of v through the carry c in direction d, like
+     * {@link Alu#rotate(RotDir, int, boolean)}.
+     *
+     * @param d direction of the rotation
+     * @param v 8-bit value
+     * @param c carry
+     * @return the result and the flags Z00C
+     */
+    public static int rotate(RotDir d, int v, boolean c) {
+        return entry(ROTATE_CARRY, (d.ordinal() << 9) | (c ? 1 << 8 : 0) | v);
+    }
+
+    /**
+     * Swaps the 4 LSB and the 4 MSB of v, like {@link Alu#swap(int)}.
+     *
+     * @param v 8-bit value
+     * @return the result and the flags Z000
+     */
+    public static int swap(int v) {
+        return entry(SWAP, v);
+    }
+
+    /**
+     * Adjusts v to binary coded decimal, like
+     * {@link Alu#bcdAdjust(int, boolean, boolean, boolean)}.
+     *
+     * @param v 8-bit value
+     * @param n flag N
+     * @param h flag H
+     * @param c flag C
+     * @return the result and the flags ZN0C
+     */
+    public static int bcdAdjust(int v, boolean n, boolean h, boolean c) {
+        return entry(BCD_ADJUST,
+                (n ? 1 << 10 : 0) | (h ? 1 << 9 : 0) | (c ? 1 << 8 : 0) | v);
+    }
+}
@@ -0,0 +1,27 @@
+package ch.epfl.gameboj.component.lcd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a copy to the object attribute memory by
+ * DMA, from its start to its end
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+@Name("ch.epfl.gameboj.Dma")
+@Label("DMA Transfer")
+@Category("Gameboj")
+@Description("Copy of 160 bytes to the object attribute memory")
+final class DmaEvent extends jdk.jfr.Event {
+
+    @Label("Source")
+    @Description("Address of the first byte copied")
+    int source;
+
+    @Label("Start Cycle")
+    long startCycle;
+}
@@ -0,0 +1,28 @@
+package ch.epfl.gameboj.component.lcd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning a frame of the LCD controller, from one
+ * VBlank to the next, so that its duration is the wall-clock time taken to
+ * emulate the frame
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+@Name("ch.epfl.gameboj.Frame")
+@Label("Frame Completed")
+@Category("Gameboj")
+@Description("Emulation of a frame, ending at its VBlank")
+final class FrameEvent extends jdk.jfr.Event {
+
+    @Label("Frame")
+    long frame;
+
+    @Label("Cycle")
+    @Description("Cycle of the VBlank ending the frame")
+    long cycle;
+}
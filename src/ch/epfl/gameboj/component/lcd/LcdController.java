@@ -7,18 +7,19 @@ import ch.epfl.gameboj.bits.Bits;
 import ch.epfl.gameboj.component.Clocked;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.cpu.Cpu;
-import ch.epfl.gameboj.component.memory.Ram;
 
 import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * Represents a Lcd controller
+ * Represents a Lcd controller. All its state, registers included, belongs to
+ * the instance, which must only be used by one thread at a time; the thread
+ * of the pipelined rendering only receives copies of the video memories
  *
  * @author Lucie Hoffmann (286865)
  * @author Marie Jaillot (270130)
  */
-public final class LcdController implements Component, Clocked {
+public final class LcdController implements Component, Clocked, AutoCloseable {
 
     public static final int LCD_WIDTH = 160;
     public static final int LCD_HEIGHT = 144;
@@ -45,18 +46,25 @@ public final class LcdController implements Component, Clocked {
     private static final int SPRITE_CHARACTERISICS_INDEX = 3;
     private static final int SPRITE_ATTRIBUTES_SIZE = 4;
 
-    private Cpu cpu;
-    private Ram videoRam;
-    private Ram oam;
+    private final Cpu cpu;
+    private final VideoMemory videoRam;
+    private final VideoMemory oam;
     private Bus bus;
-    private LcdImage.Builder nextImageBuilder;
+    private PendingFrame nextFrame;
+    private PendingFrame lastFrame;
     private long nextNonIdleCycle;
     private int winY;
     private LcdImage currentImage;
     private int copyIndex;
     private boolean turnOnScreen;
-
-    private static final RegisterFile<Reg> regFile = new RegisterFile<>(
+    private RenderingMode renderingMode;
+    private PipelinedRenderer renderer;
+    private long frameCount;
+    private long renderedLines;
+    private FrameEvent frameEvent;
+    private DmaEvent dmaEvent;
+
+    private final RegisterFile<Reg> regFile = new RegisterFile<>(
             Reg.values());
 
     /**
@@ -82,6 +90,51 @@ public final class LcdController implements Component, Clocked {
         M0, M1, M2, M3
     }
 
+    /**
+     * Moments at which the lines of the image are computed
+     */
+    public enum RenderingMode {
+        /**
+         * each line is computed as soon as it is reached (mode 2)
+         */
+        EAGER,
+        /**
+         * only the state of each line and snapshots of the video memory are
+         * stored, the lines being computed when the image is requested
+         */
+        LAZY,
+        /**
+         * the lines are computed by a dedicated thread, from snapshots of the
+         * video memory, while the emulation goes on
+         */
+        PIPELINED
+    }
+
+    /**
+     * Image in construction, which lines can be waiting to be computed from
+     * their state and the snapshots of the video memory taken with it
+     */
+    private static final class PendingFrame {
+        private final LcdImage.Builder builder = new LcdImage.Builder(
+                LCD_WIDTH, LCD_HEIGHT);
+        private final LcdLineState[] states = new LcdLineState[LCD_HEIGHT];
+        private final VideoMemory[] videoRams = new VideoMemory[LCD_HEIGHT];
+        private final VideoMemory[] oams = new VideoMemory[LCD_HEIGHT];
+        private int firstPending = 0;
+        private int endPending = 0;
+
+        private void record(LcdLineState state, VideoMemory videoRam,
+                VideoMemory oam) {
+            int line = state.line();
+            if (firstPending == endPending)
+                firstPending = line;
+            states[line] = state;
+            videoRams[line] = videoRam;
+            oams[line] = oam;
+            endPending = line + 1;
+        }
+    }
+
     /**
      * Constructs an lcd controller belonging to the given cpu.
      *
@@ -89,12 +142,161 @@ public final class LcdController implements Component, Clocked {
      */
     public LcdController(Cpu cpu) {
         this.cpu = cpu;
-        videoRam = new Ram(AddressMap.VIDEO_RAM_SIZE);
-        oam = new Ram(AddressMap.OAM_RAM_SIZE);
+        videoRam = new VideoMemory(AddressMap.VIDEO_RAM_SIZE);
+        oam = new VideoMemory(AddressMap.OAM_RAM_SIZE);
         currentImage = new LcdImage.Builder(LCD_WIDTH, LCD_HEIGHT).build();
         nextNonIdleCycle = Long.MAX_VALUE;
         winY = 0;
         copyIndex = LCD_WIDTH;
+        renderingMode = RenderingMode.EAGER;
+        renderer = null;
+        frameCount = 0;
+        renderedLines = 0;
+        frameEvent = new FrameEvent();
+        frameEvent.begin();
+        dmaEvent = null;
+    }
+
+    /**
+     * Changes the moment at which the lines of the image are computed. The
+     * thread used by the pipelined mode is stopped when another mode is
+     * chosen.
+     *
+     * @param mode the new rendering mode
+     */
+    public void setRenderingMode(RenderingMode mode) {
+        Objects.requireNonNull(mode);
+
+        if (renderer != null && mode != RenderingMode.PIPELINED) {
+            renderer.stop();
+            renderer = null;
+        } else if (renderer == null && mode == RenderingMode.PIPELINED)
+            renderer = new PipelinedRenderer(this::computeLine);
+
+        renderingMode = mode;
+    }
+
+    /**
+     * Stops the thread of the pipelined rendering, if any, once it has
+     * computed the pending lines. The controller then renders in the eager
+     * mode, and can still be used.
+     */
+    @Override public void close() {
+        setRenderingMode(RenderingMode.EAGER);
+    }
+
+    /**
+     * Returns the moment at which the lines of the image are computed.
+     *
+     * @return the current rendering mode
+     */
+    public RenderingMode renderingMode() {
+        return renderingMode;
+    }
+
+    /**
+     * Returns the number of frames completed, i.e. of VBlanks reached.
+     *
+     * @return the number of frames
+     */
+    public long frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of lines computed by the thread of the emulation,
+     * i.e. in the eager and lazy modes.
+     *
+     * @return the number of lines rendered
+     */
+    long renderedLines() {
+        return renderedLines;
+    }
+
+    /**
+     * Returns the first cycle at which the controller may access its
+     * registers and memories, or the bus for a DMA copy, or request an
+     * interruption, if its registers are not written until then.
+     *
+     * @return the cycle, Long.MIN_VALUE if the screen is being turned on or a
+     * DMA copy is running, and Long.MAX_VALUE if the screen is off
+     */
+    public long nextChangeCycle() {
+        if (copyIndex < LCD_WIDTH || (nextNonIdleCycle == Long.MAX_VALUE
+                && regFile.testBit(Reg.LCDC, LCDCBits.LCD_STATUS)))
+            return Long.MIN_VALUE;
+        return nextNonIdleCycle;
+    }
+
+    /**
+     * Returns the first cycle at which the controller may change LY, if its
+     * registers are not written until then.
+     *
+     * @return the cycle, Long.MIN_VALUE if the screen is being turned on or a
+     * DMA copy is running, and Long.MAX_VALUE if the screen is off
+     */
+    public long nextLineCycle() {
+        long next = nextChangeCycle();
+        return drawsLine(next) ? lineEndCycle() : next;
+    }
+
+    /**
+     * Returns the first cycle at which the controller may request an
+     * interruption, if its registers are not written until then. Only the
+     * VBlank is anticipated, the LCD_STAT interruptions being possible at
+     * each change.
+     *
+     * @return the cycle, Long.MIN_VALUE if the screen is being turned on or a
+     * DMA copy is running, and Long.MAX_VALUE if the screen is off
+     */
+    public long nextInterruptCycle() {
+        long next = nextChangeCycle();
+        if (!drawsLine(next) || regFile.testBit(Reg.STAT, STATBits.INT_MODE0)
+                || regFile.testBit(Reg.STAT, STATBits.INT_MODE1)
+                || regFile.testBit(Reg.STAT, STATBits.INT_MODE2)
+                || regFile.testBit(Reg.STAT, STATBits.INT_LYC))
+            return next;
+
+        // The VBlank is requested at the end of the mode 2 following the
+        // last line
+        return lineEndCycle() + (long) (LCD_HEIGHT - 1 - regFile.get(Reg.LY))
+                * LINE_DRAW_DURATION + MODE2_DURATION;
+    }
+
+    /**
+     * Checks if the controller, whose next change is at the given cycle, is
+     * regularly drawing one of the lines of the screen.
+     */
+    private boolean drawsLine(long next) {
+        return next != Long.MIN_VALUE && next != Long.MAX_VALUE
+                && !turnOnScreen && regFile.get(Reg.LY) < LCD_HEIGHT;
+    }
+
+    /**
+     * Returns the cycle at which the line being drawn ends, LY being
+     * incremented at the end of its mode 0.
+     */
+    private long lineEndCycle() {
+        switch (getMode()) {
+        case M2:
+            return nextNonIdleCycle + MODE3_DURATION + MODE0_DURATION;
+        case M3:
+            return nextNonIdleCycle + MODE0_DURATION;
+        default:
+            return nextNonIdleCycle;
+        }
+    }
+
+    /**
+     * Delays the work of the controller by the given number of cycles, during
+     * which it was stopped with the CPU (see {@link Cpu#isStopped()}) and not
+     * cycled.
+     *
+     * @param cycles the number of cycles skipped
+     */
+    public void delay(long cycles) {
+        if (nextNonIdleCycle != Long.MAX_VALUE)
+            nextNonIdleCycle += cycles;
     }
 
     @Override public void cycle(long cycle) {
@@ -107,16 +309,20 @@ public final class LcdController implements Component, Clocked {
         }
 
         if (copyIndex < 160) {
-            oam.write(copyIndex,
+            if (copyIndex == 0)
+                dmaStarted(cycle);
+            writeVideoMemory(oam, copyIndex,
                     bus.read(Bits.make16(regFile.get(Reg.DMA), copyIndex)));
             copyIndex += 1;
+            if (copyIndex == 160)
+                dmaFinished();
         }
 
         if (cycle == nextNonIdleCycle)
-            reallyCycle();
+            reallyCycle(cycle);
     }
 
-    private void reallyCycle() {
+    private void reallyCycle(long cycle) {
 
         int currentLine = regFile.get(Reg.LY);
 
@@ -142,13 +348,27 @@ public final class LcdController implements Component, Clocked {
                 nextNonIdleCycle += MODE3_DURATION;
 
                 if (regFile.get(Reg.LY) == 0) {
-                    nextImageBuilder = new LcdImage.Builder(LCD_WIDTH,
-                            LCD_HEIGHT);
+                    nextFrame = new PendingFrame();
                     winY = 0;
                 }
 
                 setMode(Mode.M3);
-                nextImageBuilder.setLine(currentLine, computeLine(currentLine));
+                LcdLineState state = lineState(currentLine);
+                switch (renderingMode) {
+                case EAGER:
+                    nextFrame.builder.setLine(currentLine,
+                            computeLine(state, videoRam, oam));
+                    renderedLines += 1;
+                    break;
+                case LAZY:
+                    nextFrame.record(state, videoRam.snapshot(),
+                            oam.snapshot());
+                    break;
+                case PIPELINED:
+                    renderer.publish(nextFrame.builder, state,
+                            videoRam.snapshot(), oam.snapshot());
+                    break;
+                }
             }
             break;
 
@@ -167,10 +387,13 @@ public final class LcdController implements Component, Clocked {
             if (currentLine == LCD_HEIGHT) {
                 setMode(Mode.M1);
 
-                currentImage = nextImageBuilder.build();
+                lastFrame = nextFrame;
+                if (renderingMode == RenderingMode.EAGER)
+                    buildLastFrame();
                 cpu.requestInterrupt(Cpu.Interrupt.VBLANK);
+                frameCompleted(cycle);
 
-                nextImageBuilder = null;
+                nextFrame = null;
             }
 
             if (currentLine < LY_MAX_VALUE)
@@ -234,11 +457,12 @@ public final class LcdController implements Component, Clocked {
 
         if (AddressMap.VIDEO_RAM_START <= address
                 && address < AddressMap.VIDEO_RAM_END)
-            videoRam.write(address - AddressMap.VIDEO_RAM_START, data);
+            writeVideoMemory(videoRam, address - AddressMap.VIDEO_RAM_START,
+                    data);
 
         else if (AddressMap.OAM_START <= address
                 && address < AddressMap.OAM_END)
-            oam.write(address - AddressMap.OAM_START, data);
+            writeVideoMemory(oam, address - AddressMap.OAM_START, data);
 
         else if (AddressMap.REGS_LCDC_START <= address
                 && address < AddressMap.REGS_LCDC_END) {
@@ -276,6 +500,36 @@ public final class LcdController implements Component, Clocked {
         }
     }
 
+    /**
+     * Commits the flight recorder event of the frame ending at the given
+     * cycle, if it is recorded, and begins the one of the next frame.
+     */
+    private void frameCompleted(long cycle) {
+        frameCount += 1;
+        if (frameEvent.shouldCommit()) {
+            frameEvent.frame = frameCount;
+            frameEvent.cycle = cycle;
+            frameEvent.commit();
+        }
+        frameEvent = new FrameEvent();
+        frameEvent.begin();
+    }
+
+    private void dmaStarted(long cycle) {
+        dmaEvent = new DmaEvent();
+        if (dmaEvent.isEnabled()) {
+            dmaEvent.source = Bits.make16(regFile.get(Reg.DMA), 0);
+            dmaEvent.startCycle = cycle;
+            dmaEvent.begin();
+        }
+    }
+
+    private void dmaFinished() {
+        if (dmaEvent != null)
+            dmaEvent.commit();
+        dmaEvent = null;
+    }
+
     private void modifLY_LYC(Reg LYorLYC, int data) {
 
         regFile.set(LYorLYC, data);
@@ -294,63 +548,133 @@ public final class LcdController implements Component, Clocked {
      */
     public LcdImage currentImage() {
         // retourne toujours une image non nulle de 160×144 pixels
+        if (lastFrame != null)
+            buildLastFrame();
+
         return currentImage;
     }
 
-    private LcdImageLine computeLine(int indexLine) {
-        Objects.checkIndex(indexLine, LCD_HEIGHT);
+    /**
+     * Computes the remaining lines of the last complete frame and makes it
+     * the current image.
+     */
+    private void buildLastFrame() {
+        if (renderer != null)
+            renderer.awaitIdle();
+        renderPendingLines(lastFrame);
+        currentImage = lastFrame.builder.build();
+        lastFrame = null;
+    }
+
+    /**
+     * Writes the given data in the given video memory, if it changes its
+     * content, the pending lines keeping their snapshot of the previous one.
+     *
+     * @param ram   video ram or oam
+     * @param index in the ram
+     * @param data  8-bits value to write
+     */
+    private void writeVideoMemory(VideoMemory memory, int index, int data) {
+        if (memory.read(index) != data)
+            memory.write(index, data);
+    }
 
-        int lineToCompute = Bits.clip(8, indexLine + regFile.get(Reg.SCY));
+    private void renderPendingLines(PendingFrame frame) {
+        for (int i = frame.firstPending; i < frame.endPending; ++i) {
+            LcdLineState state = frame.states[i];
+            assert state.vramVersion() == frame.videoRams[i].version()
+                    && state.oamVersion() == frame.oams[i].version() :
+                    "Snapshot of the video memory taken after the line";
+
+            frame.builder.setLine(i,
+                    computeLine(state, frame.videoRams[i], frame.oams[i]));
+            renderedLines += 1;
+            frame.states[i] = null;
+            frame.videoRams[i] = null;
+            frame.oams[i] = null;
+        }
+        frame.firstPending = frame.endPending;
+    }
+
+    /**
+     * Takes the state of the registers needed to compute the given line, and
+     * advances the window's line if the window is drawn on it.
+     *
+     * @param indexLine index of the line
+     * @return the state of the given line
+     */
+    private LcdLineState lineState(int indexLine) {
+        int wy = regFile.get(Reg.WY);
+        int wx = Math.max(regFile.get(Reg.WX) - SET_WX, 0);
+        boolean drawWin =
+                regFile.testBit(Reg.LCDC, LCDCBits.WIN) && wx < LCD_WIDTH
+                        && wy <= indexLine;
+        int winLine = -1;
+
+        if (drawWin) {
+            winLine = winY;
+            winY += 1;
+        }
+
+        return new LcdLineState(indexLine, regFile.get(Reg.LCDC),
+                regFile.get(Reg.SCY), regFile.get(Reg.SCX),
+                regFile.get(Reg.BGP), regFile.get(Reg.OBP0),
+                regFile.get(Reg.OBP1), regFile.get(Reg.WX), wy, winLine,
+                videoRam.version(), oam.version());
+    }
+
+    private LcdImageLine computeLine(LcdLineState state, VideoMemory videoRam,
+            VideoMemory oam) {
+        int indexLine = Objects.checkIndex(state.line(), LCD_HEIGHT);
+        int lcdc = state.lcdc();
+
+        int lineToCompute = Bits.clip(8, indexLine + state.scy());
         LcdImageLine completeLine = new LcdImageLine.Builder(BG_PIXEL_SIZE)
                 .build();
 
-        boolean drawBg = regFile.testBit(Reg.LCDC, LCDCBits.BG);
+        boolean drawBg = Bits.test(lcdc, LCDCBits.BG);
 
-        int palette = regFile.get(Reg.BGP);
+        int palette = state.bgp();
 
         //======================================================================
         // Background drawing
 
         if (drawBg) {
-            int plageBg = regFile.testBit(Reg.LCDC, LCDCBits.BG_AREA) ?
+            int plageBg = Bits.test(lcdc, LCDCBits.BG_AREA) ?
                     AddressMap.BG_DISPLAY_DATA[1] :
                     AddressMap.BG_DISPLAY_DATA[0];
-            completeLine = constructFromTiles(BG_SIZE, plageBg, lineToCompute)
-                    .extractWrapped(regFile.get(Reg.SCX), LCD_WIDTH)
+            completeLine = constructFromTiles(BG_SIZE, plageBg, lineToCompute,
+                    lcdc, videoRam).extractWrapped(state.scx(), LCD_WIDTH)
                     .mapColors(palette);
         }
 
         //======================================================================
         // Window drawing
 
-        int wy = regFile.get(Reg.WY);
-        int wx = Math.max(regFile.get(Reg.WX) - SET_WX, 0);
-        boolean drawWin =
-                regFile.testBit(Reg.LCDC, LCDCBits.WIN) && wx < LCD_WIDTH
-                        && wy <= indexLine;
-
-        if (drawWin) {
-            int plageWin = regFile.testBit(Reg.LCDC, LCDCBits.WIN_AREA) ?
+        if (state.winLine() >= 0) {
+            int wx = Math.max(state.wx() - SET_WX, 0);
+            int plageWin = Bits.test(lcdc, LCDCBits.WIN_AREA) ?
                     AddressMap.BG_DISPLAY_DATA[1] :
                     AddressMap.BG_DISPLAY_DATA[0];
 
-            LcdImageLine winLine = constructFromTiles(WIN_SIZE, plageWin, winY)
-                    .shift(wx).mapColors(palette);
+            LcdImageLine winLine = constructFromTiles(WIN_SIZE, plageWin,
+                    state.winLine(), lcdc, videoRam).shift(wx)
+                    .mapColors(palette);
 
             completeLine = completeLine.join(winLine, wx);
-            winY += 1;
         }
 
         //======================================================================
         // Sprites drawing
 
-        if (regFile.testBit(Reg.LCDC, LCDCBits.OBJ)) {
+        if (Bits.test(lcdc, LCDCBits.OBJ)) {
             LcdImageLine spritesLineBg = new LcdImageLine.Builder(LCD_WIDTH)
                     .build();
             LcdImageLine spritesLineFg = new LcdImageLine.Builder(LCD_WIDTH)
                     .build();
 
-            int[] spritesTable = spritesIntersectingLine(indexLine);
+            int[] spritesTable = spritesIntersectingLine(indexLine, lcdc,
+                    oam);
 
             for (int spriteIndex : spritesTable) {
 
@@ -367,20 +691,21 @@ public final class LcdController implements Component, Clocked {
 
                 boolean flipV = Bits.test(spriteChars, SpriteBits.FLIP_V);
                 int spriteLine = lineToCompute - coordY;
-                int spriteHeight = regFile
-                        .testBit(Reg.LCDC, LCDCBits.OBJ_SIZE) ?
+                int spriteHeight = Bits.test(lcdc, LCDCBits.OBJ_SIZE) ?
                         BIG_TILE_HEIGHT :
                         TILE_SIZE;
 
                 spriteLine = flipV ? spriteHeight - 1 - spriteLine : spriteLine;
 
                 boolean flipH = Bits.test(spriteChars, SpriteBits.FLIP_H);
-                int lsb = getByte(spriteIndex, spriteLine, true, flipH);
-                int msb = getByte(spriteIndex, spriteLine, false, flipH);
+                int lsb = getByte(spriteIndex, spriteLine, true, flipH,
+                        videoRam, oam);
+                int msb = getByte(spriteIndex, spriteLine, false, flipH,
+                        videoRam, oam);
 
                 int paletteSprite = Bits.test(spriteChars, SpriteBits.PALETTE) ?
-                        regFile.get(Reg.OBP1) :
-                        regFile.get(Reg.OBP0);
+                        state.obp1() :
+                        state.obp0();
 
                 LcdImageLine singleSpriteLine = singleSpriteLineBuilder
                         .setBytes(0, msb, lsb).build().shift(coordX)
@@ -406,7 +731,7 @@ public final class LcdController implements Component, Clocked {
     }
 
     private int getByte(int indexSprite, int currentLine, boolean lsb,
-            boolean flipH) {
+            boolean flipH, VideoMemory videoRam, VideoMemory oam) {
         int lsbOrMsb = lsb ? 0 : 1;
         int plageTile = AddressMap.TILE_SOURCE[1];
         int indexTile = oam
@@ -414,33 +739,39 @@ public final class LcdController implements Component, Clocked {
         int addressByte = plageTile + indexTile * 16 + currentLine * 2;
 
         if (flipH)
-            return read(addressByte + lsbOrMsb);
+            return readVideoRam(videoRam, addressByte + lsbOrMsb);
         else
-            return Bits.reverse8(read(addressByte + lsbOrMsb));
+            return Bits.reverse8(
+                    readVideoRam(videoRam, addressByte + lsbOrMsb));
+    }
+
+    private static int readVideoRam(VideoMemory videoRam, int address) {
+        return videoRam.read(address - AddressMap.VIDEO_RAM_START);
     }
 
     private LcdImageLine constructFromTiles(int size, int plage,
-            int indexLine) {
+            int indexLine, int lcdc, VideoMemory videoRam) {
         LcdImageLine.Builder currentLineBuilder = new LcdImageLine.Builder(
                 size * TILE_SIZE);
 
         int tileLineIndex = Bits.extract(indexLine, 3, 5);
         int lineInTileIndex = Bits.clip(3, indexLine);
 
-        int plageTile = regFile.testBit(Reg.LCDC, LCDCBits.TILE_SOURCE) ?
+        int plageTile = Bits.test(lcdc, LCDCBits.TILE_SOURCE) ?
                 AddressMap.TILE_SOURCE[1] :
                 AddressMap.TILE_SOURCE[0];
 
         for (int column = 0; column < size; ++column) {
 
-            int indexTile = read(plage + column + tileLineIndex * BG_SIZE);
+            int indexTile = readVideoRam(videoRam,
+                    plage + column + tileLineIndex * BG_SIZE);
 
             if (plageTile == AddressMap.TILE_SOURCE[0])
                 indexTile = Bits.clip(8, indexTile + TILE_SHIFT_INDEX);
 
             int bytesAddress = plageTile + indexTile * 16 + lineInTileIndex * 2;
-            int LSB8 = read(bytesAddress);
-            int MSB8 = read(bytesAddress + 1);
+            int LSB8 = readVideoRam(videoRam, bytesAddress);
+            int MSB8 = readVideoRam(videoRam, bytesAddress + 1);
 
             currentLineBuilder
                     .setBytes(column, Bits.reverse8(MSB8), Bits.reverse8(LSB8));
@@ -450,8 +781,9 @@ public final class LcdController implements Component, Clocked {
         return currentLineBuilder.build();
     }
 
-    private int[] spritesIntersectingLine(int currentLine) {
-        int spriteHeight = regFile.testBit(Reg.LCDC, LCDCBits.OBJ_SIZE) ?
+    private int[] spritesIntersectingLine(int currentLine, int lcdc,
+            VideoMemory oam) {
+        int spriteHeight = Bits.test(lcdc, LCDCBits.OBJ_SIZE) ?
                 BIG_TILE_HEIGHT :
                 TILE_SIZE;
         int[] infoSprites = new int[MAX_SPRITES_PER_LINE];
@@ -0,0 +1,103 @@
+package ch.epfl.gameboj.component.lcd;
+
+/**
+ * Represents the state of the lcd controller's registers which are needed to
+ * compute one line of the image (immutable)
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class LcdLineState {
+
+    private final int line;
+    private final int lcdc, scy, scx, bgp, obp0, obp1, wx, wy;
+    private final int winLine;
+    private final int vramVersion, oamVersion;
+
+    /**
+     * Constructs the state of a line.
+     *
+     * @param line        index of the line on the screen
+     * @param lcdc        value of register LCDC
+     * @param scy         value of register SCY
+     * @param scx         value of register SCX
+     * @param bgp         value of register BGP
+     * @param obp0        value of register OBP0
+     * @param obp1        value of register OBP1
+     * @param wx          value of register WX
+     * @param wy          value of register WY
+     * @param winLine     index of the line of the window drawn on this line,
+     *                    or -1 if the window is not drawn
+     * @param vramVersion version of the video ram when the state was taken
+     * @param oamVersion  version of the oam when the state was taken
+     */
+    LcdLineState(int line, int lcdc, int scy, int scx, int bgp, int obp0,
+            int obp1, int wx, int wy, int winLine, int vramVersion,
+            int oamVersion) {
+        this.line = line;
+        this.lcdc = lcdc;
+        this.scy = scy;
+        this.scx = scx;
+        this.bgp = bgp;
+        this.obp0 = obp0;
+        this.obp1 = obp1;
+        this.wx = wx;
+        this.wy = wy;
+        this.winLine = winLine;
+        this.vramVersion = vramVersion;
+        this.oamVersion = oamVersion;
+    }
+
+    int line() {
+        return line;
+    }
+
+    int lcdc() {
+        return lcdc;
+    }
+
+    int scy() {
+        return scy;
+    }
+
+    int scx() {
+        return scx;
+    }
+
+    int bgp() {
+        return bgp;
+    }
+
+    int obp0() {
+        return obp0;
+    }
+
+    int obp1() {
+        return obp1;
+    }
+
+    int wx() {
+        return wx;
+    }
+
+    int wy() {
+        return wy;
+    }
+
+    /**
+     * Returns the index of the line of the window drawn on this line.
+     *
+     * @return an integer, -1 if the window is not drawn on this line
+     */
+    int winLine() {
+        return winLine;
+    }
+
+    int vramVersion() {
+        return vramVersion;
+    }
+
+    int oamVersion() {
+        return oamVersion;
+    }
+}
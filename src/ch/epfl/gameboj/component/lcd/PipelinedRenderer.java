@@ -0,0 +1,163 @@
+package ch.epfl.gameboj.component.lcd;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Computes the lines of the images on a dedicated thread, from the line
+ * states and video memory snapshots published by the lcd controller
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class PipelinedRenderer {
+
+    private static final int RING_CAPACITY = 256;
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 20_000;
+    // bounds the delay of a wake up missed between the check of the ring and
+    // the parking of the thread
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    /**
+     * Function computing a line from its state and the video memory
+     */
+    interface LineComputer {
+        LcdImageLine computeLine(LcdLineState state, VideoMemory videoRam,
+                VideoMemory oam);
+    }
+
+    /**
+     * A line to compute and the image in which to put it (immutable)
+     */
+    private static final class Task {
+        private final LcdImage.Builder builder;
+        private final LcdLineState state;
+        private final VideoMemory videoRam;
+        private final VideoMemory oam;
+
+        private Task(LcdImage.Builder builder, LcdLineState state,
+                VideoMemory videoRam, VideoMemory oam) {
+            this.builder = builder;
+            this.state = state;
+            this.videoRam = videoRam;
+            this.oam = oam;
+        }
+    }
+
+    private final LineComputer computer;
+    private final SpscRing<Task> ring = new SpscRing<>(RING_CAPACITY);
+    private final AtomicLong rendered = new AtomicLong();
+    private final Thread thread;
+    private long published;
+    private volatile boolean running;
+    private volatile boolean waiting;
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructs and starts a renderer using the given function to compute
+     * the lines.
+     *
+     * @param computer function computing the lines
+     */
+    PipelinedRenderer(LineComputer computer) {
+        this.computer = Objects.requireNonNull(computer);
+
+        published = 0;
+        running = true;
+        thread = new Thread(this::run, "gameboj-lcd-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gives a line to compute to the renderer, which puts it in the given
+     * image builder once computed. Blocks while the renderer is too late.
+     *
+     * @param builder  image builder in which to put the line
+     * @param state    state of the line
+     * @param videoRam snapshot of the video ram
+     * @param oam      snapshot of the oam
+     */
+    void publish(LcdImage.Builder builder, LcdLineState state,
+            VideoMemory videoRam, VideoMemory oam) {
+        Task task = new Task(builder, state, videoRam, oam);
+        int spins = 0;
+        while (!ring.offer(task))
+            pause(++spins);
+
+        published += 1;
+        if (waiting)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Waits until all the published lines have been put in their image.
+     *
+     * @throws IllegalStateException if the computation of a line failed
+     */
+    void awaitIdle() {
+        int spins = 0;
+        while (rendered.get() < published && failure == null)
+            pause(++spins);
+
+        if (failure != null)
+            throw new IllegalStateException(failure);
+    }
+
+    /**
+     * Waits until all the published lines have been computed, then stops the
+     * renderer's thread and waits for its end.
+     *
+     * @throws IllegalStateException if the computation of a line failed, the
+     *                               thread being stopped anyway
+     */
+    void stop() {
+        try {
+            awaitIdle();
+        } finally {
+            running = false;
+            LockSupport.unpark(thread);
+
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            Task task = ring.poll();
+            if (task == null) {
+                waiting = true;
+                if (ring.isEmpty() && running)
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                waiting = false;
+                continue;
+            }
+
+            try {
+                task.builder.setLine(task.state.line(), computer
+                        .computeLine(task.state, task.videoRam, task.oam));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            rendered.lazySet(rendered.get() + 1);
+        }
+    }
+
+    private static void pause(int spins) {
+        if (spins < SPINS_BEFORE_PARKING)
+            Thread.onSpinWait();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
+    }
+}
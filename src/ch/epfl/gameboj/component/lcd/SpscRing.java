@@ -0,0 +1,83 @@
+package ch.epfl.gameboj.component.lcd;
+
+import ch.epfl.gameboj.Preconditions;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer for exactly one producer thread and one consumer
+ * thread
+ *
+ * @param <E> type of the elements
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class SpscRing<E> {
+
+    private final Object[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Constructs an empty ring of the given capacity.
+     *
+     * @param capacity maximal number of elements, a power of two
+     * @throws IllegalArgumentException if the capacity is not a strictly
+     *                                  positive power of two
+     */
+    SpscRing(int capacity) {
+        Preconditions.checkArgument(
+                capacity > 0 && Integer.bitCount(capacity) == 1);
+
+        slots = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the given element at the end of the ring if it is not full. Must
+     * only be called by the producer thread.
+     *
+     * @param e the element to add
+     * @return true if the element was added, false if the ring is full
+     */
+    boolean offer(E e) {
+        Objects.requireNonNull(e);
+
+        long t = tail.get();
+        if (t - head.get() == slots.length)
+            return false;
+
+        slots[(int) t & mask] = e;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes and returns the first element of the ring. Must only be called
+     * by the consumer thread.
+     *
+     * @return the first element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked") E poll() {
+        long h = head.get();
+        if (h == tail.get())
+            return null;
+
+        int index = (int) h & mask;
+        E e = (E) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1);
+        return e;
+    }
+
+    /**
+     * Returns true if the ring contains no element.
+     *
+     * @return true if the ring is empty
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
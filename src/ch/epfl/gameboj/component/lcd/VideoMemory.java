@@ -0,0 +1,120 @@
+package ch.epfl.gameboj.component.lcd;
+
+import ch.epfl.gameboj.Preconditions;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Represents a video memory (video ram or oam) divided into pages which are
+ * copied on write once they have been shared with a snapshot, so that
+ * snapshots are immutable and can be read by another thread
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class VideoMemory {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final int size;
+    private final byte[][] pages;
+    private final boolean[] shared;
+    private int version;
+    private VideoMemory lastSnapshot;
+
+    /**
+     * Constructs a video memory of the given size, filled with 0.
+     *
+     * @param size number of bytes of the memory
+     * @throws IllegalArgumentException if the given size is negative
+     */
+    VideoMemory(int size) {
+        Preconditions.checkArgument(0 <= size);
+
+        this.size = size;
+        int nbPages = (size + PAGE_SIZE - 1) / PAGE_SIZE;
+        pages = new byte[nbPages][];
+        for (int i = 0; i < nbPages; ++i)
+            pages[i] = new byte[Math.min(PAGE_SIZE, size - i * PAGE_SIZE)];
+        shared = new boolean[nbPages];
+        version = 0;
+    }
+
+    private VideoMemory(VideoMemory memory) {
+        size = memory.size;
+        pages = Arrays.copyOf(memory.pages, memory.pages.length);
+        shared = new boolean[pages.length];
+        Arrays.fill(shared, true);
+        version = memory.version;
+    }
+
+    /**
+     * Gives the number of bytes in the memory.
+     *
+     * @return the size of the memory
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of writes which modified the memory.
+     *
+     * @return the version of the memory
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * Gives the byte at the given index in the memory.
+     *
+     * @param index of the byte we want to read
+     * @return the byte at the given index
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    int read(int index) {
+        Objects.checkIndex(index, size);
+
+        return Byte.toUnsignedInt(pages[index >>> PAGE_BITS][index & (PAGE_SIZE
+                - 1)]);
+    }
+
+    /**
+     * Replaces the byte at the given index by the given value, copying its
+     * page first if it is shared with a snapshot.
+     *
+     * @param index of the byte we want to modify
+     * @param value 8-bits value
+     * @throws IndexOutOfBoundsException if the index is invalid
+     */
+    void write(int index, int value) {
+        Objects.checkIndex(index, size);
+        Preconditions.checkBits8(value);
+
+        int page = index >>> PAGE_BITS;
+        if (shared[page]) {
+            pages[page] = pages[page].clone();
+            shared[page] = false;
+        }
+        pages[page][index & (PAGE_SIZE - 1)] = (byte) value;
+        version += 1;
+        lastSnapshot = null;
+    }
+
+    /**
+     * Returns an immutable copy of the current content of the memory. Pages
+     * are shared between the memory and its snapshots until they are written.
+     *
+     * @return a snapshot of the memory
+     */
+    VideoMemory snapshot() {
+        if (lastSnapshot == null) {
+            lastSnapshot = new VideoMemory(this);
+            Arrays.fill(shared, true);
+        }
+        return lastSnapshot;
+    }
+}
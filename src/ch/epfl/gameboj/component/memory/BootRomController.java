@@ -1,6 +1,7 @@
 package ch.epfl.gameboj.component.memory;
 
 import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
@@ -18,6 +19,7 @@ public final class BootRomController implements Component {
     private final Cartridge cartridge;
     private final Rom bootRom;
     private boolean activated;
+    private Bus mappedBus;
 
     /**
      * Constructs a Boot Rom controller
@@ -45,8 +47,31 @@ public final class BootRomController implements Component {
         Preconditions.checkBits16(address);
         Preconditions.checkBits8(data);
 
-        if (address == AddressMap.REG_BOOT_ROM_DISABLE)
+        if (address == AddressMap.REG_BOOT_ROM_DISABLE && activated) {
             activated = false;
+            if (mappedBus != null)
+                cartridge.mapTo(mappedBus);
+        }
         cartridge.write(address, data);
+
+        // A bank switch of the cartridge may have mapped the boot rom's page
+        if (activated && mappedBus != null)
+            mappedBus.unmap(AddressMap.BOOT_ROM_START, AddressMap.BOOT_ROM_END);
+    }
+
+    /**
+     * Maps the addresses of the given bus which can be read directly in the
+     * cartridge, except those of the boot rom while it is activated. The
+     * controller must be the only component reading at these addresses.
+     *
+     * @param bus the bus to which the controller is attached
+     */
+    public void mapTo(Bus bus) {
+        Objects.requireNonNull(bus);
+
+        mappedBus = bus;
+        cartridge.mapTo(bus);
+        if (activated)
+            bus.unmap(AddressMap.BOOT_ROM_START, AddressMap.BOOT_ROM_END);
     }
 }
@@ -1,9 +1,7 @@
 package ch.epfl.gameboj.component.memory;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
-import ch.epfl.gameboj.component.Component;
-
-import java.util.Objects;
 
 /**
  * a ram (random access memory)
@@ -14,6 +12,24 @@ import java.util.Objects;
 
 public final class Ram {
 
+    /**
+     * User of the bytes of a RAM, accessed directly at some addresses, such
+     * as the CPU
+     */
+    @FunctionalInterface
+    public interface Mapping {
+        /**
+         * Maps the given bytes from startAddress (included) to endAddress
+         * (excluded).
+         *
+         * @param startAddress first address mapped
+         * @param endAddress   first address not mapped
+         * @param data         bytes to map (not copied)
+         * @param index        index of the byte mapped at startAddress
+         */
+        void map(int startAddress, int endAddress, byte[] data, int index);
+    }
+
     private final byte[] data;
 
     /**
@@ -63,4 +79,34 @@ public final class Ram {
 
         data[index] = (byte) value;
     }
+
+    /**
+     * Maps the addresses from startAddress (included) to endAddress (excluded)
+     * of the given bus directly to the RAM, from the given index, for reading
+     * and writing.
+     *
+     * @param bus          the bus
+     * @param startAddress first address mapped, multiple of Bus.PAGE_SIZE
+     * @param endAddress   first address not mapped, multiple of Bus.PAGE_SIZE
+     * @param index        index of the byte mapped at startAddress
+     * @see Bus#map(int, int, byte[], int, boolean)
+     */
+    public void mapTo(Bus bus, int startAddress, int endAddress, int index) {
+        bus.map(startAddress, endAddress, data, index, true);
+    }
+
+    /**
+     * Gives the given mapping a direct access to the RAM, from the given
+     * index, at the addresses from startAddress (included) to endAddress
+     * (excluded).
+     *
+     * @param mapping      the mapping
+     * @param startAddress first address mapped
+     * @param endAddress   first address not mapped
+     * @param index        index of the byte mapped at startAddress
+     */
+    public void mapTo(Mapping mapping, int startAddress, int endAddress,
+            int index) {
+        mapping.map(startAddress, endAddress, data, index);
+    }
 }
@@ -1,5 +1,6 @@
 package ch.epfl.gameboj.component.memory;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 import ch.epfl.gameboj.component.Component;
 
@@ -82,4 +83,30 @@ public final class RamController implements Component {
         if (startAddress <= address && address < endAddress)
             controlledRam.write(address - startAddress, data);
     }
+
+    /**
+     * Maps the whole pages of the controlled addresses of the given bus
+     * directly to the RAM. The controller must be the only component using
+     * these addresses.
+     *
+     * @param bus the bus to which the controller is attached
+     */
+    public void mapTo(Bus bus) {
+        int start = Math.floorDiv(startAddress + Bus.PAGE_SIZE - 1,
+                Bus.PAGE_SIZE) * Bus.PAGE_SIZE;
+        int end = Math.floorDiv(endAddress, Bus.PAGE_SIZE) * Bus.PAGE_SIZE;
+        if (start < end)
+            controlledRam.mapTo(bus, start, end, start - startAddress);
+    }
+
+    /**
+     * Gives the given mapping, e.g. the CPU of the same bus, a direct access
+     * to the RAM at the controlled addresses. The controller must be the only
+     * component using these addresses.
+     *
+     * @param mapping the mapping
+     */
+    public void mapTo(Ram.Mapping mapping) {
+        controlledRam.mapTo(mapping, startAddress, endAddress, 0);
+    }
 }
@@ -1,5 +1,6 @@
 package ch.epfl.gameboj.component.memory;
 
+import ch.epfl.gameboj.Bus;
 import ch.epfl.gameboj.Preconditions;
 
 import java.util.Arrays;
@@ -48,4 +49,19 @@ final public class Rom {
 
         return Byte.toUnsignedInt(data[index]);
     }
+
+    /**
+     * Maps the addresses from startAddress (included) to endAddress (excluded)
+     * of the given bus directly to the ROM, from the given index, for reading
+     * only.
+     *
+     * @param bus          the bus
+     * @param startAddress first address mapped, multiple of Bus.PAGE_SIZE
+     * @param endAddress   first address not mapped, multiple of Bus.PAGE_SIZE
+     * @param index        index of the byte mapped at startAddress
+     * @see Bus#map(int, int, byte[], int, boolean)
+     */
+    public void mapTo(Bus bus, int startAddress, int endAddress, int index) {
+        bus.map(startAddress, endAddress, data, index, false);
+    }
 }
@@ -0,0 +1,193 @@
+package ch.epfl.gameboj.gui;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.Joypad;
+import ch.epfl.gameboj.component.lcd.LcdImage;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static ch.epfl.gameboj.component.lcd.LcdController.LCD_HEIGHT;
+import static ch.epfl.gameboj.component.lcd.LcdController.LCD_WIDTH;
+
+/**
+ * Runs a Game Boy on its own thread, paced by a frame pacer, and hands its
+ * images to the user interface through a triple buffer
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class Emulation {
+
+    static final long NO_INPUT = -1;
+
+    /**
+     * An image converted into pixels, with its number and the moment of the
+     * oldest input taken into account since the previous image
+     */
+    static final class Frame {
+        final int[] pixels = new int[LCD_WIDTH * LCD_HEIGHT];
+        long number = 0;
+        long inputNanos = NO_INPUT;
+    }
+
+    /**
+     * Pressure or release of a key (immutable)
+     */
+    private static final class KeyEvent {
+        private final Joypad.Key key;
+        private final boolean pressed;
+        private final long nanos;
+
+        private KeyEvent(Joypad.Key key, boolean pressed, long nanos) {
+            this.key = key;
+            this.pressed = pressed;
+            this.nanos = nanos;
+        }
+    }
+
+    private final GameBoy gameBoy;
+    private final FramePacer pacer;
+    private final TripleBuffer<Frame> frames = new TripleBuffer<>(
+            new Frame(), new Frame(), new Frame());
+    private final Queue<KeyEvent> keyEvents = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running;
+    private LcdImage lastImage;
+    private long pendingInputNanos;
+
+    /**
+     * Constructs the emulation of the given Game Boy, which must not be used
+     * by another thread once the emulation is started.
+     *
+     * @param gameBoy the Game Boy to emulate
+     * @param pacer   the pacer deciding when frames are emulated
+     */
+    Emulation(GameBoy gameBoy, FramePacer pacer) {
+        this.gameBoy = Objects.requireNonNull(gameBoy);
+        this.pacer = Objects.requireNonNull(pacer);
+
+        thread = new Thread(this::run, "gameboj-emulation");
+        thread.setDaemon(true);
+        lastImage = null;
+        pendingInputNanos = NO_INPUT;
+    }
+
+    /**
+     * Starts the emulation thread.
+     */
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the emulation thread, waits for its end and closes the Game Boy.
+     *
+     * @throws InterruptedException if the current thread is interrupted while
+     *                              waiting
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        pacer.wakeUp();
+        thread.join();
+        gameBoy.close();
+    }
+
+    /**
+     * Simulates the pressure of a key, at the next step of the emulation.
+     *
+     * @param key which is pressed
+     */
+    void keyPressed(Joypad.Key key) {
+        keyEvents.add(new KeyEvent(key, true, System.nanoTime()));
+    }
+
+    /**
+     * Simulates the releasing of a key, at the next step of the emulation.
+     *
+     * @param key which is released
+     */
+    void keyReleased(Joypad.Key key) {
+        keyEvents.add(new KeyEvent(key, false, System.nanoTime()));
+    }
+
+    /**
+     * Takes the latest image of the emulation, if there is a new one, when the
+     * display is refreshed. Must only be called by the user interface thread.
+     *
+     * @param now time of the refresh in nanoseconds
+     * @return true if the frame returned by frame() changed
+     */
+    boolean updateFrame(long now) {
+        boolean updated = frames.update();
+        pacer.displayRefreshed(now, updated, frames.front().number);
+
+        return updated;
+    }
+
+    /**
+     * Returns the pacer of the emulation.
+     *
+     * @return the pacer
+     */
+    FramePacer pacer() {
+        return pacer;
+    }
+
+    /**
+     * Returns the latest image taken by updateFrame. Must only be called by
+     * the user interface thread.
+     *
+     * @return the latest image taken
+     */
+    Frame frame() {
+        return frames.front();
+    }
+
+    private void run() {
+        pacer.start(System.nanoTime());
+
+        while (running) {
+            applyKeyEvents();
+
+            int frames = pacer.framesToEmulate(System.nanoTime());
+            if (frames > 0) {
+                gameBoy.runUntil(
+                        gameBoy.cycles() + frames * GameBoy.FRAME_CYCLES);
+                publishImage();
+            }
+
+            pacer.awaitNextFrame();
+        }
+    }
+
+    private void applyKeyEvents() {
+        KeyEvent e;
+        while ((e = keyEvents.poll()) != null) {
+            if (e.pressed)
+                gameBoy.joypad().keyPressed(e.key);
+            else
+                gameBoy.joypad().keyReleased(e.key);
+
+            if (pendingInputNanos == NO_INPUT)
+                pendingInputNanos = e.nanos;
+        }
+    }
+
+    private void publishImage() {
+        LcdImage image = gameBoy.lcdController().currentImage();
+        if (image == lastImage)
+            return;
+
+        Frame frame = frames.back();
+        ImageConverter.convert(image, frame.pixels);
+        frame.number = pacer.frameNumber();
+        frame.inputNanos = pendingInputNanos;
+        frames.publish();
+
+        lastImage = image;
+        pendingInputNanos = NO_INPUT;
+    }
+}
@@ -0,0 +1,178 @@
+package ch.epfl.gameboj.gui;
+
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.Preconditions;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides how many frames the emulation must produce to follow the frame
+ * rate of the Game Boy's screen (about 59.7 Hz), either with its own clock or
+ * synchronized with the refreshes of the host's display
+ *
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class FramePacer {
+
+    static final double FRAME_NANOS =
+            GameBoy.FRAME_CYCLES / GameBoy.CYCLES_PER_NANOSECOND;
+    static final int DEFAULT_MAX_CATCH_UP_FRAMES = 4;
+
+    // maximal time waited for a refresh of the display before using the
+    // pacer's own clock
+    private static final long MAX_REFRESH_WAIT_NANOS = (long) (2 * FRAME_NANOS);
+
+    private final int maxCatchUpFrames;
+    private final boolean displaySync;
+
+    // Used by the emulation thread only
+    private long reference;
+    private long nextFrame;
+    private volatile Thread waiter;
+
+    // Written by the display thread only
+    private volatile long lastRefreshNanos;
+    private volatile long refreshes;
+    private long lastShownFrame;
+    private volatile long droppedFrames;
+    private volatile long duplicatedFrames;
+
+    /**
+     * Constructs a pacer.
+     *
+     * @param maxCatchUpFrames maximal number of frames emulated at once to
+     *                         catch up with the clock, the late frames beyond
+     *                         it being dropped
+     * @param displaySync      true if the frames must be produced at the
+     *                         refreshes of the display
+     * @throws IllegalArgumentException if maxCatchUpFrames is not strictly
+     *                                  positive
+     */
+    FramePacer(int maxCatchUpFrames, boolean displaySync) {
+        Preconditions.checkArgument(maxCatchUpFrames > 0);
+
+        this.maxCatchUpFrames = maxCatchUpFrames;
+        this.displaySync = displaySync;
+        reference = 0;
+        nextFrame = 0;
+        lastShownFrame = 0;
+    }
+
+    /**
+     * Starts the clock of the pacer at the given time. Must be called by the
+     * emulation thread before any other method.
+     *
+     * @param now current time in nanoseconds
+     */
+    void start(long now) {
+        reference = now;
+        lastRefreshNanos = now;
+        nextFrame = 0;
+        waiter = Thread.currentThread();
+    }
+
+    /**
+     * Returns the number of frames to emulate now. The frames which are late
+     * by more than the catch-up limit are skipped.
+     *
+     * @param now current time in nanoseconds
+     * @return a number of frames between 0 and the catch-up limit
+     */
+    int framesToEmulate(long now) {
+        long time = displaySync ? Math.max(lastRefreshNanos, reference) : now;
+        double late = (time - reference) / FRAME_NANOS - nextFrame;
+        long frames = displaySync ? Math.round(late) : (long) Math.floor(late);
+
+        if (frames > maxCatchUpFrames) {
+            nextFrame += frames - maxCatchUpFrames;
+            frames = maxCatchUpFrames;
+        }
+        frames = Math.max(0, frames);
+        nextFrame += frames;
+
+        return (int) frames;
+    }
+
+    /**
+     * Returns the number of the last frame to emulate, counting the skipped
+     * ones.
+     *
+     * @return the number of the last frame
+     */
+    long frameNumber() {
+        return nextFrame;
+    }
+
+    /**
+     * Waits until the next frame must be emulated, or until the next refresh
+     * of the display if the pacer is synchronized with it.
+     */
+    void awaitNextFrame() {
+        if (displaySync) {
+            long refreshesBefore = refreshes;
+            long end = System.nanoTime() + MAX_REFRESH_WAIT_NANOS;
+            long remaining;
+            while (refreshes == refreshesBefore
+                    && (remaining = end - System.nanoTime()) > 0)
+                LockSupport.parkNanos(this, remaining);
+        } else {
+            long deadline = reference + (long) (nextFrame * FRAME_NANOS);
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0
+                    && !Thread.currentThread().isInterrupted())
+                LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    /**
+     * Wakes up the emulation thread if it waits for the display.
+     */
+    void wakeUp() {
+        Thread t = waiter;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * Signals a refresh of the display, and whether it shows a new frame.
+     * Must only be called by the display thread.
+     *
+     * @param now         time of the refresh in nanoseconds
+     * @param newFrame    true if a new frame is shown
+     * @param frameNumber number of the frame shown, if it is a new one
+     */
+    void displayRefreshed(long now, boolean newFrame, long frameNumber) {
+        if (newFrame) {
+            if (lastShownFrame > 0 && frameNumber > lastShownFrame + 1)
+                droppedFrames += frameNumber - lastShownFrame - 1;
+            lastShownFrame = frameNumber;
+        } else if (lastShownFrame > 0)
+            duplicatedFrames += 1;
+
+        lastRefreshNanos = now;
+        refreshes += 1;
+        if (displaySync)
+            wakeUp();
+    }
+
+    /**
+     * Returns the number of frames which were never shown, because they were
+     * skipped or replaced by a newer one before the display was refreshed.
+     *
+     * @return the number of dropped frames
+     */
+    long droppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Returns the number of refreshes of the display which showed the same
+     * frame again.
+     *
+     * @return the number of duplicated frames
+     */
+    long duplicatedFrames() {
+        return duplicatedFrames;
+    }
+}
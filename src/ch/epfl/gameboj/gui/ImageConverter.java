@@ -40,4 +40,21 @@ public final class ImageConverter {
 
         return writableImage;
     }
+
+    /**
+     * Converts the given Game Boy image into ARGB pixels, stored line by line
+     * in the given array.
+     *
+     * @param image  LcdImage of a GameBoy
+     * @param pixels array of 160*144 integers in which the pixels are stored
+     */
+    public static void convert(LcdImage image, int[] pixels) {
+        Preconditions.checkArgument(image.getHeight() == LCD_HEIGHT &&
+                image.getWidth() == LCD_WIDTH);
+        Preconditions.checkArgument(pixels.length == LCD_WIDTH * LCD_HEIGHT);
+
+        for (int y = 0; y < LCD_HEIGHT; ++y)
+            for (int x = 0; x < LCD_WIDTH; ++x)
+                pixels[y * LCD_WIDTH + x] = COLOR_MAP[image.get(x, y)];
+    }
 }
@@ -1,18 +1,31 @@
 package ch.epfl.gameboj.gui;
 
+import ch.epfl.gameboj.BusTracer;
+import ch.epfl.gameboj.EmulationMetrics;
 import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.MetricsServer;
 import ch.epfl.gameboj.component.Joypad;
 import ch.epfl.gameboj.component.cartridge.Cartridge;
+import ch.epfl.gameboj.component.cpu.PcProfiler;
+import ch.epfl.gameboj.component.cpu.SymbolTable;
 import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.scene.Scene;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,6 +41,28 @@ import static ch.epfl.gameboj.component.lcd.LcdController.LCD_WIDTH;
 public class Main extends Application {
 
     private static final int RESIZING_FACTOR = 2;
+    private static final long LATENCY_REPORT_NANOS = 1_000_000_000;
+    private static final String TITLE = "Gameboj";
+    private static final String DISPLAY_SYNC_OPTION = "display-sync";
+    private static final String MAX_CATCH_UP_OPTION = "max-catch-up";
+    private static final String PROFILE_OPTION = "profile";
+    private static final String PROFILE_PERIOD_OPTION = "profile-period";
+    private static final String SYMBOLS_OPTION = "symbols";
+    private static final String TRACE_OPTION = "trace";
+    private static final String METRICS_PORT_OPTION = "metrics-port";
+    private static final int DEFAULT_PROFILE_PERIOD = 1000;
+
+    private Emulation emulation;
+    private PcProfiler profiler;
+    private String profileFile;
+    private SymbolTable symbols = SymbolTable.EMPTY;
+    private BusTracer tracer;
+    private MetricsServer metricsServer;
+    private long latencyCount;
+    private long latencySum;
+    private long latencyMax;
+    private long lastLatencyReport;
+    private String lastLatency = "no input";
 
     public static void main(String[] args) {
         Application.launch(args);
@@ -35,18 +70,59 @@ public class Main extends Application {
 
     @Override public void start(Stage primaryStage) throws Exception {
 
-        // Check that exactly one argument is given to the program
-        if (getParameters().getRaw().size() != 1) {
+        // Check that exactly one ROM file is given to the program, the other
+        // (optional) arguments being named ones
+        if (getParameters().getUnnamed().size() != 1) {
             System.out.println("Exactly one argument must be given");
             System.exit(1);
         }
+        Map<String, String> options = getParameters().getNamed();
+        boolean displaySync = Boolean.parseBoolean(
+                options.getOrDefault(DISPLAY_SYNC_OPTION, "false"));
+        int maxCatchUpFrames = Integer.parseInt(
+                options.getOrDefault(MAX_CATCH_UP_OPTION, Integer.toString(
+                        FramePacer.DEFAULT_MAX_CATCH_UP_FRAMES)));
 
         // Create a Game Boy which cartridge is obtained from the given ROM file
-        String rom = getParameters().getRaw().get(0);
+        String rom = getParameters().getUnnamed().get(0);
         GameBoy gameBoy = new GameBoy(Cartridge.ofFile(new File(rom)));
 
+        // Profile the game if asked, the samples being written at the end
+        profileFile = options.get(PROFILE_OPTION);
+        if (profileFile != null) {
+            int period = Integer.parseInt(options.getOrDefault(
+                    PROFILE_PERIOD_OPTION,
+                    Integer.toString(DEFAULT_PROFILE_PERIOD)));
+            profiler = new PcProfiler(period, gameBoy.cartridge()::romBank);
+            gameBoy.cpu().setProfiler(profiler);
+            if (options.containsKey(SYMBOLS_OPTION)) {
+                try (Reader r = Files.newBufferedReader(
+                        Paths.get(options.get(SYMBOLS_OPTION)),
+                        StandardCharsets.UTF_8)) {
+                    symbols = SymbolTable.read(r);
+                }
+            }
+        }
+
+        // Trace the accesses to the bus if asked
+        if (options.containsKey(TRACE_OPTION)) {
+            tracer = new BusTracer(Paths.get(options.get(TRACE_OPTION)),
+                    gameBoy::cycles);
+            gameBoy.bus().setTracer(tracer);
+        }
+
+        // Serve the metrics of the emulation if asked
+        if (options.containsKey(METRICS_PORT_OPTION)) {
+            EmulationMetrics metrics = new EmulationMetrics();
+            gameBoy.setMetrics(metrics);
+            metricsServer = new MetricsServer(
+                    Integer.parseInt(options.get(METRICS_PORT_OPTION)),
+                    metrics);
+        }
+
         // Create the graphical user interface and displays it on the sreen
-        ImageView imageView = new ImageView();
+        WritableImage image = new WritableImage(LCD_WIDTH, LCD_HEIGHT);
+        ImageView imageView = new ImageView(image);
         imageView.setFitWidth(LCD_WIDTH * RESIZING_FACTOR);
         imageView.setFitHeight(LCD_HEIGHT * RESIZING_FACTOR);
 
@@ -63,38 +139,111 @@ public class Main extends Application {
         computerCodeToGB.put(KeyCode.RIGHT, Joypad.Key.RIGHT);
         computerCodeToGB.put(KeyCode.LEFT, Joypad.Key.LEFT);
 
+        // The Game Boy is only used by the emulation thread from now on
+        emulation = new Emulation(gameBoy,
+                new FramePacer(maxCatchUpFrames, displaySync));
+
         imageView.setOnKeyPressed(event -> {
             if (computerTextToGB.containsKey(event.getText()))
-                gameBoy.joypad().keyPressed(computerTextToGB.get(event.getText()));
+                emulation.keyPressed(computerTextToGB.get(event.getText()));
             else if (computerCodeToGB.containsKey(event.getCode()))
-                gameBoy.joypad().keyPressed(computerCodeToGB.get(event.getCode()));
+                emulation.keyPressed(computerCodeToGB.get(event.getCode()));
         });
 
         imageView.setOnKeyReleased(event -> {
             if (computerTextToGB.containsKey(event.getText()))
-                gameBoy.joypad().keyReleased(computerTextToGB.get(event.getText()));
+                emulation.keyReleased(computerTextToGB.get(event.getText()));
             else if (computerCodeToGB.containsKey(event.getCode()))
-                gameBoy.joypad().keyReleased(computerCodeToGB.get(event.getCode()));
+                emulation.keyReleased(computerCodeToGB.get(event.getCode()));
         });
 
         BorderPane borderPane = new BorderPane(imageView);
         Scene scene = new Scene(borderPane);
         primaryStage.setScene(scene);
+        primaryStage.setTitle(TITLE);
 
         primaryStage.show();
         imageView.requestFocus();
 
-        // Timer
-        long start = System.nanoTime();
+        // Timer, displaying the latest image produced by the emulation
+        lastLatencyReport = System.nanoTime();
         AnimationTimer timer = new AnimationTimer() {
             @Override
             public void handle(long now) {
-                long nbCyclesSinceStart =  ((now - start));
-                gameBoy.runUntil(
-                        (long) (nbCyclesSinceStart * GameBoy.CYCLES_PER_NANOSECOND));
-                imageView.setImage(ImageConverter.convert(gameBoy.lcdController().currentImage()));
+                if (emulation.updateFrame(now)) {
+                    Emulation.Frame frame = emulation.frame();
+                    image.getPixelWriter().setPixels(0, 0, LCD_WIDTH,
+                            LCD_HEIGHT, PixelFormat.getIntArgbInstance(),
+                            frame.pixels, 0, LCD_WIDTH);
+                    if (frame.inputNanos != Emulation.NO_INPUT)
+                        recordLatency(System.nanoTime() - frame.inputNanos);
+                }
+                reportLatency(primaryStage, now);
             }
         };
+        emulation.start();
         timer.start();
     }
+
+    @Override public void stop() throws Exception {
+        if (emulation != null)
+            emulation.stop();
+        if (profiler != null)
+            writeProfile();
+        if (tracer != null)
+            tracer.close();
+        if (metricsServer != null)
+            metricsServer.close();
+    }
+
+    /**
+     * Writes the samples of the profiler, once the emulation is stopped.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void writeProfile() throws IOException {
+        try (Writer w = Files.newBufferedWriter(Paths.get(profileFile),
+                StandardCharsets.UTF_8)) {
+            profiler.writeCollapsed(w, symbols);
+        }
+    }
+
+    /**
+     * Records the time elapsed between an input and the display of the first
+     * image taking it into account.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    private void recordLatency(long nanos) {
+        latencyCount += 1;
+        latencySum += nanos;
+        latencyMax = Math.max(latencyMax, nanos);
+    }
+
+    /**
+     * Displays the input latencies recorded since the last report and the
+     * numbers of dropped and duplicated frames in the title of the window,
+     * once per second.
+     *
+     * @param stage the window
+     * @param now   the current time in nanoseconds
+     */
+    private void reportLatency(Stage stage, long now) {
+        if (now - lastLatencyReport < LATENCY_REPORT_NANOS)
+            return;
+
+        FramePacer pacer = emulation.pacer();
+        String frames = String.format("dropped %d, duplicated %d",
+                pacer.droppedFrames(), pacer.duplicatedFrames());
+        if (latencyCount != 0)
+            lastLatency = String.format("input latency %.1f ms (max %.1f ms)",
+                    latencySum / (latencyCount * 1e6), latencyMax / 1e6);
+        stage.setTitle(String.format("%s - %s - %s", TITLE, frames,
+                lastLatency));
+
+        latencyCount = 0;
+        latencySum = 0;
+        latencyMax = 0;
+        lastLatencyReport = now;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package ch.epfl.gameboj.gui;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer, allowing one producer thread to hand buffers to
+ * one consumer thread which always gets the latest complete one
+ *
+ * @param <T> type of the buffers
+ * @author Lucie Hoffmann (286865)
+ * @author Marie Jaillot (270130)
+ */
+final class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final Object[] buffers;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    /**
+     * Constructs a triple buffer using the three given buffers.
+     *
+     * @param b0 first buffer, initially the producer's one
+     * @param b1 second buffer
+     * @param b2 third buffer, initially the consumer's one
+     */
+    TripleBuffer(T b0, T b1, T b2) {
+        buffers = new Object[] { Objects.requireNonNull(b0),
+                Objects.requireNonNull(b1), Objects.requireNonNull(b2) };
+    }
+
+    /**
+     * Returns the buffer in which the producer writes. Must only be called by
+     * the producer thread.
+     *
+     * @return the producer's buffer
+     */
+    @SuppressWarnings("unchecked") T back() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Makes the producer's buffer available to the consumer, and gives the
+     * producer another buffer. Must only be called by the producer thread.
+     */
+    void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Takes the latest published buffer, if one was published since the last
+     * call. Must only be called by the consumer thread.
+     *
+     * @return true if the consumer's buffer changed
+     */
+    boolean update() {
+        if ((middle.get() & FRESH) == 0)
+            return false;
+
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Returns the buffer which the consumer reads. Must only be called by the
+     * consumer thread.
+     *
+     * @return the consumer's buffer
+     */
+    @SuppressWarnings("unchecked") T front() {
+        return (T) buffers[front];
+    }
+}
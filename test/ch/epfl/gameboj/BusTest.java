@@ -5,6 +5,7 @@ package ch.epfl.gameboj;
 import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
 import static ch.epfl.test.TestRandomizer.newRandom;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -117,6 +118,59 @@ class BusTest {
                     () -> b.write(0, d));
         }
     }
+
+    @Test
+    void mapFailsForUnalignedAddresses() {
+        Bus b = new Bus();
+        byte[] data = new byte[0x400];
+        assertThrows(IllegalArgumentException.class,
+                () -> b.map(0x10, 0x200, data, 0, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> b.map(0x100, 0x210, data, 0, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> b.map(0x100, 0x600, data, 0, true));
+    }
+
+    @Test
+    void mappedPagesAreAccessedDirectly() {
+        Bus b = new Bus();
+        SimpleComponent c = new SimpleComponent(0x1234, 0);
+        b.attach(c);
+        byte[] data = new byte[0x300];
+        data[0x234] = 42;
+        b.map(0x1100, 0x1300, data, 0x100, true);
+
+        assertEquals(42, b.read(0x1234));
+        b.write(0x1234, 0xAB);
+        assertEquals(0xAB, Byte.toUnsignedInt(data[0x234]));
+        assertFalse(c.wasRead() || c.wasWritten());
+    }
+
+    @Test
+    void readOnlyPagesWriteToComponents() {
+        Bus b = new Bus();
+        SimpleComponent c = new SimpleComponent(0x1234, 0);
+        b.attach(c);
+        byte[] data = new byte[0x100];
+        b.map(0x1200, 0x1300, data, 0, false);
+
+        b.write(0x1234, 0xAB);
+        assertTrue(c.wasWritten());
+        assertEquals(0, b.read(0x1234));
+        assertFalse(c.wasRead());
+    }
+
+    @Test
+    void unmappedPagesAreAccessedThroughComponents() {
+        Bus b = new Bus();
+        SimpleComponent c = new SimpleComponent(0x1234, 7);
+        b.attach(c);
+        b.map(0x1200, 0x1300, new byte[0x100], 0, true);
+        b.unmap(0x1200, 0x1300);
+
+        assertEquals(7, b.read(0x1234));
+        assertTrue(c.wasRead());
+    }
 }
 
 class SimpleComponent implements Component {
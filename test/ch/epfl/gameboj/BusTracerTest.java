@@ -0,0 +1,108 @@
+package ch.epfl.gameboj;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.RamController;
+
+class BusTracerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void constructorFailsForInvalidCapacity() {
+        Path file = dir.resolve("trace");
+        assertThrows(IllegalArgumentException.class,
+                () -> new BusTracer(file, () -> 0, 1000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BusTracer(file, () -> 0, 256));
+    }
+
+    @Test
+    void accessesAreDecoded() throws Exception {
+        Bus bus = new Bus();
+        new RamController(new Ram(0x100), 0xC000).attachTo(bus);
+        Path file = dir.resolve("trace");
+        long[] cycle = { 0 };
+        BusTracer tracer = new BusTracer(file, () -> cycle[0]);
+        bus.setTracer(tracer);
+
+        cycle[0] = 5;
+        bus.write(0xC012, 0xAB);
+        cycle[0] = 123_456_789_012L;
+        bus.read(0xC012);
+        bus.read(0x0000);
+        bus.setTracer(null);
+        bus.read(0xC012);
+        tracer.close();
+
+        StringBuilder b = new StringBuilder();
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(3, BusTraceDecoder.decode(in, b));
+        }
+        assertEquals("5 W C012 AB\n"
+                + "123456789012 R C012 AB\n"
+                + "123456789012 R 0000 FF\n", b.toString());
+    }
+
+    @Test
+    void allAccessesAreKeptWhenTheBufferWraps() throws Exception {
+        Random rng = newRandom();
+        Bus bus = new Bus();
+        Path file = dir.resolve("trace");
+        long[] cycle = { 0 };
+        BusTracer tracer = new BusTracer(file, () -> cycle[0], 512);
+        bus.setTracer(tracer);
+
+        int n = 100_000;
+        long[] expected = new long[n];
+        for (int i = 0; i < n; ++i) {
+            cycle[0] = i;
+            int address = rng.nextInt(0x10000), value = rng.nextInt(0x100);
+            bus.write(address, value);
+            expected[i] = BusTracer.pack(i, address, value, true);
+        }
+        tracer.close();
+
+        StringBuilder b = new StringBuilder();
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(n, BusTraceDecoder.decode(in, b));
+        }
+        String[] lines = b.toString().split("\n");
+        for (int i = 0; i < n; ++i)
+            assertEquals(BusTraceDecoder.toString(expected[i]), lines[i]);
+    }
+
+    @Test
+    void decodeFailsForOtherFiles() {
+        assertThrows(IOException.class, () -> BusTraceDecoder.decode(
+                new ByteArrayInputStream(new byte[16]), new StringBuilder()));
+    }
+
+    @Test
+    void interruptedCloseKeepsTheInterruptFlag() throws IOException {
+        BusTracer tracer = new BusTracer(dir.resolve("trace"), () -> 0);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, tracer::close);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        tracer.close();
+    }
+}
@@ -0,0 +1,168 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.cpu.Cpu;
+
+class DebuggerTest {
+    // Program run after the boot ROM, at 0x100:
+    // 0x100: LD SP,0xFFFE; 0x103: CALL 0x0120; 0x106: INC B; 0x107: JR -3
+    // 0x120: LD (0xC000),A; 0x123: INC A; 0x124: RET
+    private static GameBoy newGameBoy() {
+        byte[] rom = new byte[0x8000];
+        int[] main = { 0x31, 0xFE, 0xFF, 0xCD, 0x20, 0x01, 0x04, 0x18, 0xFA };
+        int[] routine = { 0xEA, 0x00, 0xC0, 0x3C, 0xC9 };
+        for (int i = 0; i < main.length; ++i)
+            rom[0x100 + i] = (byte) main[i];
+        for (int i = 0; i < routine.length; ++i)
+            rom[0x120 + i] = (byte) routine[i];
+        GameBoy gb = new GameBoy(CartridgeTest.cartridgeWithData(rom));
+        // Skip the boot ROM, which stops on the invalid logo
+        gb.bus().write(AddressMap.REG_BOOT_ROM_DISABLE, 1);
+        return gb;
+    }
+
+    private static int pc(GameBoy gb) {
+        return gb.cpu().registerValue(Cpu.RegisterName.PC);
+    }
+
+    @Test
+    void addFailsForInvalidAddresses() {
+        Debugger d = newGameBoy().debugger();
+        assertThrows(IllegalArgumentException.class,
+                () -> d.addBreakpoint(0, 0x10000));
+        assertThrows(IllegalArgumentException.class,
+                () -> d.addWatchpoint(0x20, 0x10, true, true));
+    }
+
+    @Test
+    void breakpointsStopBeforeTheirInstruction() {
+        GameBoy gb = newGameBoy();
+        // The bank is ignored outside of the switchable bank
+        gb.debugger().addBreakpoint(5, 0x120);
+        assertEquals(Debugger.Stop.BREAKPOINT, gb.runTo(100_000));
+        assertEquals(0x120, pc(gb));
+        assertEquals(0, gb.cpu().registerValue(Cpu.RegisterName.B));
+
+        assertEquals(Debugger.Stop.BREAKPOINT, gb.runTo(100_000));
+        assertEquals(0x120, pc(gb));
+        assertEquals(1, gb.cpu().registerValue(Cpu.RegisterName.B));
+
+        gb.debugger().removeBreakpoints(0x120);
+        assertEquals(Debugger.Stop.CYCLE, gb.runTo(100_000));
+        assertEquals(100_000, gb.cycles());
+    }
+
+    @Test
+    void conditionalBreakpointsTestTheRegisters() {
+        GameBoy gb = newGameBoy();
+        gb.debugger().addBreakpoint(Debugger.ANY_BANK, 0x123,
+                Cpu.RegisterName.A, a -> a == 3);
+        assertEquals(Debugger.Stop.BREAKPOINT, gb.runTo(100_000));
+        assertEquals(0x123, pc(gb));
+        assertEquals(3, gb.cpu().registerValue(Cpu.RegisterName.A));
+        assertEquals(3, gb.cpu().registerValue(Cpu.RegisterName.B));
+    }
+
+    @Test
+    void watchpointsStopAfterTheirAccess() {
+        GameBoy gb = newGameBoy();
+        Debugger d = gb.debugger();
+        d.addWatchpoint(0xC000, 0xC001, false, true);
+        assertEquals(Debugger.Stop.WATCHPOINT, gb.runTo(100_000));
+        assertEquals(0x123, pc(gb));
+        assertEquals(0xC000, d.hitAddress());
+        assertEquals(0, d.hitValue());
+        assertTrue(d.hitWrite());
+
+        d.removeWatchpoints(0xC000);
+        d.addWatchpoint(0xC000, 0xC100, true, false);
+        assertEquals(Debugger.Stop.CYCLE, gb.runTo(gb.cycles() + 1000));
+        gb.bus().read(0xC0FF);
+        assertEquals(Debugger.Stop.CYCLE, gb.runTo(gb.cycles() + 1));
+    }
+
+    @Test
+    void stepsFollowOrSkipCalls() {
+        GameBoy gb = newGameBoy();
+        gb.debugger().addBreakpoint(0, 0x103);
+        assertEquals(Debugger.Stop.BREAKPOINT, gb.runTo(100_000));
+        gb.debugger().clear();
+
+        assertEquals(Debugger.Stop.INSTRUCTION, gb.stepInstruction());
+        assertEquals(0x120, pc(gb));
+        assertEquals(Debugger.Stop.INSTRUCTION, gb.stepOver());
+        assertEquals(0x123, pc(gb));
+
+        gb.runTo(gb.cycles() + 30);
+        gb.debugger().addBreakpoint(0, 0x103);
+        gb.runTo(100_000);
+        gb.debugger().clear();
+        int a = gb.cpu().registerValue(Cpu.RegisterName.A);
+        assertEquals(Debugger.Stop.INSTRUCTION, gb.stepOver());
+        assertEquals(0x106, pc(gb));
+        assertEquals(a + 1, gb.cpu().registerValue(Cpu.RegisterName.A));
+    }
+
+    @Test
+    void runToFrameStopsAtTheVBlank() {
+        GameBoy gb = newGameBoy();
+        gb.bus().write(0xFF40, 0x80);
+        assertEquals(Debugger.Stop.FRAME, gb.runToFrame(2));
+        assertEquals(2, gb.lcdController().frameCount());
+        assertEquals(Debugger.Stop.FRAME, gb.runToFrame(2));
+    }
+
+    @Test
+    void runToFrameStopsWhenTheScreenStaysOff() {
+        GameBoy gb = newGameBoy();
+        assertEquals(Debugger.Stop.CYCLE, gb.runToFrame(2));
+        assertEquals(3 * GameBoy.FRAME_CYCLES, gb.cycles());
+        assertEquals(0, gb.lcdController().frameCount());
+    }
+
+    @Test
+    void debuggerOnlyObservesTheBusWhileDebugging() {
+        GameBoy gb = newGameBoy();
+        gb.debugger().addWatchpoint(0xC000, 0xC001, false, true);
+        assertFalse(gb.bus().isObserved());
+        assertEquals(Debugger.Stop.INSTRUCTION, gb.stepInstruction());
+        assertFalse(gb.bus().isObserved());
+        assertEquals(Debugger.Stop.WATCHPOINT, gb.runTo(100_000));
+        assertFalse(gb.bus().isObserved());
+        gb.debugger().clear();
+        assertFalse(gb.bus().isObserved());
+    }
+
+    @Test
+    void haltWithoutEnabledInterruptionStopsTheDebugger() {
+        // 0x100: HALT; 0x101: JR -2
+        byte[] rom = new byte[0x8000];
+        rom[0x100] = 0x76;
+        rom[0x101] = 0x18;
+        rom[0x102] = (byte) 0xFE;
+        GameBoy gb = new GameBoy(CartridgeTest.cartridgeWithData(rom));
+        gb.bus().write(AddressMap.REG_BOOT_ROM_DISABLE, 1);
+        gb.bus().write(AddressMap.REG_IE, 0);
+
+        assertEquals(Debugger.Stop.HALTED, gb.runTo(Long.MAX_VALUE));
+        long cycles = gb.cycles();
+        assertTrue(cycles < 1000);
+        assertEquals(Debugger.Stop.HALTED, gb.stepInstruction());
+        assertEquals(Debugger.Stop.HALTED, gb.runToFrame(Long.MAX_VALUE));
+        assertEquals(cycles, gb.cycles());
+
+        // The VBlank cannot wake the CPU up while the screen is off
+        gb.bus().write(AddressMap.REG_IE, 1 << Cpu.Interrupt.VBLANK.index());
+        assertEquals(Debugger.Stop.HALTED, gb.stepInstruction());
+        gb.bus().write(0xFF40, 0x80);
+        assertEquals(Debugger.Stop.INSTRUCTION, gb.stepInstruction());
+        assertEquals(0x101, pc(gb));
+    }
+}
@@ -0,0 +1,63 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+
+class EmulationMetricsTest {
+    private static GameBoy newGameBoy() {
+        return new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+    }
+
+    @Test
+    void metricsAreOnlyFilledWhileAttached() {
+        GameBoy gb = newGameBoy();
+        EmulationMetrics metrics = new EmulationMetrics();
+        gb.runUntil(GameBoy.FRAME_CYCLES);
+        gb.setMetrics(metrics);
+        for (int f = 2; f <= 20; ++f)
+            gb.runUntil(f * GameBoy.FRAME_CYCLES);
+        gb.setMetrics(null);
+        gb.runUntil(21 * GameBoy.FRAME_CYCLES);
+
+        EmulationMetrics.Snapshot s = metrics.snapshot();
+        assertEquals(19 * GameBoy.FRAME_CYCLES, s.cycles());
+        assertTrue(s.frames() >= 10);
+        assertTrue(s.speed() > 0);
+        assertTrue(s.maxSpeed() >= s.speed());
+        assertTrue(s.frameNanos(50) > 0);
+        assertTrue(s.frameNanos(50) <= s.frameNanos(99));
+        assertEquals(0, s.bankSwitchesPerSecond());
+    }
+
+    @Test
+    void serverGivesTheMetrics() throws IOException {
+        GameBoy gb = newGameBoy();
+        EmulationMetrics metrics = new EmulationMetrics();
+        gb.setMetrics(metrics);
+        gb.runUntil(10 * GameBoy.FRAME_CYCLES);
+
+        try (MetricsServer server = new MetricsServer(0, metrics)) {
+            URL url = new URL("http://localhost:" + server.port()
+                    + MetricsServer.PATH);
+            HttpURLConnection c = (HttpURLConnection) url.openConnection();
+            assertEquals(200, c.getResponseCode());
+            String text;
+            try (InputStream in = c.getInputStream()) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(text.contains("gameboj_cycles_total "
+                    + 10 * GameBoy.FRAME_CYCLES + "\n"));
+            assertTrue(text.contains("gameboj_frame_seconds{quantile=\"0.99\"}"));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.cpu.Cpu;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.RamController;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlightRecorderEventsTest {
+    private static final String[] EVENTS = { "ch.epfl.gameboj.RunSlice",
+            "ch.epfl.gameboj.Frame", "ch.epfl.gameboj.Dma",
+            "ch.epfl.gameboj.Interrupt" };
+
+    @TempDir
+    Path dir;
+
+    private List<RecordedEvent> record(Runnable r) throws Exception {
+        Path file = dir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            for (String e : EVENTS)
+                recording.enable(e).withThreshold(Duration.ZERO);
+            recording.start();
+            r.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    // Events of the given type emitted by the current thread, other tests
+    // possibly leaving game boys running on other threads
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events,
+            String name) {
+        long thread = Thread.currentThread().getId();
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .filter(e -> e.getThread() != null
+                        && e.getThread().getJavaThreadId() == thread)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void slicesFramesAndDmaAreRecorded() throws Exception {
+        GameBoy gb = new GameBoy(
+                CartridgeTest.cartridgeWithData(new byte[0x8000]));
+        List<RecordedEvent> events = record(() -> {
+            for (int f = 1; f <= 20; ++f)
+                gb.runUntil(f * GameBoy.FRAME_CYCLES);
+            gb.bus().write(0xFF46, 0xC0);
+            gb.runUntil(gb.cycles() + 200);
+        });
+
+        List<RecordedEvent> slices = ofType(events, EVENTS[0]);
+        assertEquals(21, slices.size());
+        assertEquals(GameBoy.FRAME_CYCLES, slices.get(1).getLong("cycles"));
+        assertTrue(slices.get(1).getDouble("cyclesPerNanosecond") > 0);
+
+        List<RecordedEvent> frames = ofType(events, EVENTS[1]);
+        assertTrue(frames.size() >= 10);
+        for (int i = 1; i < frames.size(); ++i)
+            assertEquals(frames.get(i - 1).getLong("frame") + 1,
+                    frames.get(i).getLong("frame"));
+
+        List<RecordedEvent> dmas = ofType(events, EVENTS[2]);
+        assertEquals(1, dmas.size());
+        assertEquals(0xC000, dmas.get(0).getInt("source"));
+    }
+
+    @Test
+    void interruptsAreRecorded() throws Exception {
+        Bus bus = new Bus();
+        Cpu cpu = new Cpu();
+        cpu.attachTo(bus);
+        new RamController(new Ram(0xFF00), 0).attachTo(bus);
+        // LD A,1; LDH (IE),A; EI; HALT and RETI at the VBlank handler
+        int[] program = { 0x3E, 0x01, 0xE0, 0xFF, 0xFB, 0x76 };
+        for (int i = 0; i < program.length; ++i)
+            bus.write(i, program[i]);
+        bus.write(0x40, 0xD9);
+
+        List<RecordedEvent> events = record(() -> {
+            for (long c = 0; c < 40; ++c) {
+                if (c == 20)
+                    cpu.requestInterrupt(Cpu.Interrupt.VBLANK);
+                cpu.cycle(c);
+            }
+        });
+
+        List<RecordedEvent> interrupts = ofType(events, EVENTS[3]);
+        assertEquals(1, interrupts.size());
+        assertEquals("VBLANK", interrupts.get(0).getString("interrupt"));
+        assertEquals(20, interrupts.get(0).getLong("cycle"));
+        assertEquals(program.length, interrupts.get(0).getInt("pc"));
+    }
+}
@@ -0,0 +1,55 @@
+package ch.epfl.gameboj;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+import ch.epfl.gameboj.component.Joypad;
+import ch.epfl.gameboj.component.cartridge.Cartridge;
+
+/**
+ * Hashes of the images rendered by a game boy running a ROM, which the tests
+ * compare between the ways of emulating it
+ */
+public final class FrameHashes {
+    private static final int PERIOD = 10;
+
+    private FrameHashes() {
+    }
+
+    /**
+     * Returns the given number of hashes of the images of the given ROM,
+     * every 10 frames, after setting up its game boy. START is pressed from
+     * the 50th to the 60th frame of every hundred, to leave the title
+     * screens.
+     */
+    public static int[] of(String rom, int count, Consumer<GameBoy> setUp)
+            throws IOException {
+        return of(rom, count, setUp, GameBoy::runUntil);
+    }
+
+    /**
+     * Returns the hashes of the images of the given ROM like
+     * {@link #of(String, int, Consumer)}, running its game boy until each
+     * frame with the given method.
+     */
+    public static int[] of(String rom, int count, Consumer<GameBoy> setUp,
+            ObjLongConsumer<GameBoy> run) throws IOException {
+        try (GameBoy gb = new GameBoy(Cartridge.ofFile(new File(rom)))) {
+            setUp.accept(gb);
+            int[] hashes = new int[count];
+            for (int f = 1; f <= count * PERIOD; ++f) {
+                if (f % 100 == 50)
+                    gb.joypad().keyPressed(Joypad.Key.START);
+                if (f % 100 == 60)
+                    gb.joypad().keyReleased(Joypad.Key.START);
+                run.accept(gb, f * GameBoy.FRAME_CYCLES);
+                if (f % PERIOD == 0)
+                    hashes[f / PERIOD - 1] =
+                            gb.lcdController().currentImage().hashCode();
+            }
+            return hashes;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class GameBoyConcurrencyTest {
+    private static final String[] ROMS = { "tasmaniaStory.gb",
+            "flappyboy.gb", "snake.gb", "2048.gb", "super_mario_land.gb",
+            "bomberman.gb" };
+    private static final int FRAMES = 240;
+
+    @Test
+    void parallelGameBoysRenderLikeSequentialOnes() throws Exception {
+        for (String rom : ROMS)
+            assumeTrue(new File(rom).exists(), "ROM " + rom + " not found");
+
+        int[][] expected = new int[ROMS.length][];
+        for (int i = 0; i < ROMS.length; ++i)
+            expected[i] = FrameHashes.of(ROMS[i], FRAMES / 10, gb -> {});
+
+        ExecutorService executor = Executors.newFixedThreadPool(ROMS.length);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<int[]>> actual = new ArrayList<>();
+            for (String rom : ROMS) {
+                actual.add(executor.submit(() -> {
+                    start.await();
+                    return FrameHashes.of(rom, FRAMES / 10, gb -> {});
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < ROMS.length; ++i)
+                assertArrayEquals(expected[i], actual.get(i).get(), ROMS[i]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.Component;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.lcd.LcdController.RenderingMode;
+
+public final class GameBoyHostTest {
+    private static GameBoy newGameBoy() {
+        return new GameBoy(CartridgeTest.cartridgeWithData(new byte[0x8000]));
+    }
+
+    private static void awaitNoLag(GameBoyHost host)
+            throws InterruptedException {
+        while (host.maxLagFrames() > 0)
+            Thread.sleep(1);
+    }
+
+    @Test
+    void constructorFailsWithInvalidNumberOfThreads() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new GameBoyHost(0);
+        });
+    }
+
+    @Test
+    void addFailsWithInvalidQuota() {
+        try (GameBoyHost host = new GameBoyHost(1)) {
+            assertThrows(IllegalArgumentException.class, () -> {
+                host.add(newGameBoy(), 0);
+            });
+        }
+    }
+
+    @Test
+    void everyInstanceRunsItsQuotaAtEachTick() throws InterruptedException {
+        try (GameBoyHost host = new GameBoyHost(3)) {
+            List<GameBoyHost.Instance> instances = new ArrayList<>();
+            for (int i = 0; i < 8; ++i)
+                instances.add(host.add(newGameBoy(), (i + 1) * 5_000));
+
+            int ticks = 5;
+            for (int t = 0; t < ticks; ++t)
+                host.tick();
+            awaitNoLag(host);
+
+            long frames = 0;
+            for (GameBoyHost.Instance instance : instances) {
+                assertEquals(ticks * instance.cycleQuota(),
+                        instance.gameBoy().cycles());
+                assertEquals(0, instance.lagCycles());
+                assertNull(instance.failure());
+                frames += instance.frames();
+            }
+            assertEquals(frames, host.frames());
+        }
+    }
+
+    @Test
+    void removedInstanceIsNotRunAnymore() throws InterruptedException {
+        try (GameBoyHost host = new GameBoyHost(2)) {
+            GameBoyHost.Instance kept = host.add(newGameBoy());
+            GameBoyHost.Instance removed = host.add(newGameBoy());
+            host.tick();
+            awaitNoLag(host);
+            host.remove(removed);
+            host.tick();
+            awaitNoLag(host);
+
+            assertEquals(1, host.size());
+            assertEquals(2 * GameBoy.FRAME_CYCLES, kept.gameBoy().cycles());
+            assertEquals(GameBoy.FRAME_CYCLES, removed.gameBoy().cycles());
+        }
+    }
+
+    @Test
+    void failedInstanceIsRemovedAndClosed() throws InterruptedException {
+        try (GameBoyHost host = new GameBoyHost(1)) {
+            GameBoy gb = newGameBoy();
+            gb.lcdController().setRenderingMode(RenderingMode.PIPELINED);
+            // The boot ROM enables the sound at 0xFF26 after clearing VRAM
+            AssertionError error = new AssertionError();
+            gb.bus().attach(new Component() {
+                @Override public int read(int address) {
+                    return NO_DATA;
+                }
+
+                @Override public void write(int address, int data) {
+                    if (address == 0xFF26)
+                        throw error;
+                }
+            });
+            GameBoyHost.Instance failed = host.add(gb);
+            GameBoyHost.Instance kept = host.add(newGameBoy());
+            while (failed.failure() == null) {
+                host.tick();
+                awaitNoLag(host);
+            }
+
+            assertSame(error, failed.failure());
+            assertEquals(RenderingMode.EAGER,
+                    gb.lcdController().renderingMode());
+            assertEquals(1, host.size());
+            long cycles = kept.gameBoy().cycles();
+            host.tick();
+            awaitNoLag(host);
+            assertEquals(cycles + GameBoy.FRAME_CYCLES,
+                    kept.gameBoy().cycles());
+        }
+    }
+
+    @Test
+    void interruptedCloseStillStopsTheWorkers() {
+        GameBoyHost host = new GameBoyHost(2);
+        host.add(newGameBoy());
+        host.tick();
+        Thread.currentThread().interrupt();
+        try {
+            host.close();
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("gameboj-host-"))
+                .count());
+    }
+}
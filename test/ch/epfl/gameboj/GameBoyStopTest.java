@@ -0,0 +1,97 @@
+package ch.epfl.gameboj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.component.Joypad;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.cpu.Cpu;
+
+class GameBoyStopTest {
+    // Game boy running the given program after the boot ROM, at 0x100
+    private static GameBoy newGameBoy(int[] main) {
+        byte[] rom = new byte[0x8000];
+        for (int i = 0; i < main.length; ++i)
+            rom[0x100 + i] = (byte) main[i];
+        GameBoy gb = new GameBoy(CartridgeTest.cartridgeWithData(rom));
+        // Skip the boot ROM, which stops on the invalid logo, and turn the
+        // screen on
+        gb.bus().write(AddressMap.REG_BOOT_ROM_DISABLE, 1);
+        gb.bus().write(AddressMap.REGS_LCDC_START, 0x80);
+        return gb;
+    }
+
+    // 0x100: STOP 0; 0x102: INC B; 0x103: JR -5
+    private static GameBoy newGameBoy() {
+        return newGameBoy(new int[] { 0x10, 0x00, 0x04, 0x18, 0xFB });
+    }
+
+    private static int b(GameBoy gb) {
+        return gb.cpu().registerValue(Cpu.RegisterName.B);
+    }
+
+    @Test
+    void stopFreezesTheGameBoyUntilAKeyIsPressed() {
+        GameBoy gb = newGameBoy();
+        gb.runUntil(100_000);
+        assertTrue(gb.cpu().isStopped());
+        assertEquals(0x102, gb.cpu().registerValue(Cpu.RegisterName.PC));
+        long frames = gb.lcdController().frameCount();
+
+        gb.runUntil(100_000_000);
+        assertEquals(100_000_000, gb.cycles());
+        assertEquals(frames, gb.lcdController().frameCount());
+        assertEquals(0, gb.bus().read(AddressMap.REG_DIV));
+        assertEquals(0, b(gb));
+
+        gb.joypad().keyPressed(Joypad.Key.A);
+        gb.runUntil(100_100_000);
+        // The CPU ran until the next STOP
+        assertTrue(gb.cpu().isStopped());
+        assertEquals(1, b(gb));
+    }
+
+    @Test
+    void stopResetsTheDivider() {
+        // 0x100: STOP 0; 0x102: LDH A,(DIV); 0x104: LD B,A; 0x105: INC B;
+        // 0x106: JR -2
+        GameBoy gb = newGameBoy(
+                new int[] { 0x10, 0x00, 0xF0, 0x04, 0x47, 0x04, 0x18, 0xFE });
+        gb.runUntil(100_000);
+        assertTrue(gb.cpu().isStopped());
+        assertEquals(0, gb.bus().read(AddressMap.REG_DIV));
+
+        // DIV is incremented every 64 cycles from 0, and was read just after
+        // waking up
+        gb.joypad().keyPressed(Joypad.Key.A);
+        gb.runUntil(100_000 + 10 * 64);
+        assertEquals(1, b(gb));
+        assertEquals(10, gb.bus().read(AddressMap.REG_DIV));
+    }
+
+    @Test
+    void stopSkipsItsOperand() {
+        for (Cpu.Interpreter i : Cpu.Interpreter.values()) {
+            // 0x100: STOP with INC B as operand; 0x102: JR -4
+            GameBoy gb = newGameBoy(new int[] { 0x10, 0x04, 0x18, 0xFC });
+            gb.cpu().setInterpreter(i);
+            for (int k = 0; k < 3; ++k) {
+                gb.runUntil(gb.cycles() + 100_000);
+                assertTrue(gb.cpu().isStopped());
+                gb.joypad().keyPressed(Joypad.Key.A);
+                gb.joypad().keyReleased(Joypad.Key.A);
+            }
+            assertEquals(0, b(gb));
+        }
+    }
+
+    @Test
+    void debuggerStopsWithTheCpu() {
+        GameBoy gb = newGameBoy();
+        gb.runUntil(100_000);
+        assertEquals(Debugger.Stop.STOPPED, gb.runTo(200_000));
+        assertEquals(100_000, gb.cycles());
+    }
+}
@@ -0,0 +1,60 @@
+package ch.epfl.gameboj;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+    @Test
+    void percentileFailsForInvalidPercentile() {
+        Histogram h = new Histogram();
+        assertThrows(IllegalArgumentException.class, () -> h.percentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> h.percentile(101));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram h = new Histogram();
+        assertEquals(0, h.percentile(50));
+        for (int v = 0; v < 64; ++v)
+            h.record(v);
+        assertEquals(64, h.count());
+        assertEquals(31, h.percentile(50));
+        assertEquals(63, h.percentile(100));
+        h.reset();
+        assertEquals(0, h.count());
+    }
+
+    @Test
+    void percentilesAreWithinPrecision() {
+        Random rng = newRandom();
+        Histogram h = new Histogram();
+        long[] values = new long[RANDOM_ITERATIONS];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = (long) Math.exp(rng.nextDouble() * 40);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[] { 1, 50, 90, 99, 100 }) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long approximate = h.percentile(p);
+            assertTrue(exact <= approximate);
+            assertTrue(approximate <= exact + exact / 16 + 1);
+        }
+        assertEquals(Long.MAX_VALUE, rangeOf(Long.MAX_VALUE));
+    }
+
+    private static long rangeOf(long value) {
+        Histogram h = new Histogram();
+        h.record(value);
+        return h.percentile(100);
+    }
+}
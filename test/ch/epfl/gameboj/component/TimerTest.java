@@ -158,4 +158,64 @@ public final class TimerTest implements ComponentTest {
             assertEquals(t.read(0xFF05), tma);
         }
     }
+
+    @Test
+    void nextInterruptCycleIsTheCycleOfTheNextTimerInterrupt() {
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            Cpu cpu = new Cpu();
+            Timer t = new Timer(cpu);
+            t.write(0xFF07, 0b100 | rng.nextInt(4));
+            t.write(0xFF05, rng.nextInt(0x100));
+            int start = rng.nextInt(0x400);
+            for (int c = 0; c <= start; ++c)
+                t.cycle(c);
+            cpu.write(0xFF0F, 0);
+
+            long expected = t.nextInterruptCycle(start);
+            long c = start;
+            while (cpu.read(0xFF0F) == 0)
+                t.cycle(++c);
+            assertEquals(expected, c);
+        }
+    }
+
+    @Test
+    void advanceBehavesLikeCyclingEachCycle() {
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            Cpu cpu1 = new Cpu(), cpu2 = new Cpu();
+            Timer cycled = new Timer(cpu1), advanced = new Timer(cpu2);
+            int tac = rng.nextInt(8), tma = rng.nextInt(0x100);
+            int tima = rng.nextInt(0x100), start = rng.nextInt(0x4000);
+            for (Timer t : new Timer[] { cycled, advanced }) {
+                t.write(0xFF07, tac);
+                t.write(0xFF06, tma);
+                t.write(0xFF05, tima);
+                for (int c = 0; c < start; ++c)
+                    t.cycle(c);
+            }
+
+            int cycles = rng.nextInt(0x20000);
+            for (int c = start; c < start + cycles; ++c)
+                cycled.cycle(c);
+            advanced.advance(cycles);
+            for (int a = 0xFF04; a <= 0xFF07; ++a)
+                assertEquals(cycled.read(a), advanced.read(a));
+            assertEquals(cpu1.read(0xFF0F), cpu2.read(0xFF0F));
+        }
+    }
+
+    @Test
+    void advanceFailsForNegativeCycles() {
+        Timer t = newComponent();
+        assertThrows(IllegalArgumentException.class, () -> t.advance(-1));
+    }
+
+    @Test
+    void nextInterruptCycleIsNeverWhenTimerIsStopped() {
+        Timer t = newComponent();
+        t.write(0xFF07, 0b011);
+        assertEquals(Long.MAX_VALUE, t.nextInterruptCycle(0));
+    }
 }
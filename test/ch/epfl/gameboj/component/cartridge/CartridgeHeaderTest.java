@@ -0,0 +1,93 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public final class CartridgeHeaderTest {
+    static byte[] romWithHeader(String title, int type, int romSizeCode,
+            int ramSizeCode) {
+        Random rng = newRandom();
+        byte[] rom = new byte[0x8000 << romSizeCode];
+        rng.nextBytes(rom);
+        for (int i = 0x134; i < 0x144; ++i)
+            rom[i] = 0;
+        byte[] t = title.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(t, 0, rom, 0x134, t.length);
+        rom[0x147] = (byte) type;
+        rom[0x148] = (byte) romSizeCode;
+        rom[0x149] = (byte) ramSizeCode;
+
+        int headerSum = 0;
+        for (int i = 0x134; i < 0x14D; ++i)
+            headerSum = headerSum - Byte.toUnsignedInt(rom[i]) - 1;
+        rom[0x14D] = (byte) headerSum;
+
+        int globalSum = 0;
+        for (int i = 0; i < rom.length; ++i) {
+            if (i != 0x14E && i != 0x14F)
+                globalSum += Byte.toUnsignedInt(rom[i]);
+        }
+        rom[0x14E] = (byte) (globalSum >> 8);
+        rom[0x14F] = (byte) globalSum;
+        return rom;
+    }
+
+    @Test
+    void ofFailsForTooShortRom() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CartridgeHeader.of(new byte[0x14F]));
+    }
+
+    @Test
+    void ofReadsAllFields() {
+        CartridgeHeader h = CartridgeHeader.of(
+                romWithHeader("TETRIS", 0x13, 2, 3));
+        assertEquals("TETRIS", h.title());
+        assertEquals(0x13, h.type());
+        assertEquals(0x20000, h.romSize());
+        assertEquals(0x8000, h.ramSize());
+        assertTrue(h.isHeaderChecksumValid());
+        assertTrue(h.isGlobalChecksumValid());
+        assertTrue(h.isSupported());
+    }
+
+    @Test
+    void ofDetectsBadChecksums() {
+        byte[] rom = romWithHeader("GAME", 0x01, 1, 0);
+        rom[0x140] ^= 1;
+        CartridgeHeader h = CartridgeHeader.of(rom);
+        assertFalse(h.isHeaderChecksumValid());
+        assertFalse(h.isGlobalChecksumValid());
+
+        rom = romWithHeader("GAME", 0x01, 1, 0);
+        rom[0x7000] ^= 1;
+        h = CartridgeHeader.of(rom);
+        assertTrue(h.isHeaderChecksumValid());
+        assertFalse(h.isGlobalChecksumValid());
+    }
+
+    @Test
+    void unknownSizesAreReportedAndRejected() {
+        CartridgeHeader h = CartridgeHeader.of(romWithHeader("X", 0x03, 0, 9));
+        assertEquals(-1, h.ramSize());
+        assertFalse(h.isSupported());
+
+        h = CartridgeHeader.of(romWithHeader("X", 0x00, 0, 9));
+        assertTrue(h.isSupported());
+    }
+
+    @Test
+    void badRamSizeIsRejectedByCartridge() {
+        assertThrows(IllegalArgumentException.class,
+                () -> CartridgeTest.cartridgeWithData(
+                        romWithHeader("X", 0x03, 1, 0x42)));
+    }
+}
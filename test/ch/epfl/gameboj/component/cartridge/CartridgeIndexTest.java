@@ -0,0 +1,73 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class CartridgeIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexIsPersistent() throws IOException {
+        Path rom = dir.resolve("a.gb");
+        Files.write(rom, CartridgeHeaderTest.romWithHeader("ALPHA", 1, 1, 0));
+        Path indexFile = dir.resolve("index.tsv");
+
+        CartridgeIndex index = CartridgeIndex.open(indexFile);
+        CartridgeHeader h = index.header(rom);
+        index.save();
+
+        CartridgeIndex reopened = CartridgeIndex.open(indexFile);
+        assertEquals(h, reopened.header(rom));
+        assertEquals(index.headers(), reopened.headers());
+    }
+
+    @Test
+    void unchangedFileIsNotReadAgain() throws IOException {
+        Path rom = dir.resolve("a.gb");
+        Files.write(rom, CartridgeHeaderTest.romWithHeader("ALPHA", 1, 1, 0));
+        FileTime time = Files.getLastModifiedTime(rom);
+        Path indexFile = dir.resolve("index.tsv");
+
+        CartridgeIndex index = CartridgeIndex.open(indexFile);
+        CartridgeHeader h = index.header(rom);
+        index.save();
+
+        // Same size and modification time: the index is trusted
+        Files.write(rom, CartridgeHeaderTest.romWithHeader("BETA", 1, 1, 0));
+        Files.setLastModifiedTime(rom, time);
+        assertEquals(h, CartridgeIndex.open(indexFile).header(rom));
+
+        // Modification time changed: the file is indexed again
+        Files.setLastModifiedTime(rom,
+                FileTime.fromMillis(time.toMillis() + 1000));
+        assertEquals("BETA", CartridgeIndex.open(indexFile).header(rom).title());
+    }
+
+    @Test
+    void identicalRomsShareTheirEntry() throws IOException {
+        byte[] data = CartridgeHeaderTest.romWithHeader("ALPHA", 0, 0, 0);
+        Path a = dir.resolve("a.gb"), b = dir.resolve("b.gb");
+        Files.write(a, data);
+        Files.write(b, data);
+
+        CartridgeIndex index = CartridgeIndex.open(dir.resolve("index.tsv"));
+        index.header(a);
+        index.header(b);
+        assertEquals(1, index.headers().size());
+    }
+
+    @Test
+    void damagedIndexIsIgnored() throws IOException {
+        Path indexFile = dir.resolve("index.tsv");
+        Files.write(indexFile, "garbage\n".getBytes());
+        assertEquals(0, CartridgeIndex.open(indexFile).headers().size());
+    }
+}
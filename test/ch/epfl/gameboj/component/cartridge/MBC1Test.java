@@ -0,0 +1,74 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Rom;
+
+public final class MBC1Test {
+    private static void checkMappedBusMatchesController(int romSize,
+            int ramSize) {
+        Random rng = newRandom();
+        byte[] data = new byte[romSize];
+        rng.nextBytes(data);
+        Rom rom = new Rom(data);
+        MBC1 reference = new MBC1(rom, ramSize);
+        MBC1 mapped = new MBC1(rom, ramSize);
+        Bus bus = new Bus();
+        mapped.attachTo(bus);
+        mapped.mapTo(bus);
+
+        for (int i = 0; i < 20_000; ++i) {
+            int address;
+            int value = rng.nextInt(0x100);
+            switch (rng.nextInt(4)) {
+            case 0:
+                // Bank-select and RAM-enable registers
+                address = rng.nextInt(0x8000);
+                if (rng.nextBoolean())
+                    value = rng.nextBoolean() ? 0x0A : 0x00;
+                reference.write(address, value);
+                bus.write(address, value);
+                break;
+            case 1:
+                address = 0xA000 + rng.nextInt(0x2000);
+                reference.write(address, value);
+                bus.write(address, value);
+                break;
+            default:
+                address = rng.nextBoolean() ? rng.nextInt(0x8000)
+                        : 0xA000 + rng.nextInt(0x2000);
+                assertEquals(reference.read(address), bus.read(address));
+                break;
+            }
+        }
+    }
+
+    @Test
+    void mappedBanksMatchControllerReads() {
+        checkMappedBusMatchesController(0x80000, 0x8000);
+    }
+
+    @Test
+    void mappedBanksMatchControllerReadsWithSmallRam() {
+        checkMappedBusMatchesController(0x10000, 0x800);
+    }
+
+    @Test
+    void cartridgeRamIsOpenBusWithoutRam() {
+        Bus bus = new Bus();
+        MBC1 mbc = new MBC1(new Rom(new byte[0x8000]), 0);
+        mbc.attachTo(bus);
+        mbc.mapTo(bus);
+
+        bus.write(0x0000, 0x0A);
+        bus.write(0xA000, 0x12);
+        assertEquals(0xFF, bus.read(0xA000));
+        assertEquals(0xFF, mbc.read(0xBFFF));
+    }
+}
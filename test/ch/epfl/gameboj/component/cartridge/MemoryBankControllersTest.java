@@ -0,0 +1,139 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Rom;
+
+public final class MemoryBankControllersTest {
+    private static Rom randomRom(Random rng, int size) {
+        byte[] data = new byte[size];
+        rng.nextBytes(data);
+        return new Rom(data);
+    }
+
+    private static void checkMappedBusMatchesController(int type, int romSize,
+            int ramSize) {
+        Random rng = newRandom();
+        Rom rom = randomRom(rng, romSize);
+        MemoryBankController reference = MemoryBankControllers.create(type,
+                rom, ramSize);
+        MemoryBankController mapped = MemoryBankControllers.create(type, rom,
+                ramSize);
+        Bus bus = new Bus();
+        mapped.attachTo(bus);
+        mapped.mapTo(bus);
+
+        for (int i = 0; i < 20_000; ++i) {
+            int address;
+            int value = rng.nextInt(0x100);
+            switch (rng.nextInt(4)) {
+            case 0:
+                address = rng.nextInt(0x8000);
+                if (rng.nextBoolean())
+                    value = rng.nextBoolean() ? 0x0A : rng.nextInt(4);
+                reference.write(address, value);
+                bus.write(address, value);
+                break;
+            case 1:
+                address = 0xA000 + rng.nextInt(0x2000);
+                reference.write(address, value);
+                bus.write(address, value);
+                break;
+            default:
+                address = rng.nextBoolean() ? rng.nextInt(0x8000)
+                        : 0xA000 + rng.nextInt(0x2000);
+                assertEquals(reference.read(address), bus.read(address));
+                break;
+            }
+        }
+    }
+
+    @Test
+    void registryKnowsStandardTypes() {
+        for (int type : new int[] { 0x00, 0x01, 0x03, 0x05, 0x06, 0x0F, 0x13,
+                0x19, 0x1E })
+            assertTrue(MemoryBankControllers.isSupported(type));
+        for (int type : new int[] { 0x04, 0x0B, 0x20, 0xFF })
+            assertFalse(MemoryBankControllers.isSupported(type));
+    }
+
+    @Test
+    void createFailsForUnsupportedType() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MemoryBankControllers.create(0xFE,
+                        new Rom(new byte[0x8000]), 0));
+    }
+
+    @Test
+    void registeredFactoryIsUsed() {
+        MBC0 mbc = new MBC0(new Rom(new byte[0x8000]));
+        MemoryBankControllers.register(0xFD, (rom, ramSize) -> mbc);
+        assertTrue(mbc == MemoryBankControllers.create(0xFD,
+                new Rom(new byte[0x8000]), 0));
+    }
+
+    @Test
+    void mbc2SelectsRomBankWithAddressBit8() {
+        Random rng = newRandom();
+        Rom rom = randomRom(rng, 0x40000);
+        MemoryBankController mbc = MemoryBankControllers.create(0x05, rom, 0);
+        mbc.write(0x2100, 5);
+        assertEquals(rom.read(5 * 0x4000 + 0x123), mbc.read(0x4123));
+        mbc.write(0x2000, 7);
+        assertEquals(rom.read(5 * 0x4000 + 0x123), mbc.read(0x4123));
+    }
+
+    @Test
+    void mbc2RamStoresHalfBytes() {
+        MemoryBankController mbc = MemoryBankControllers.create(0x06,
+                new Rom(new byte[0x8000]), 0);
+        mbc.write(0x0000, 0x0A);
+        mbc.write(0xA001, 0xAB);
+        assertEquals(0xFB, mbc.read(0xA001));
+        assertEquals(0xFB, mbc.read(0xA201));
+    }
+
+    @Test
+    void mbc5AddressesAllRomBanks() {
+        Random rng = newRandom();
+        Rom rom = randomRom(rng, 0x800000);
+        MemoryBankController mbc = MemoryBankControllers.create(0x19, rom, 0);
+        mbc.write(0x2000, 0xFF);
+        mbc.write(0x3000, 0x01);
+        assertEquals(rom.read(0x1FF * 0x4000 + 0x42), mbc.read(0x4042));
+        mbc.write(0x2000, 0x00);
+        mbc.write(0x3000, 0x00);
+        assertEquals(rom.read(0x42), mbc.read(0x4042));
+    }
+
+    @Test
+    void romBankAndSwitchesFollowBankSelection() {
+        Rom rom = new Rom(new byte[0x40000]);
+        for (int type : new int[] { 0x01, 0x05, 0x11, 0x19 }) {
+            MemoryBankController mbc = MemoryBankControllers.create(type, rom,
+                    0);
+            assertEquals(1, mbc.romBank(0x4000));
+            mbc.write(0x2100, 3);
+            mbc.write(0x2100, 3);
+            assertEquals(0, mbc.romBank(0x0000));
+            assertEquals(3, mbc.romBank(0x7FFF));
+            assertEquals(1, mbc.bankSwitches());
+        }
+    }
+
+    @Test
+    void mappedBanksMatchControllerReads() {
+        checkMappedBusMatchesController(0x06, 0x40000, 0);
+        checkMappedBusMatchesController(0x13, 0x200000, 0x8000);
+        checkMappedBusMatchesController(0x1B, 0x100000, 0x20000);
+    }
+}
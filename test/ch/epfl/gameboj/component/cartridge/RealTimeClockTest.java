@@ -0,0 +1,81 @@
+package ch.epfl.gameboj.component.cartridge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.GameBoy;
+
+public final class RealTimeClockTest {
+    private static final long SECOND = GameBoy.CYCLES_PER_SECOND;
+
+    private static final class Cycles {
+        long value = 0;
+    }
+
+    private static void latch(RealTimeClock c) {
+        c.writeLatch(0);
+        c.writeLatch(1);
+    }
+
+    @Test
+    void clockFollowsEmulatedCycles() {
+        Cycles cycles = new Cycles();
+        RealTimeClock c = new RealTimeClock();
+        c.attach(() -> cycles.value);
+
+        cycles.value = ((2 * 24 + 3) * 3600 + 4 * 60 + 5) * SECOND + 10;
+        latch(c);
+        assertEquals(5, c.read(RealTimeClock.SECONDS));
+        assertEquals(4, c.read(RealTimeClock.MINUTES));
+        assertEquals(3, c.read(RealTimeClock.HOURS));
+        assertEquals(2, c.read(RealTimeClock.DAY_LOW));
+        assertEquals(0, c.read(RealTimeClock.DAY_HIGH));
+    }
+
+    @Test
+    void latchedValuesOnlyChangeWhenLatched() {
+        Cycles cycles = new Cycles();
+        RealTimeClock c = new RealTimeClock();
+        c.attach(() -> cycles.value);
+
+        cycles.value = 3 * SECOND;
+        latch(c);
+        cycles.value = 10 * SECOND;
+        c.writeLatch(1);
+        assertEquals(3, c.read(RealTimeClock.SECONDS));
+        latch(c);
+        assertEquals(10, c.read(RealTimeClock.SECONDS));
+    }
+
+    @Test
+    void haltedClockDoesNotAdvance() {
+        Cycles cycles = new Cycles();
+        RealTimeClock c = new RealTimeClock();
+        c.attach(() -> cycles.value);
+
+        cycles.value = 7 * SECOND;
+        c.write(RealTimeClock.DAY_HIGH, 1 << 6);
+        cycles.value = 100 * SECOND;
+        latch(c);
+        assertEquals(7, c.read(RealTimeClock.SECONDS));
+        c.write(RealTimeClock.DAY_HIGH, 0);
+        cycles.value = 103 * SECOND;
+        latch(c);
+        assertEquals(10, c.read(RealTimeClock.SECONDS));
+    }
+
+    @Test
+    void dayCounterOverflowSetsCarry() {
+        Cycles cycles = new Cycles();
+        RealTimeClock c = new RealTimeClock();
+        c.attach(() -> cycles.value);
+
+        c.write(RealTimeClock.DAY_LOW, 0xFF);
+        c.write(RealTimeClock.DAY_HIGH, 1);
+        cycles.value = 24 * 3600 * SECOND;
+        latch(c);
+        assertEquals(0, c.read(RealTimeClock.DAY_LOW));
+        assertEquals(1 << 7, c.read(RealTimeClock.DAY_HIGH));
+    }
+}
@@ -17,16 +17,16 @@ import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Test;
 
 class AluTest {
-    private interface IntTernaryOperator {
+    interface IntTernaryOperator {
         int applyAsInt(int v1, int v2, int v3);
     }
-    private interface IntQuaternaryOperator {
+    interface IntQuaternaryOperator {
         int applyAsInt(int v1, int v2, int v3, int v4);
     }
 
-    private static final int[] INT_1 = allValues(1);
+    static final int[] INT_1 = allValues(1);
     private static final int[] INT_3 = allValues(3);
-    private static final int[] INT_8 = allValues(8);
+    static final int[] INT_8 = allValues(8);
     private static final int[] INT_16 = someValues(2018, 16, 300);
 
     private static int[] allValues(int bits) {
@@ -44,14 +44,14 @@ class AluTest {
         return vs;
     }
 
-    private static DataInputStream openStream(String name) throws IOException {
+    static DataInputStream openStream(String name) throws IOException {
         String fullName = "/data/" + name + ".bin.gz";
         return new DataInputStream(
                 new GZIPInputStream(
                         AluTest.class.getResourceAsStream(fullName)));
     }
 
-    private static void test(String methName, String fileName, int[] values1, IntUnaryOperator o) throws IOException {
+    static void test(String methName, String fileName, int[] values1, IntUnaryOperator o) throws IOException {
         try (DataInputStream in = openStream(fileName)) {
             for (int v1: values1) {
                 int expected = in.readInt();
@@ -63,7 +63,7 @@ class AluTest {
         }
     }
 
-    private static void test(String methName, String fileName, int[] values1, int[] values2, IntBinaryOperator o) throws IOException {
+    static void test(String methName, String fileName, int[] values1, int[] values2, IntBinaryOperator o) throws IOException {
         try (DataInputStream in = openStream(fileName)) {
             for (int v1: values1) {
                 for (int v2: values2) {
@@ -77,7 +77,7 @@ class AluTest {
         }
     }
 
-    private static void test(String methName, String fileName, int[] values1, int[] values2, int[] values3, IntTernaryOperator o) throws IOException {
+    static void test(String methName, String fileName, int[] values1, int[] values2, int[] values3, IntTernaryOperator o) throws IOException {
         try (DataInputStream in = openStream(fileName)) {
             for (int v1: values1) {
                 for (int v2: values2) {
@@ -93,7 +93,7 @@ class AluTest {
         }
     }
 
-    private static void test(String methName, String fileName, int[] values1, int[] values2, int[] values3, int[] values4, IntQuaternaryOperator o) throws IOException {
+    static void test(String methName, String fileName, int[] values1, int[] values2, int[] values3, int[] values4, IntQuaternaryOperator o) throws IOException {
         try (DataInputStream in = openStream(fileName)) {
             for (int v1: values1) {
                 for (int v2: values2) {
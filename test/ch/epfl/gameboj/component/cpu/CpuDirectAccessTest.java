@@ -0,0 +1,110 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
+
+class CpuDirectAccessTest {
+    private static final int COPY = 0xC000;
+
+    // Pushes BC and DE, calls a subroutine exchanging them through the stack,
+    // pops them in HL and AF, and stores SP at COPY, before halting
+    private static int[] program(int sp, int bc, int de) {
+        return new int[] { Opcode.LD_SP_N16.encoding, sp & 0xFF, sp >> 8,
+                Opcode.LD_BC_N16.encoding, bc & 0xFF, bc >> 8,
+                Opcode.LD_DE_N16.encoding, de & 0xFF, de >> 8,
+                Opcode.PUSH_BC.encoding, Opcode.PUSH_DE.encoding,
+                Opcode.CALL_N16.encoding, 0x20, 0x00,
+                Opcode.POP_HL.encoding, Opcode.POP_AF.encoding,
+                Opcode.LD_N16R_SP.encoding, COPY & 0xFF, COPY >> 8,
+                Opcode.HALT.encoding, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                // Subroutine at 0x20
+                Opcode.POP_HL.encoding, Opcode.POP_BC.encoding,
+                Opcode.POP_DE.encoding, Opcode.PUSH_BC.encoding,
+                Opcode.PUSH_DE.encoding, Opcode.PUSH_HL.encoding,
+                Opcode.RET.encoding };
+    }
+
+    // Runs the given program and returns the state of the CPU and of the
+    // memory, including the high RAM, with the work RAM mapped directly to
+    // the CPU or not
+    private static String run(int[] program, boolean mapped) {
+        TestMemory m = new TestMemory();
+        m.load(0, program);
+        Cpu cpu = new Cpu();
+        Bus bus = new Bus();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+        if (mapped)
+            cpu.mapWorkRam(AddressMap.WORK_RAM_START, AddressMap.WORK_RAM_END,
+                    m.data, AddressMap.WORK_RAM_START);
+
+        for (long c = 0; c < 200; ++c)
+            cpu.cycle(c);
+        int[] highRam = new int[AddressMap.HIGH_RAM_SIZE];
+        for (int i = 0; i < highRam.length; ++i)
+            highRam[i] = bus.read(AddressMap.HIGH_RAM_START + i);
+        return Arrays.toString(cpu._testGetPcSpAFBCDEHL()) + " "
+                + Arrays.toString(highRam) + " " + Arrays.hashCode(m.data);
+    }
+
+    @Test
+    void stackInHighOrWorkRamBehavesTheSameWhenAccessedDirectly() {
+        int[] stacks = { 0xFFFF, 0xFFFE, 0xFF90, 0xFF86, 0xE000, 0xD000,
+                0xC00A, 0xFF81, 0xC001 };
+        Random rng = newRandom();
+        for (int sp : stacks) {
+            for (int i = 0; i < RANDOM_ITERATIONS / 5; ++i) {
+                int[] program = program(sp, rng.nextInt(0x10000),
+                        rng.nextInt(0x10000));
+                assertEquals(run(program, false), run(program, true),
+                        String.format("SP = %04X", sp));
+            }
+        }
+    }
+
+    @Test
+    void pushedValuesAreVisibleOnTheBus() {
+        int[] program = program(0xFFFE, 0x1234, 0x5678);
+        TestMemory m = new TestMemory();
+        m.load(0, program);
+        Cpu cpu = new Cpu();
+        Bus bus = new Bus();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+        for (long c = 0; c < 200; ++c)
+            cpu.cycle(c);
+
+        // BC and DE were exchanged by the subroutine below the initial SP
+        assertEquals(0x56, bus.read(0xFFFD));
+        assertEquals(0x78, bus.read(0xFFFC));
+        assertEquals(0x12, bus.read(0xFFFB));
+        assertEquals(0x34, bus.read(0xFFFA));
+        assertEquals(0xFE, m.data[COPY] & 0xFF);
+        assertEquals(0xFF, m.data[COPY + 1] & 0xFF);
+    }
+
+    @Test
+    void mapWorkRamFailsForInvalidRange() {
+        Cpu cpu = new Cpu();
+        byte[] data = new byte[AddressMap.WORK_RAM_SIZE];
+        assertThrows(IllegalArgumentException.class,
+                () -> cpu.mapWorkRam(0x0000, 0x2000, data, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> cpu.mapWorkRam(0xF000, 0x10000, data, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> cpu.mapWorkRam(0xE000, 0xC000, data, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> cpu.mapWorkRam(AddressMap.WORK_RAM_START,
+                        AddressMap.WORK_RAM_END, data, 1));
+    }
+}
@@ -0,0 +1,226 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.FrameHashes;
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.lcd.LcdController.RenderingMode;
+
+class CpuIdleLoopTest {
+    private static final int LY = 0xFF44;
+    private static final int RESULT = 0xC000;
+    private static final long CHANGE = 10_000;
+
+    // Memory whose register LY becomes 0x90 at cycle CHANGE, and which records
+    // the reads of LY and the cycle of the write of the result
+    private static final class Memory extends TestMemory {
+        private long cycle;
+        private int lyReads;
+        private long writeCycle = -1;
+
+        @Override public int read(int address) {
+            if (address == LY) {
+                lyReads += 1;
+                return cycle >= CHANGE ? 0x90 : 0x10;
+            }
+            return super.read(address);
+        }
+
+        @Override public void write(int address, int v) {
+            if (address == RESULT)
+                writeCycle = cycle;
+            super.write(address, v);
+        }
+    }
+
+    private static final Cpu.Horizon HORIZON =
+            new Cpu.Horizon() {
+        @Override public long access(int address) {
+            return address == LY ? CHANGE : Long.MAX_VALUE;
+        }
+
+        @Override public long interruptRequest(int interrupts) {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    // Runs the given program, placed at 0, for 20000 cycles
+    private static Memory run(int[] program, Cpu.Interpreter interpreter,
+            Cpu.Horizon horizon) {
+        Memory m = new Memory();
+        m.load(0, program);
+        Cpu cpu = new Cpu();
+        cpu.setInterpreter(interpreter);
+        cpu.setHorizon(horizon);
+        Bus bus = new Bus();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+
+        for (long c = 0; c < 2 * CHANGE; ++c) {
+            m.cycle = c;
+            cpu.cycle(c);
+        }
+        return m;
+    }
+
+    // Waits for LY to be 0x90, then writes it in memory and halts, doing the
+    // given operation in the loop, with HL pointing to work RAM
+    private static int[] waitProgram(Opcode inLoop) {
+        return new int[] { Opcode.LD_HL_N16.encoding, 0x00, 0xD0,
+                Opcode.LD_A_N8R.encoding, LY & 0xFF,
+                inLoop.encoding, Opcode.CP_A_N8.encoding, 0x90,
+                Opcode.JR_NZ_E8.encoding, 0xF9, Opcode.LD_N16R_A.encoding,
+                RESULT & 0xFF, RESULT >> 8, Opcode.HALT.encoding };
+    }
+
+    @Test
+    void idleLoopEndsAtTheSameCycleWhenSkipped() {
+        for (Cpu.Interpreter i : Cpu.Interpreter.values()) {
+            int[] program = waitProgram(Opcode.NOP);
+            Memory executed = run(program, i, null);
+            Memory skipped = run(program, i, HORIZON);
+
+            assertEquals(executed.writeCycle, skipped.writeCycle);
+            assertTrue(executed.writeCycle >= CHANGE);
+            assertArrayEquals(executed.data, skipped.data);
+            assertTrue(skipped.lyReads < executed.lyReads / 10);
+        }
+    }
+
+    @Test
+    void loopChangingRegistersIsExecuted() {
+        for (Cpu.Interpreter i : Cpu.Interpreter.values()) {
+            int[] program = waitProgram(Opcode.INC_B);
+            Memory executed = run(program, i, null);
+            Memory skipped = run(program, i, HORIZON);
+
+            assertEquals(executed.writeCycle, skipped.writeCycle);
+            assertEquals(executed.lyReads, skipped.lyReads);
+        }
+    }
+
+    @Test
+    void loopWritingMemoryIsExecuted() {
+        for (Cpu.Interpreter i : Cpu.Interpreter.values()) {
+            int[] program = waitProgram(Opcode.LD_HLR_B);
+            Memory executed = run(program, i, null);
+            Memory skipped = run(program, i, HORIZON);
+
+            assertEquals(executed.lyReads, skipped.lyReads);
+            assertArrayEquals(executed.data, skipped.data);
+        }
+    }
+
+    @Test
+    void gameBoyRendersTheSameImagesWhenSkippingIdleLoops()
+            throws IOException {
+        String rom = "tasmaniaStory.gb";
+        assumeTrue(new File(rom).exists(), "ROM " + rom + " not found");
+
+        assertArrayEquals(
+                FrameHashes.of(rom, 30, gb -> gb.cpu().setHorizon(null)),
+                FrameHashes.of(rom, 30, gb -> {}));
+    }
+
+    @Test
+    void gameBoyRendersTheSameImagesWhenRunCycleByCycle() throws IOException {
+        String rom = "tasmaniaStory.gb";
+        assumeTrue(new File(rom).exists(), "ROM " + rom + " not found");
+
+        // The debugger runs each component at each cycle
+        assertArrayEquals(
+                FrameHashes.of(rom, 30, gb -> {}, GameBoy::runTo),
+                FrameHashes.of(rom, 30, gb -> {}));
+    }
+
+    // Counts the frames in B, waiting for each one in a loop polling a flag
+    // of the high RAM, which the VBlank handler sets
+    static GameBoy vblankWaitingGameBoy() {
+        int[] main = { Opcode.LD_SP_N16.encoding, 0xFE, 0xFF,
+                Opcode.LD_A_N8.encoding, Cpu.Interrupt.VBLANK.mask(),
+                Opcode.LD_N8R_A.encoding, AddressMap.REG_IE & 0xFF,
+                Opcode.EI.encoding,
+                Opcode.LD_A_N8R.encoding, 0x80, Opcode.AND_A_A.encoding,
+                Opcode.JR_Z_E8.encoding, 0xFB,
+                Opcode.XOR_A_A.encoding, Opcode.LD_N8R_A.encoding, 0x80,
+                Opcode.INC_B.encoding, Opcode.JR_E8.encoding, 0xF5 };
+        int[] handler = { Opcode.LD_A_N8.encoding, 1,
+                Opcode.LD_N8R_A.encoding, 0x80, Opcode.RETI.encoding };
+        byte[] rom = new byte[0x8000];
+        // The boot ROM being skipped, the CPU starts at 0 and jumps over the
+        // handler
+        rom[0] = (byte) Opcode.JP_N16.encoding;
+        rom[2] = 0x01;
+        for (int i = 0; i < main.length; ++i)
+            rom[0x100 + i] = (byte) main[i];
+        int vblank = AddressMap.INTERRUPTS[Cpu.Interrupt.VBLANK.index()];
+        for (int i = 0; i < handler.length; ++i)
+            rom[vblank + i] = (byte) handler[i];
+
+        GameBoy gb = new GameBoy(CartridgeTest.cartridgeWithData(rom));
+        gb.lcdController().setRenderingMode(RenderingMode.LAZY);
+        // Skip the boot ROM and turn the screen on
+        gb.bus().write(AddressMap.REG_BOOT_ROM_DISABLE, 1);
+        gb.bus().write(AddressMap.REGS_LCDC_START, 0x80);
+        return gb;
+    }
+
+    // Horizon of the game boy counting the accesses which the CPU checks,
+    // i.e. the executed iterations of the loops repeating their registers,
+    // and preventing the skipping if asked to
+    private static final class CountingHorizon implements Cpu.Horizon {
+        private final Cpu.Horizon horizon;
+        private final boolean skipIdleLoops;
+        private long accesses;
+
+        CountingHorizon(Cpu.Horizon horizon, boolean skipIdleLoops) {
+            this.horizon = horizon;
+            this.skipIdleLoops = skipIdleLoops;
+        }
+
+        @Override public long access(int address) {
+            accesses += 1;
+            return horizon.access(address);
+        }
+
+        @Override public long interruptRequest(int interrupts) {
+            return skipIdleLoops ? horizon.interruptRequest(interrupts)
+                    : Long.MIN_VALUE;
+        }
+    }
+
+    // Returns the number of accesses checked to run the given number of
+    // frames, and checks that the program counted them all
+    private static long checkedAccesses(boolean skipIdleLoops, int frames) {
+        try (GameBoy gb = vblankWaitingGameBoy()) {
+            CountingHorizon horizon =
+                    new CountingHorizon(gb.cpu().horizon(), skipIdleLoops);
+            gb.cpu().setHorizon(horizon);
+            gb.runUntil(frames * GameBoy.FRAME_CYCLES);
+            assertEquals(frames, gb.lcdController().frameCount());
+            assertEquals(frames, gb.cpu().registerValue(Cpu.RegisterName.B));
+            return horizon.accesses;
+        }
+    }
+
+    @Test
+    void gameBoySkipsTheIdleLoopsWaitingForTheVBlank() {
+        int frames = 50;
+        long executed = checkedAccesses(false, frames);
+        long skipped = checkedAccesses(true, frames);
+        assertTrue(100 * skipped < executed,
+                String.format("%d accesses skipping, %d executing", skipped,
+                        executed));
+    }
+}
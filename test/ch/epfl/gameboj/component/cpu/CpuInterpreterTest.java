@@ -0,0 +1,75 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+
+class CpuInterpreterTest {
+    private static final int STACK = 0xC000;
+    private static final int PROGRAM = 0x0000;
+    private static final int INSTRUCTION = 0x0100;
+
+    // Loads random values in all the registers, then executes the given
+    // opcode once, returning the state of the CPU and of the memory
+    private static String run(Opcode o, byte[] contents,
+            Cpu.Interpreter interpreter) {
+        TestMemory m = new TestMemory(contents);
+        int[] prologue = { Opcode.LD_SP_N16.encoding, STACK & 0xFF,
+                STACK >> 8, Opcode.POP_AF.encoding, Opcode.POP_BC.encoding,
+                Opcode.POP_DE.encoding, Opcode.POP_HL.encoding,
+                Opcode.JP_N16.encoding, INSTRUCTION & 0xFF,
+                INSTRUCTION >> 8 };
+        m.load(PROGRAM, prologue);
+        int at = INSTRUCTION;
+        if (o.kind == Opcode.Kind.PREFIXED)
+            m.data[at++] = (byte) 0xCB;
+        m.data[at] = (byte) o.encoding;
+        // Keep IE null so that no interruption is handled
+        m.data[0xFFFF] = 0;
+
+        Cpu cpu = new Cpu();
+        cpu.setInterpreter(interpreter);
+        Bus bus = new Bus();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+
+        long cycle = 0;
+        for (int i = 0; i < 7; ++i) {
+            do {
+                cpu.cycle(cycle++);
+            } while (!cpu.startsInstruction(cycle) && cycle < 1000);
+        }
+        return Arrays.toString(cpu._testGetPcSpAFBCDEHL()) + " at " + cycle
+                + " " + Arrays.hashCode(m.data);
+    }
+
+    @Test
+    void interpretersExecuteAllOpcodesInTheSameWay() {
+        Random rng = newRandom();
+        for (Opcode o : Opcode.values()) {
+            for (int i = 0; i < 20; ++i) {
+                byte[] contents = new byte[0x10000];
+                rng.nextBytes(contents);
+                assertEquals(run(o, contents, Cpu.Interpreter.SWITCH),
+                        run(o, contents, Cpu.Interpreter.HANDLERS),
+                        o.name());
+            }
+        }
+    }
+
+    @Test
+    void interpreterCanBeChosen() {
+        Cpu cpu = new Cpu();
+        assertEquals(Cpu.Interpreter.SWITCH, cpu.interpreter());
+        cpu.setInterpreter(Cpu.Interpreter.HANDLERS);
+        assertEquals(Cpu.Interpreter.HANDLERS, cpu.interpreter());
+        assertArrayEquals(new int[10], cpu._testGetPcSpAFBCDEHL());
+    }
+}
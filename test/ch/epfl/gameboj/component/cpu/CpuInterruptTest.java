@@ -0,0 +1,108 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
+
+class CpuInterruptTest {
+    private static final int HANDLER = AddressMap.INTERRUPTS[
+            Cpu.Interrupt.TIMER.index()];
+
+    // Enables the timer interruption, then halts in a loop, the handler
+    // incrementing B
+    private static Cpu halted(Bus bus) {
+        int[] program = { Opcode.LD_SP_N16.encoding, 0x00, 0xD0,
+                Opcode.LD_A_N8.encoding, Cpu.Interrupt.TIMER.mask(),
+                Opcode.LD_N8R_A.encoding, AddressMap.REG_IE & 0xFF,
+                Opcode.EI.encoding, Opcode.HALT.encoding,
+                Opcode.JR_E8.encoding, 0xFD };
+        int[] handler = { Opcode.INC_B.encoding, Opcode.RETI.encoding };
+        TestMemory m = new TestMemory();
+        m.load(0, program);
+        m.load(HANDLER, handler);
+
+        Cpu cpu = new Cpu();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+        return cpu;
+    }
+
+    @Test
+    void requestedInterruptWakesTheHaltedCpuUpAtTheNextCycle() {
+        Cpu cpu = halted(new Bus());
+        for (long c = 0; c < 100; ++c)
+            cpu.cycle(c);
+        assertFalse(cpu.startsInstruction(100));
+
+        cpu.requestInterrupt(Cpu.Interrupt.TIMER);
+        assertTrue(cpu.startsInstruction(100));
+        cpu.cycle(100);
+        assertEquals(HANDLER, cpu._testGetPcSpAFBCDEHL()[0]);
+    }
+
+    @Test
+    void disabledInterruptDoesNotWakeTheHaltedCpuUp() {
+        Cpu cpu = halted(new Bus());
+        for (long c = 0; c < 100; ++c)
+            cpu.cycle(c);
+
+        cpu.requestInterrupt(Cpu.Interrupt.VBLANK);
+        assertFalse(cpu.startsInstruction(100));
+        assertEquals(Cpu.Interrupt.VBLANK.mask(),
+                cpu.read(AddressMap.REG_IF));
+    }
+
+    @Test
+    void writeOfIfWakesTheHaltedCpuUp() {
+        Bus bus = new Bus();
+        Cpu cpu = halted(bus);
+        for (long c = 0; c < 100; ++c)
+            cpu.cycle(c);
+
+        bus.write(AddressMap.REG_IF, Cpu.Interrupt.TIMER.mask());
+        assertTrue(cpu.startsInstruction(100));
+    }
+
+    @Test
+    void cpuCycledOnlyWhenItStartsInstructionsBehavesTheSame() {
+        Cpu always = halted(new Bus());
+        Cpu skipping = halted(new Bus());
+        for (long c = 0; c < 10_000; ++c) {
+            if (c % 97 == 0) {
+                always.requestInterrupt(Cpu.Interrupt.TIMER);
+                skipping.requestInterrupt(Cpu.Interrupt.TIMER);
+            }
+            always.cycle(c);
+            if (skipping.startsInstruction(c))
+                skipping.cycle(c);
+            assertArrayEquals(always._testGetPcSpAFBCDEHL(),
+                    skipping._testGetPcSpAFBCDEHL());
+        }
+        // B counts the interruptions handled
+        assertEquals(10_000 / 97 + 1, always._testGetPcSpAFBCDEHL()[4]);
+    }
+
+    @Test
+    void stoppedCpuIsOnlyResumedByAKey() {
+        Bus bus = new Bus();
+        Cpu cpu = halted(bus);
+        bus.write(0x0008, Opcode.STOP.encoding);
+        for (long c = 0; c < 100; ++c)
+            cpu.cycle(c);
+        assertTrue(cpu.isStopped());
+
+        cpu.requestInterrupt(Cpu.Interrupt.TIMER);
+        assertFalse(cpu.startsInstruction(100));
+        cpu.resume();
+        assertFalse(cpu.isStopped());
+        assertTrue(cpu.startsInstruction(100));
+        cpu.cycle(100);
+        assertEquals(HANDLER, cpu._testGetPcSpAFBCDEHL()[0]);
+    }
+}
@@ -0,0 +1,64 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.RamController;
+
+public final class CpuStatisticsTest {
+    private static Cpu newCpu(Bus bus, int... program) {
+        Cpu cpu = new Cpu();
+        RamController rc = new RamController(new Ram(0xFF00), 0);
+        cpu.attachTo(bus);
+        rc.attachTo(bus);
+        for (int i = 0; i < program.length; ++i)
+            bus.write(i, program[i]);
+        return cpu;
+    }
+
+    @Test
+    void statisticsAreEmptyWhenDisabled() {
+        Cpu cpu = newCpu(new Bus(), Opcode.NOP.encoding);
+        CpuStatistics s = new CpuStatistics();
+        cpu.cycle(0);
+        cpu.setStatistics(s);
+        cpu.setStatistics(null);
+        cpu.cycle(1);
+        assertEquals(0, s.count(Opcode.NOP));
+    }
+
+    @Test
+    void instructionsInterruptsAndHaltsAreCounted() {
+        Bus bus = new Bus();
+        Cpu cpu = newCpu(bus, 0x3E, 0x01, 0xE0, 0xFF, 0xFB, 0x76);
+        bus.write(0x40, Opcode.RETI.encoding);
+        CpuStatistics s = new CpuStatistics();
+        cpu.setStatistics(s);
+
+        for (long c = 0; c < 40; ++c) {
+            if (c == 20)
+                cpu.requestInterrupt(Cpu.Interrupt.VBLANK);
+            cpu.cycle(c);
+        }
+
+        assertEquals(1, s.count(Opcode.LD_A_N8));
+        assertEquals(1, s.count(Opcode.HALT));
+        assertEquals(1, s.count(Opcode.RETI));
+        assertEquals(Opcode.LD_N8R_A.cycles, s.cycles(Opcode.Family.LD_N8R_A));
+        assertEquals(1, s.count(Cpu.Interrupt.VBLANK));
+        assertEquals(1, s.halts());
+        int haltStart = Opcode.LD_A_N8.cycles + Opcode.LD_N8R_A.cycles
+                + Opcode.EI.cycles + Opcode.HALT.cycles;
+        assertEquals(20 - haltStart, s.haltCycles());
+
+        String json = s.toJson();
+        assertTrue(json.contains("\"HALT\": 1"));
+        assertTrue(json.contains("\"VBLANK\": 1"));
+        s.reset();
+        assertEquals(0, s.count(Opcode.HALT));
+    }
+}
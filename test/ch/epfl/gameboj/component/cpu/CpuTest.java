@@ -580,6 +580,53 @@ class CpuTest {
         }
     }
 
+    // Arithmetic
+
+    @Test
+    void flagsOfArithmeticMatchAluWhenPushed() throws IOException {
+        Opcode[] os = new Opcode[] {
+                ADD_A_N8, ADC_A_N8, SUB_A_N8, SBC_A_N8, CP_A_N8, AND_A_N8
+        };
+        Random rng = newRandom();
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            Opcode o = os[rng.nextInt(os.length)];
+            int a = rng.nextInt(0x100), n = rng.nextInt(0x100);
+            boolean c = rng.nextBoolean();
+            int vf;
+            switch (o) {
+            case ADD_A_N8: vf = Alu.add(a, n); break;
+            case ADC_A_N8: vf = Alu.add(a, n, c); break;
+            case SUB_A_N8: vf = Alu.sub(a, n); break;
+            case SBC_A_N8: vf = Alu.sub(a, n, c); break;
+            case CP_A_N8: vf = Alu.sub(a, n) & 0xFF | a << 8; break;
+            default: vf = Alu.and(a, n); break;
+            }
+
+            Opcode[] program = new Opcode[] {
+                    LD_SP_N16, c ? SCF : NOP, LD_A_N8, o, PUSH_AF, POP_BC,
+                    INC_A, DEC_A
+            };
+            try (ByteArrayOutputStream s = new ByteArrayOutputStream()) {
+                emitN16(s, LD_SP_N16, 0xFFF0);
+                emit(s, program[1]);
+                emitN8(s, LD_A_N8, a);
+                emitN8(s, o, n);
+                emit(s, PUSH_AF);
+                emit(s, POP_BC);
+                emit(s, INC_A);
+                emit(s, DEC_A);
+                int result = Alu.unpackValue(vf), flags = Alu.unpackFlags(vf);
+                // INC and DEC keep C, and DEC after INC sets H iff the 4 LSB
+                // of the result are all 1
+                int f = (result == 0 ? 0x80 : 0) | 0x40
+                        | ((result & 0xF) == 0xF ? 0x20 : 0) | (flags & 0x10);
+                int[] e = cpuState(totalBytes(program), 0xFFF0, result, f,
+                        result, flags, 0, 0, 0, 0);
+                assertCpuStateEquals(e, stateAfter(s, totalCycles(program)));
+            }
+        }
+    }
+
     private static int combine(int h, int l) {
         return (h << 8) | l;
     }
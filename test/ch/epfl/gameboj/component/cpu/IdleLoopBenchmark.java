@@ -0,0 +1,38 @@
+package ch.epfl.gameboj.component.cpu;
+
+import ch.epfl.gameboj.GameBoy;
+
+/**
+ * Measures the time taken to run a game boy waiting for the VBlank in an idle
+ * loop, with and without the skipping of its iterations. It is not part of
+ * the tests, as its results depend on the machine.
+ */
+public final class IdleLoopBenchmark {
+    private static final int FRAMES = 250;
+    private static final int RUNS = 5;
+
+    private IdleLoopBenchmark() {
+    }
+
+    // Returns the best time, in nanoseconds, to run the frames
+    private static long bestRunNanos(boolean skipIdleLoops) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; ++run) {
+            try (GameBoy gb = CpuIdleLoopTest.vblankWaitingGameBoy()) {
+                if (!skipIdleLoops)
+                    gb.cpu().setHorizon(null);
+                long start = System.nanoTime();
+                gb.runUntil(FRAMES * GameBoy.FRAME_CYCLES);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        long executed = bestRunNanos(false);
+        long skipped = bestRunNanos(true);
+        System.out.printf("%d frames: %.1f ms skipping, %.1f ms executing%n",
+                FRAMES, skipped / 1e6, executed / 1e6);
+    }
+}
@@ -0,0 +1,102 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.component.memory.Ram;
+import ch.epfl.gameboj.component.memory.RamController;
+
+public final class PcProfilerTest {
+    private static final String SYMBOLS = "; RGBDS symbols\n"
+            + "00:0000 Main\n"
+            + "00:0010 Routine ; comment\n"
+            + "01:4000 BankOne\n"
+            + "02:4000 BankTwo\n"
+            + "00:C100 WorkRamCode\n"
+            + "00:FF80 HighRamCode\n"
+            + "not a symbol\n";
+
+    private static Cpu newCpu(int... program) {
+        Bus bus = new Bus();
+        Cpu cpu = new Cpu();
+        RamController rc = new RamController(new Ram(0xFF00), 0);
+        cpu.attachTo(bus);
+        rc.attachTo(bus);
+        for (int i = 0; i < program.length; ++i)
+            bus.write(i, program[i]);
+        return cpu;
+    }
+
+    private static SymbolTable symbols() throws IOException {
+        return SymbolTable.read(new StringReader(SYMBOLS));
+    }
+
+    @Test
+    void constructorFailsForInvalidPeriod() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PcProfiler(0, a -> 0));
+    }
+
+    @Test
+    void symbolsAreFoundInTheirBank() throws IOException {
+        SymbolTable t = symbols();
+        assertEquals(6, t.size());
+        assertEquals("Main", t.nameOf(SymbolTable.key(0, 0x0003)));
+        assertEquals("Routine", t.nameOf(SymbolTable.key(5, 0x0123)));
+        assertEquals("BankOne", t.nameOf(SymbolTable.key(1, 0x4567)));
+        assertEquals("BankTwo", t.nameOf(SymbolTable.key(2, 0x4000)));
+        assertEquals("03:4000", t.nameOf(SymbolTable.key(3, 0x4000)));
+        assertEquals("00:0003", SymbolTable.EMPTY.nameOf(3));
+    }
+
+    @Test
+    void symbolsAreOnlyFoundInTheirMemoryArea() throws IOException {
+        SymbolTable t = symbols();
+        assertEquals("00:8000", t.nameOf(SymbolTable.key(0, 0x8000)));
+        assertEquals("00:C0FF", t.nameOf(SymbolTable.key(0, 0xC0FF)));
+        assertEquals("WorkRamCode", t.nameOf(SymbolTable.key(0, 0xDFFF)));
+        assertEquals("00:FF00", t.nameOf(SymbolTable.key(0, 0xFF00)));
+        assertEquals("HighRamCode", t.nameOf(SymbolTable.key(0, 0xFF90)));
+    }
+
+    @Test
+    void samplesAreCollapsedWithTheirCalls() throws IOException {
+        // CALL 0x0010; JR -2; ...; 0x0010: NOP; RET
+        Cpu cpu = newCpu(0xCD, 0x10, 0x00, 0x18, 0xFE, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0x00, 0xC9);
+        PcProfiler profiler = new PcProfiler(1, a -> 0);
+        cpu.setProfiler(profiler);
+        for (long c = 0; c < 30; ++c)
+            cpu.cycle(c);
+
+        StringBuilder b = new StringBuilder();
+        profiler.writeCollapsed(b, symbols());
+        long mainSamples = profiler.samples() - 2;
+        assertEquals("Main " + mainSamples + "\nMain;Routine 2\n",
+                b.toString());
+    }
+
+    @Test
+    void framesLeftWithoutReturnAreDropped() {
+        PcProfiler profiler = new PcProfiler(1, a -> 0);
+        profiler.enter(0x0000, 0xFFFC);
+        profiler.enter(0x0010, 0xFFFA);
+        // The inner routine dropped its return address and returned twice
+        profiler.exit(0xFFFC);
+        profiler.sample(0, 0x0003);
+
+        StringBuilder b = new StringBuilder();
+        try {
+            profiler.writeCollapsed(b, SymbolTable.EMPTY);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        assertEquals("00:0003 1\n", b.toString());
+    }
+}
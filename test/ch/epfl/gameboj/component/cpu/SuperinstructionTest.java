@@ -0,0 +1,163 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.Bus;
+
+class SuperinstructionTest {
+    private static final int STACK = 0xC000;
+    private static final int PROGRAM = 0x0000;
+    private static final int SEQUENCE = 0x0100;
+    private static final int CYCLES = 10_000;
+
+    // Horizon of a CPU alone on its bus, which lets it anticipate everything
+    private static final Cpu.Horizon ALONE = new Cpu.Horizon() {
+        @Override public long access(int address) {
+            return Long.MAX_VALUE;
+        }
+
+        @Override public long interruptRequest(int interrupts) {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    // Horizon of a CPU whose memory may be accessed at any time
+    private static final Cpu.Horizon SHARED = new Cpu.Horizon() {
+        @Override public long access(int address) {
+            return Long.MIN_VALUE;
+        }
+
+        @Override public long interruptRequest(int interrupts) {
+            return Long.MAX_VALUE;
+        }
+    };
+
+    // Loads the registers from the contents, then executes the code placed at
+    // SEQUENCE during CYCLES cycles, returning the state of the CPU and of
+    // the memory, once it is halted
+    private static String run(byte[] contents, Cpu.Interpreter interpreter,
+            Set<Superinstruction> superinstructions, Cpu.Horizon horizon) {
+        TestMemory m = new TestMemory(contents);
+        int[] prologue = { Opcode.LD_SP_N16.encoding, STACK & 0xFF,
+                STACK >> 8, Opcode.POP_AF.encoding, Opcode.POP_BC.encoding,
+                Opcode.POP_DE.encoding, Opcode.POP_HL.encoding,
+                Opcode.JP_N16.encoding, SEQUENCE & 0xFF, SEQUENCE >> 8 };
+        m.load(PROGRAM, prologue);
+        // Keep IE null so that no interruption is handled
+        m.data[0xFFFF] = 0;
+
+        Cpu cpu = new Cpu();
+        cpu.setInterpreter(interpreter);
+        cpu.setSuperinstructions(superinstructions);
+        cpu.setHorizon(horizon);
+        Bus bus = new Bus();
+        cpu.attachTo(bus);
+        m.attachTo(bus);
+
+        for (long c = 0; c < CYCLES; ++c)
+            cpu.cycle(c);
+        return Arrays.toString(cpu._testGetPcSpAFBCDEHL()) + " "
+                + Arrays.hashCode(m.data);
+    }
+
+    // Places the given superinstruction at SEQUENCE, looping on itself if it
+    // ends with a jump, and followed by HALT. The loops end after at most
+    // 1024 iterations: B is at most 3 and the I/O register read is P1, which
+    // has the value compared to
+    private static void place(Superinstruction s, byte[] contents) {
+        contents[STACK + 3] = (byte) (contents[STACK + 3] & 0b11);
+        int at = SEQUENCE;
+        for (Opcode o : s.opcodes()) {
+            if (o.kind == Opcode.Kind.PREFIXED)
+                contents[at++] = (byte) 0xCB;
+            contents[at] = (byte) o.encoding;
+            at += o.totalBytes;
+            if (o.family == Opcode.Family.LD_A_N8R)
+                contents[at - 1] = 0x00;
+            if (o.family == Opcode.Family.CP_A_N8)
+                contents[at - 1] = contents[0xFF00];
+            if (o.family == Opcode.Family.JR_CC_E8)
+                contents[at - 1] = (byte) (SEQUENCE - at);
+        }
+        contents[at] = (byte) Opcode.HALT.encoding;
+    }
+
+    private static void assertSameExecution(byte[] contents, String message) {
+        Set<Superinstruction> all = EnumSet.allOf(Superinstruction.class);
+        Set<Superinstruction> none = EnumSet.noneOf(Superinstruction.class);
+        for (Cpu.Interpreter i : Cpu.Interpreter.values()) {
+            String expected = run(contents, i, none, null);
+            assertEquals(expected, run(contents, i, all, ALONE), message);
+            assertEquals(expected, run(contents, i, all, SHARED), message);
+            assertEquals(expected, run(contents, i, all, null), message);
+        }
+    }
+
+    @Test
+    void superinstructionsExecuteLikeTheirInstructions() {
+        Random rng = newRandom();
+        for (Superinstruction s : Superinstruction.values()) {
+            for (int i = 0; i < 20; ++i) {
+                byte[] contents = new byte[0x10000];
+                rng.nextBytes(contents);
+                place(s, contents);
+                assertSameExecution(contents, s.name());
+            }
+        }
+    }
+
+    @Test
+    void superinstructionOverwritingItselfExecutesTheNewInstruction() {
+        byte[] contents = new byte[0x10000];
+        place(Superinstruction.COPY_HLI_TO_DE, contents);
+        // Registers popped from the stack: AF, BC, DE and HL
+        int[] registers = { 0x00, 0x00, 0x00, 0x00, SEQUENCE + 2,
+                SEQUENCE >> 8, 0x00, 0xD0 };
+        for (int i = 0; i < registers.length; ++i)
+            contents[STACK + i] = (byte) registers[i];
+        // Copies INC E over INC DE
+        contents[0xD000] = (byte) Opcode.INC_E.encoding;
+
+        assertSameExecution(contents, "");
+    }
+
+    @Test
+    void superinstructionsAreFoundAgainWhenTheRomChanges() {
+        byte[] contents = new byte[0x10000];
+        // After the loop on B, writes DEC C over its DEC B, runs it again and
+        // halts
+        int[] code = { Opcode.LD_B_N8.encoding, 0x10, Opcode.LD_C_N8.encoding,
+                0x20, Opcode.DEC_B.encoding, Opcode.JR_NZ_E8.encoding, -3,
+                Opcode.LD_A_N8.encoding, Opcode.DEC_C.encoding,
+                Opcode.LD_HL_N16.encoding, (SEQUENCE + 4) & 0xFF,
+                (SEQUENCE + 4) >> 8, Opcode.CP_A_HLR.encoding,
+                Opcode.JR_Z_E8.encoding, 4, Opcode.LD_HLR_A.encoding,
+                Opcode.JP_N16.encoding, (SEQUENCE + 4) & 0xFF,
+                (SEQUENCE + 4) >> 8, Opcode.HALT.encoding };
+        for (int i = 0; i < code.length; ++i)
+            contents[SEQUENCE + i] = (byte) code[i];
+
+        assertSameExecution(contents, "");
+    }
+
+    @Test
+    void superinstructionsCanBeChosen() {
+        Cpu cpu = new Cpu();
+        assertTrue(cpu.superinstructions().isEmpty());
+        Set<Superinstruction> s = EnumSet.of(Superinstruction.DEC_B_JR_NZ,
+                Superinstruction.LDH_CP);
+        cpu.setSuperinstructions(s);
+        assertEquals(s, cpu.superinstructions());
+        cpu.setSuperinstructions(EnumSet.noneOf(Superinstruction.class));
+        assertTrue(cpu.superinstructions().isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package ch.epfl.gameboj.component.cpu;
+
+import static ch.epfl.gameboj.component.cpu.AluTest.INT_1;
+import static ch.epfl.gameboj.component.cpu.AluTest.INT_8;
+import static ch.epfl.gameboj.component.cpu.AluTest.test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.FrameHashes;
+
+class TableAluTest {
+
+    @Test
+    void addProducesSameResultsAsReference() throws IOException {
+        test("add", "ADD", INT_8, INT_8, INT_1, (l, r, c) -> TableAlu.add(l, r, c != 0));
+    }
+
+    @Test
+    void subProducesSameResultsAsReference() throws IOException {
+        test("sub", "SUB", INT_8, INT_8, INT_1, (l, r, c) -> TableAlu.sub(l, r, c != 0));
+    }
+
+    @Test
+    void bcdAdjustProducesSameResultsAsReference() throws IOException {
+        test("bcdAdjust", "BCDA", INT_8, INT_1, INT_1, INT_1, (v, n, h, c) -> TableAlu.bcdAdjust(v, n != 0, h != 0, c != 0));
+    }
+
+    @Test
+    void andProducesSameResultsAsReference() throws IOException {
+        test("and", "AND", INT_8, INT_8, TableAlu::and);
+    }
+
+    @Test
+    void orProducesSameResultsAsReference() throws IOException {
+        test("or", "OR", INT_8, INT_8, TableAlu::or);
+    }
+
+    @Test
+    void xorProducesSameResultsAsReference() throws IOException {
+        test("xor", "XOR", INT_8, INT_8, TableAlu::xor);
+    }
+
+    @Test
+    void shiftLeftProducesSameResultsAsReference() throws IOException {
+        test("shiftLeft", "SHL", INT_8, TableAlu::shiftLeft);
+    }
+
+    @Test
+    void shiftRightAProducesSameResultsAsReference() throws IOException {
+        test("shiftRightA", "SHR_A", INT_8, TableAlu::shiftRightA);
+    }
+
+    @Test
+    void shiftRightLProducesSameResultsAsReference() throws IOException {
+        test("shiftRightL", "SHR_L", INT_8, TableAlu::shiftRightL);
+    }
+
+    @Test
+    void rotate2ProducesSameResultsAsReference() throws IOException {
+        test("rotate", "ROT2", INT_1, INT_8, (d, v) -> TableAlu.rotate(d == 0 ? Alu.RotDir.LEFT : Alu.RotDir.RIGHT, v));
+    }
+
+    @Test
+    void rotate3ProducesSameResultsAsReference() throws IOException {
+        test("rotate", "ROT3", INT_1, INT_8, INT_1, (d, v, c) -> TableAlu.rotate(d == 0 ? Alu.RotDir.LEFT : Alu.RotDir.RIGHT, v, c != 0));
+    }
+
+    @Test
+    void swapProducesSameResultsAsReference() throws IOException {
+        test("swap", "SWAP", INT_8, TableAlu::swap);
+    }
+
+    @Test
+    void cpuRendersTheSameImagesInBothModes() throws IOException {
+        String rom = "tasmaniaStory.gb";
+        assumeTrue(new File(rom).exists(), "ROM " + rom + " not found");
+
+        assertArrayEquals(
+                FrameHashes.of(rom, 12,
+                        gb -> gb.cpu().setAluMode(Cpu.AluMode.COMPUTED)),
+                FrameHashes.of(rom, 12,
+                        gb -> gb.cpu().setAluMode(Cpu.AluMode.TABLES)));
+    }
+}
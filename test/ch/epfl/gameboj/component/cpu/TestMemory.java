@@ -0,0 +1,35 @@
+package ch.epfl.gameboj.component.cpu;
+
+import java.util.Arrays;
+
+import ch.epfl.gameboj.component.Component;
+
+/**
+ * Memory covering the whole address space, on which the tests run a CPU
+ * alone
+ */
+class TestMemory implements Component {
+    final byte[] data;
+
+    TestMemory() {
+        data = new byte[0x10000];
+    }
+
+    TestMemory(byte[] data) {
+        this.data = Arrays.copyOf(data, data.length);
+    }
+
+    // Copies the given bytes, e.g. a program, from the given address
+    void load(int address, int[] bytes) {
+        for (int i = 0; i < bytes.length; ++i)
+            data[address + i] = (byte) bytes[i];
+    }
+
+    @Override public int read(int address) {
+        return Byte.toUnsignedInt(data[address]);
+    }
+
+    @Override public void write(int address, int v) {
+        data[address] = (byte) v;
+    }
+}
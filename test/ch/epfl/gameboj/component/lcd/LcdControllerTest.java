@@ -0,0 +1,203 @@
+package ch.epfl.gameboj.component.lcd;
+
+import static ch.epfl.test.TestRandomizer.RANDOM_ITERATIONS;
+import static ch.epfl.test.TestRandomizer.newRandom;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ch.epfl.gameboj.AddressMap;
+import ch.epfl.gameboj.Bus;
+import ch.epfl.gameboj.GameBoy;
+import ch.epfl.gameboj.component.cartridge.CartridgeTest;
+import ch.epfl.gameboj.component.cpu.Cpu;
+import ch.epfl.gameboj.component.lcd.LcdController.RenderingMode;
+
+public final class LcdControllerTest {
+    private static final int FRAMES = 6;
+
+    private static LcdController newController(Bus bus, Random rng,
+            RenderingMode mode) {
+        Cpu cpu = new Cpu();
+        LcdController lcd = new LcdController(cpu);
+        cpu.attachTo(bus);
+        lcd.attachTo(bus);
+        lcd.setRenderingMode(mode);
+
+        bus.write(0xFF40, 0);
+        bus.write(0xFF40, 0);
+        for (int a = AddressMap.VIDEO_RAM_START; a < AddressMap.VIDEO_RAM_END; ++a)
+            bus.write(a, rng.nextInt(0x100));
+        for (int a = AddressMap.OAM_START; a < AddressMap.OAM_END; ++a)
+            bus.write(a, rng.nextInt(0x100));
+        bus.write(0xFF47, 0b11_10_01_00);
+        bus.write(0xFF48, 0b00_01_10_11);
+        bus.write(0xFF49, 0b01_11_00_10);
+        bus.write(0xFF4A, 40);
+        bus.write(0xFF4B, 60);
+        bus.write(0xFF40, 0b1111_0011);
+        return lcd;
+    }
+
+    // Runs a frame starting at the given cycle, writing randomly in the video
+    // memory and the registers, and starting DMA copies from the video ram
+    private static void runFrame(LcdController lcd, Bus bus, Random rng,
+            long firstCycle) {
+        for (long cycle = firstCycle; cycle < firstCycle
+                + GameBoy.FRAME_CYCLES; ++cycle) {
+            lcd.cycle(cycle);
+            switch (rng.nextInt(400)) {
+            case 0:
+                bus.write(AddressMap.VIDEO_RAM_START
+                        + rng.nextInt(AddressMap.VIDEO_RAM_SIZE),
+                        rng.nextInt(0x100));
+                break;
+            case 1:
+                bus.write(AddressMap.OAM_START
+                        + rng.nextInt(AddressMap.OAM_RAM_SIZE),
+                        rng.nextInt(0x100));
+                break;
+            case 2:
+                bus.write(0xFF43, rng.nextInt(0x100));
+                break;
+            case 3:
+                bus.write(0xFF46, (AddressMap.VIDEO_RAM_START >> 8)
+                        + rng.nextInt(AddressMap.VIDEO_RAM_SIZE >> 8));
+                break;
+            }
+        }
+    }
+
+    private static LcdImage[] runFrames(RenderingMode mode, long seed,
+            boolean readEveryFrame) {
+        Random rng = new Random(seed);
+        Bus bus = new Bus();
+        LcdController lcd = newController(bus, rng, mode);
+
+        LcdImage[] images = new LcdImage[FRAMES];
+        for (int f = 0; f < FRAMES; ++f) {
+            runFrame(lcd, bus, rng, f * GameBoy.FRAME_CYCLES);
+            if (readEveryFrame || f == FRAMES - 1)
+                images[f] = lcd.currentImage();
+        }
+        lcd.close();
+        return images;
+    }
+
+    @Test
+    void lazyRenderingProducesSameImagesAsEagerRendering() {
+        long seed = newRandom().nextLong();
+        LcdImage[] eager = runFrames(RenderingMode.EAGER, seed, true);
+        LcdImage[] lazy = runFrames(RenderingMode.LAZY, seed, true);
+        for (int f = 0; f < FRAMES; ++f)
+            assertEquals(eager[f], lazy[f]);
+    }
+
+    @Test
+    void lazyRenderingWorksWhenFramesAreSkipped() {
+        long seed = newRandom().nextLong();
+        LcdImage[] eager = runFrames(RenderingMode.EAGER, seed, true);
+        LcdImage[] lazy = runFrames(RenderingMode.LAZY, seed, false);
+        assertEquals(eager[FRAMES - 1], lazy[FRAMES - 1]);
+    }
+
+    @Test
+    void pipelinedRenderingProducesSameImagesAsEagerRendering() {
+        long seed = newRandom().nextLong();
+        LcdImage[] eager = runFrames(RenderingMode.EAGER, seed, true);
+        LcdImage[] pipelined = runFrames(RenderingMode.PIPELINED, seed, true);
+        for (int f = 0; f < FRAMES; ++f)
+            assertEquals(eager[f], pipelined[f]);
+    }
+
+    @Test
+    void pipelinedRenderingWorksWhenFramesAreSkipped() {
+        long seed = newRandom().nextLong();
+        LcdImage[] eager = runFrames(RenderingMode.EAGER, seed, true);
+        LcdImage[] pipelined = runFrames(RenderingMode.PIPELINED, seed, false);
+        assertEquals(eager[FRAMES - 1], pipelined[FRAMES - 1]);
+    }
+
+    @Test
+    void lazyRenderingComputesOnlyTheRequestedImages() {
+        Random rng = newRandom();
+        Bus bus = new Bus();
+        LcdController lcd = newController(bus, rng, RenderingMode.LAZY);
+        for (int f = 0; f < FRAMES; ++f) {
+            // A DMA copy at the beginning of each frame, while lines are
+            // pending
+            runFrame(lcd, bus, rng, f * GameBoy.FRAME_CYCLES);
+            bus.write(0xFF46, AddressMap.VIDEO_RAM_START >> 8);
+        }
+        assertEquals(FRAMES, lcd.frameCount());
+        assertEquals(0, lcd.renderedLines());
+
+        lcd.currentImage();
+        assertEquals(LcdController.LCD_HEIGHT, lcd.renderedLines());
+    }
+
+    @Test
+    void nextLineAndInterruptCyclesAreTheCyclesOfTheNextChanges() {
+        Random rng = newRandom();
+        Cpu cpu = new Cpu();
+        Bus bus = new Bus();
+        LcdController lcd = new LcdController(cpu);
+        cpu.attachTo(bus);
+        lcd.attachTo(bus);
+        bus.write(0xFF40, 0x80);
+
+        // The first frame, during which the screen is turned on, is skipped
+        long cycle = 0;
+        for (; cycle < GameBoy.FRAME_CYCLES; ++cycle)
+            lcd.cycle(cycle);
+
+        for (int i = 0; i < RANDOM_ITERATIONS; ++i) {
+            int stat = rng.nextBoolean() ? 0 : 0b1000 << rng.nextInt(4);
+            bus.write(0xFF41, stat);
+            cpu.write(AddressMap.REG_IF, 0);
+            int ly = bus.read(AddressMap.REG_LY);
+            long line = lcd.nextLineCycle();
+            long interrupt = lcd.nextInterruptCycle();
+
+            long lineChange = -1, interruptRequest = -1;
+            for (; lineChange < 0 || interruptRequest < 0; ++cycle) {
+                lcd.cycle(cycle);
+                if (lineChange < 0 && bus.read(AddressMap.REG_LY) != ly)
+                    lineChange = cycle;
+                if (interruptRequest < 0
+                        && cpu.read(AddressMap.REG_IF) != 0)
+                    interruptRequest = cycle;
+            }
+            assertEquals(lineChange, line);
+            if (stat == 0 && ly < LcdController.LCD_HEIGHT)
+                assertEquals(interruptRequest, interrupt);
+            else
+                assertTrue(interrupt <= interruptRequest);
+
+            int skipped = rng.nextInt(2 * (int) GameBoy.FRAME_CYCLES);
+            for (int c = 0; c < skipped; ++c, ++cycle)
+                lcd.cycle(cycle);
+        }
+    }
+
+    private static long rendererThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("gameboj-lcd-renderer"))
+                .count();
+    }
+
+    @Test
+    void closeStopsTheRendererThread() {
+        long before = rendererThreads();
+        try (GameBoy gb = new GameBoy(
+                CartridgeTest.cartridgeWithData(new byte[0x8000]))) {
+            gb.lcdController().setRenderingMode(RenderingMode.PIPELINED);
+            gb.runUntil(2 * GameBoy.FRAME_CYCLES);
+            assertEquals(before + 1, rendererThreads());
+        }
+        assertEquals(before, rendererThreads());
+    }
+}
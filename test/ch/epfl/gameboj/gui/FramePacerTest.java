@@ -0,0 +1,76 @@
+package ch.epfl.gameboj.gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public final class FramePacerTest {
+    private static long frameTime(double frames) {
+        return (long) Math.ceil(frames * FramePacer.FRAME_NANOS);
+    }
+
+    @Test
+    void constructorFailsWithInvalidCatchUpLimit() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new FramePacer(0, false);
+        });
+    }
+
+    @Test
+    void framesToEmulateFollowsTheClock() {
+        FramePacer p = new FramePacer(4, false);
+        p.start(0);
+        assertEquals(0, p.framesToEmulate(frameTime(0.5)));
+        assertEquals(1, p.framesToEmulate(frameTime(1)));
+        assertEquals(0, p.framesToEmulate(frameTime(1.9)));
+        assertEquals(2, p.framesToEmulate(frameTime(3)));
+        assertEquals(3, p.frameNumber());
+    }
+
+    @Test
+    void framesToEmulateDoesNotDrift() {
+        FramePacer p = new FramePacer(4, false);
+        p.start(0);
+        long emulated = 0;
+        for (int i = 1; i <= 10_000; ++i)
+            emulated += p.framesToEmulate(frameTime(i) + 1_000_000);
+        assertEquals(10_000, emulated);
+    }
+
+    @Test
+    void lateFramesBeyondCatchUpLimitAreSkipped() {
+        FramePacer p = new FramePacer(4, false);
+        p.start(0);
+        assertEquals(4, p.framesToEmulate(frameTime(10)));
+        assertEquals(10, p.frameNumber());
+        assertEquals(0, p.framesToEmulate(frameTime(10.5)));
+        assertEquals(1, p.framesToEmulate(frameTime(11)));
+    }
+
+    @Test
+    void displaySyncEmulatesOneFramePerRefresh() {
+        FramePacer p = new FramePacer(4, true);
+        p.start(0);
+        for (int i = 1; i <= 100; ++i) {
+            // A 60 Hz display, slightly faster than the Game Boy
+            p.displayRefreshed(i * 16_666_667L, false, 0);
+            int frames = p.framesToEmulate(i * 16_666_667L + 500_000);
+            assertTrue(frames <= 1);
+        }
+        assertEquals(100, p.frameNumber(), 1);
+    }
+
+    @Test
+    void droppedAndDuplicatedFramesAreCounted() {
+        FramePacer p = new FramePacer(4, false);
+        p.displayRefreshed(0, false, 0);
+        p.displayRefreshed(1, true, 1);
+        p.displayRefreshed(2, false, 1);
+        p.displayRefreshed(3, true, 4);
+        p.displayRefreshed(4, true, 5);
+        assertEquals(2, p.droppedFrames());
+        assertEquals(1, p.duplicatedFrames());
+    }
+}
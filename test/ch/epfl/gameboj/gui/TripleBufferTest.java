@@ -0,0 +1,80 @@
+package ch.epfl.gameboj.gui;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public final class TripleBufferTest {
+    private static TripleBuffer<int[]> newBuffer() {
+        return new TripleBuffer<>(new int[1], new int[1], new int[1]);
+    }
+
+    @Test
+    void constructorFailsWithNullBuffer() {
+        assertThrows(NullPointerException.class, () -> {
+            new TripleBuffer<>(new int[1], null, new int[1]);
+        });
+    }
+
+    @Test
+    void updateFailsWhenNothingWasPublished() {
+        TripleBuffer<int[]> b = newBuffer();
+        assertFalse(b.update());
+    }
+
+    @Test
+    void updateReturnsLatestPublishedBuffer() {
+        TripleBuffer<int[]> b = newBuffer();
+        for (int i = 1; i <= 5; ++i) {
+            b.back()[0] = i;
+            b.publish();
+        }
+        assertTrue(b.update());
+        assertEquals(5, b.front()[0]);
+        assertFalse(b.update());
+        assertEquals(5, b.front()[0]);
+    }
+
+    @Test
+    void producerAndConsumerNeverShareABuffer() {
+        TripleBuffer<int[]> b = newBuffer();
+        for (int i = 0; i < 10; ++i) {
+            b.publish();
+            assertNotSame(b.back(), b.front());
+            b.update();
+            assertNotSame(b.back(), b.front());
+        }
+    }
+
+    @Test
+    void consumerOnlySeesCompleteBuffers() throws InterruptedException {
+        TripleBuffer<int[]> b = new TripleBuffer<>(new int[64], new int[64],
+                new int[64]);
+        int count = 100_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= count; ++i) {
+                int[] buffer = b.back();
+                for (int j = 0; j < buffer.length; ++j)
+                    buffer[j] = i;
+                b.publish();
+            }
+        });
+        producer.start();
+
+        int last = 0;
+        while (last < count) {
+            if (b.update()) {
+                int[] buffer = b.front();
+                for (int v : buffer)
+                    assertEquals(buffer[0], v);
+                assertTrue(last < buffer[0]);
+                last = buffer[0];
+            }
+        }
+        producer.join();
+    }
+}